@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.builder;
+
+import com.conversationkit.impl.MappedNodeRepository;
+import com.conversationkit.model.ConversationNodeRepository;
+import com.conversationkit.model.IConversationEdge;
+import com.conversationkit.model.IConversationNode;
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * I/O class for precompiling a JSON graph into a binary file and loading a
+ * node index from that file.
+ * <p>
+ * Compiling parses and checks the JSON once, ahead of time. Loading maps the
+ * binary file with <code>FileChannel.map</code>, checks that its header and
+ * sections fit the file, and decodes each node only when the conversation
+ * first reaches it, see {@link MappedNodeRepository}.
+ * The same node and edge builders used with {@link JsonGraphBuilder} work
+ * with binary graphs.
+ *
+ * @author pdtyreus
+ */
+public class BinaryGraphBuilder {
+
+    private static final Logger logger = Logger.getLogger(BinaryGraphBuilder.class.getName());
+
+    /**
+     * Compiles a JSON graph into the binary format.
+     *
+     * @param reader A reader of the JSON source file
+     * @param out receives the binary graph, not closed
+     * @throws IOException when the JSON is not able to be parsed or refers to
+     * missing nodes.
+     */
+    public static void compileJsonGraph(Reader reader, OutputStream out) throws IOException {
+
+        JsonValue value = Json.parse(reader);
+
+        JsonObject keyTree = value.asObject().get("graph").asObject();
+
+        StringPool strings = new StringPool();
+
+        List<int[]> nodes = new ArrayList();
+        for (JsonValue member : keyTree.get("nodes").asArray()) {
+            JsonObject node = member.asObject();
+            int id;
+            try {
+                id = Integer.parseInt(node.get("id").asString());
+            } catch (Exception e) {
+                throw new IOException("Missing or Invalid \"id\" for node: " + node.toString());
+            }
+            if (node.get("label") == null) {
+                throw new IOException("Missing \"label\" for node " + id);
+            }
+            if (node.get("type") == null) {
+                throw new IOException("Missing \"type\" for node " + id);
+            }
+            if (node.get("metadata") == null) {
+                throw new IOException("Missing \"metadata\" for node " + id);
+            }
+            nodes.add(new int[]{id, strings.add(node.get("type").asString()), strings.add(node.get("metadata").asObject().toString())});
+        }
+        nodes.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        int[] ids = new int[nodes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nodes.get(i)[0];
+            if (i > 0 && ids[i] == ids[i - 1]) {
+                throw new IOException("Duplicate node id " + ids[i]);
+            }
+        }
+
+        //edges grouped by source node, in file order within each node
+        List<int[]>[] edgesByNode = new List[ids.length];
+        int edgeCount = 0;
+        for (JsonValue member : keyTree.get("edges").asArray()) {
+            JsonObject edge = member.asObject();
+
+            if (edge.get("relation") == null) {
+                throw new IOException("Missing \"relation\" for edge: " + edge.toString());
+            }
+            if (edge.get("source") == null) {
+                throw new IOException("Missing \"source\" for edge: " + edge.toString());
+            }
+            if (edge.get("target") == null) {
+                throw new IOException("Missing \"target\" for edge: " + edge.toString());
+            }
+
+            int source = Arrays.binarySearch(ids, Integer.parseInt(edge.get("source").asString()));
+            int target = Arrays.binarySearch(ids, Integer.parseInt(edge.get("target").asString()));
+
+            if (source < 0) {
+                throw new IOException("Source node missing for edge " + edge);
+            }
+
+            if (target < 0) {
+                throw new IOException("Target node missing for edge " + edge);
+            }
+
+            JsonValue metadata = edge.get("metadata");
+            int[] record = new int[]{
+                strings.add(edge.get("relation").asString()),
+                strings.add(edge.getString("label", "")),
+                metadata == null ? MappedNodeRepository.NO_STRING : strings.add(metadata.asObject().toString()),
+                target};
+            if (edgesByNode[source] == null) {
+                edgesByNode[source] = new ArrayList();
+            }
+            edgesByNode[source].add(record);
+            edgeCount++;
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MappedNodeRepository.MAGIC);
+        data.writeInt(MappedNodeRepository.VERSION);
+        data.writeInt(ids.length);
+        data.writeInt(edgeCount);
+        data.writeInt(strings.bytes.size());
+
+        int firstEdge = 0;
+        for (int i = 0; i < ids.length; i++) {
+            for (int field : nodes.get(i)) {
+                data.writeInt(field);
+            }
+            data.writeInt(firstEdge);
+            firstEdge += edgesByNode[i] == null ? 0 : edgesByNode[i].size();
+        }
+        data.writeInt(firstEdge);
+
+        for (List<int[]> edges : edgesByNode) {
+            if (edges != null) {
+                for (int[] edge : edges) {
+                    for (int field : edge) {
+                        data.writeInt(field);
+                    }
+                }
+            }
+        }
+        strings.bytes.writeTo(data);
+        data.flush();
+
+        logger.info(MessageFormat.format("Compiled {0} nodes and {1} edges", ids.length, edgeCount));
+    }
+
+    /**
+     * Maps a binary graph and creates a node repository using default node and
+     * edge builder implementations.
+     *
+     * @param path the binary graph file
+     * @return A ConversationNodeRepository
+     * @throws IOException when the file cannot be mapped or is not a binary
+     * graph.
+     */
+    public static ConversationNodeRepository readBinaryGraph(Path path) throws IOException {
+
+        return readBinaryGraph(path, JsonGraphBuilder.DEFAULT_NODE_BUILDER, JsonGraphBuilder.DEFAULT_EDGE_BUILDER);
+    }
+
+    /**
+     *
+     * @param <N> IConversationNode class
+     * @param <E> IConversationEdge class
+     * @param path the binary graph file
+     * @param nodeBuilder Custom node builder implementation
+     * @param edgeBuilder Custom edge builder implementation
+     * @return A typed ConversationNodeRepository
+     * @throws IOException when the file cannot be mapped or is not a binary
+     * graph.
+     */
+    public static <N extends IConversationNode<E>, E extends IConversationEdge> ConversationNodeRepository<N> readBinaryGraph(Path path, JsonNodeBuilder<N> nodeBuilder, JsonEdgeBuilder<E> edgeBuilder) throws IOException {
+
+        MappedNodeRepository<N, E> index = MappedNodeRepository.load(path, nodeBuilder, edgeBuilder);
+
+        logger.info(MessageFormat.format("Mapped {0} nodes", index.getNodeCount()));
+        return index;
+    }
+
+    private static class StringPool {
+
+        private final Map<String, Integer> offsets = new HashMap();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private int add(String value) throws IOException {
+            Integer offset = offsets.get(value);
+            if (offset == null) {
+                offset = bytes.size();
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                DataOutputStream data = new DataOutputStream(bytes);
+                data.writeInt(utf8.length);
+                data.write(utf8);
+                offsets.put(value, offset);
+            }
+            return offset;
+        }
+    }
+}
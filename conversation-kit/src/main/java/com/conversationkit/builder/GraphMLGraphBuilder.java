@@ -0,0 +1,353 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.builder;
+
+import com.conversationkit.model.ConversationNodeRepository;
+import com.conversationkit.model.IConversationEdge;
+import com.conversationkit.model.IConversationNode;
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * I/O class for loading a node index from a GraphML file, such as the ones
+ * exported by yEd.
+ * <p>
+ * The file is read with StAX one element at a time, so memory use does not
+ * depend on the size of the file, only on the graph being built. Each GraphML
+ * node and edge is turned into a JSON Graph style record and passed to the
+ * same {@link JsonNodeBuilder} and {@link JsonEdgeBuilder} used with
+ * {@link JsonGraphBuilder}:
+ * <ul>
+ * <li>every <code>data</code> element whose key has an
+ * <code>attr.name</code> becomes a metadata entry of that name, converted to
+ * a JSON number or boolean when the key's <code>attr.type</code> says so, and
+ * key defaults are applied</li>
+ * <li>a node's id is its GraphML id when that is an integer, otherwise its
+ * label, which must then be an integer</li>
+ * <li>the label of a node or edge is its <code>label</code> data, otherwise
+ * its yEd label</li>
+ * <li>the relation of an edge is its <code>relation</code> data, otherwise
+ * the first word of its yEd label, so a yEd edge labelled
+ * <code>YES Intent</code> has the relation <code>YES</code></li>
+ * <li>the type of a node is its <code>type</code> data, otherwise
+ * <code>graphml</code></li>
+ * </ul>
+ * Nested graphs are flattened. Edges may appear before their nodes.
+ *
+ * @author pdtyreus
+ * @see <a href="http://graphml.graphdrawing.org/">GraphML</a>
+ */
+public class GraphMLGraphBuilder {
+
+    private static final Logger logger = Logger.getLogger(GraphMLGraphBuilder.class.getName());
+
+    private static final String YED_NAMESPACE = "http://www.yworks.com/xml/graphml";
+
+    /**
+     * Reads GraphML and creates a node repository using default node and edge
+     * builder implementations.
+     *
+     * @param in A stream of the GraphML source file
+     * @return A ConversationNodeRepository
+     * @throws IOException when the GraphML is not able to be parsed.
+     */
+    public static ConversationNodeRepository readGraphML(InputStream in) throws IOException {
+
+        return readGraphML(in, JsonGraphBuilder.DEFAULT_NODE_BUILDER, JsonGraphBuilder.DEFAULT_EDGE_BUILDER);
+    }
+
+    /**
+     *
+     * @param <N> IConversationNode class
+     * @param <E> IConversationEdge class
+     * @param in A stream of the GraphML source file
+     * @param nodeBuilder Custom node builder implementation
+     * @param edgeBuilder Custom edge builder implementation
+     * @return A typed ConversationNodeRepository
+     * @throws IOException when the GraphML is not able to be parsed.
+     */
+    public static <N extends IConversationNode<E>, E extends IConversationEdge> ConversationNodeRepository<N> readGraphML(InputStream in, JsonNodeBuilder<N> nodeBuilder, JsonEdgeBuilder<E> edgeBuilder) throws IOException {
+
+        Map<String, Integer> nodeIds = new HashMap();
+        StreamingGraphLoader<N, E> loader = new StreamingGraphLoader<>(nodeBuilder, edgeBuilder, nodeIds::get);
+        Map<String, Key> keys = new HashMap();
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            XMLStreamReader xml = factory.createXMLStreamReader(in);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() != XMLStreamReader.START_ELEMENT) {
+                        continue;
+                    }
+                    switch (xml.getLocalName()) {
+                        case "key":
+                            Key key = readKey(xml);
+                            keys.put(key.id, key);
+                            break;
+                        case "node":
+                            readNode(xml, keys, nodeIds, loader);
+                            break;
+                        case "edge":
+                            readEdge(xml, keys, loader);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException ex) {
+            throw new IOException("Unable to parse GraphML: " + ex.getMessage(), ex);
+        }
+
+        loader.finish();
+        logger.info(MessageFormat.format("Created {0} nodes", loader.getIndex().size()));
+        logger.info(MessageFormat.format("Created {0} edges", loader.getEdgeCount()));
+        return loader.getIndex();
+    }
+
+    private static Key readKey(XMLStreamReader xml) throws XMLStreamException {
+        Key key = new Key(xml.getAttributeValue(null, "id"),
+                xml.getAttributeValue(null, "for"),
+                xml.getAttributeValue(null, "attr.name"),
+                xml.getAttributeValue(null, "attr.type"));
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                if ("default".equals(xml.getLocalName())) {
+                    key.defaultValue = xml.getElementText();
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return key;
+    }
+
+    private static void readNode(XMLStreamReader xml, Map<String, Key> keys, Map<String, Integer> nodeIds, StreamingGraphLoader loader) throws XMLStreamException, IOException {
+        String graphId = xml.getAttributeValue(null, "id");
+        Element element = readElement(xml, keys, "node");
+
+        Integer id = parseId(graphId);
+        String label = element.label();
+        if (id == null) {
+            id = label == null ? null : parseId(label);
+        }
+        if (id == null) {
+            throw new IOException("Node " + graphId + " needs an integer id or label");
+        }
+        nodeIds.put(graphId, id);
+
+        JsonObject node = new JsonObject();
+        node.add("id", Integer.toString(id));
+        node.add("type", element.string("type", "graphml"));
+        node.add("label", label == null ? graphId : label);
+        node.add("metadata", element.metadata);
+        loader.node(graphId, node);
+    }
+
+    private static void readEdge(XMLStreamReader xml, Map<String, Key> keys, StreamingGraphLoader loader) throws XMLStreamException, IOException {
+        String source = xml.getAttributeValue(null, "source");
+        String target = xml.getAttributeValue(null, "target");
+        Element element = readElement(xml, keys, "edge");
+        if (source == null || target == null) {
+            throw new IOException("Missing \"source\" or \"target\" for edge: " + element.metadata);
+        }
+
+        JsonObject edge = new JsonObject();
+        String relation = element.string("relation", null);
+        if (relation == null && element.yedLabel != null && !element.yedLabel.isEmpty()) {
+            relation = element.yedLabel.split("\\s+")[0];
+        }
+        if (relation != null) {
+            edge.add("relation", relation);
+        }
+        String label = element.label();
+        edge.add("label", label == null ? "" : label);
+        if (!element.metadata.isEmpty()) {
+            edge.add("metadata", element.metadata);
+        }
+        edge.add("source", source);
+        edge.add("target", target);
+        loader.edge(source, target, edge);
+    }
+
+    /**
+     * Reads the data of a node or edge. Stops at the end of the element or at
+     * a nested graph, whose nodes are then read like any others.
+     */
+    private static Element readElement(XMLStreamReader xml, Map<String, Key> keys, String kind) throws XMLStreamException {
+        Element element = new Element();
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                String name = xml.getLocalName();
+                if ("graph".equals(name)) {
+                    break;
+                } else if ("data".equals(name) && depth == 1) {
+                    readData(xml, keys.get(xml.getAttributeValue(null, "key")), element);
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            }
+        }
+        for (Key key : keys.values()) {
+            if (key.defaultValue != null && key.name != null && key.appliesTo(kind) && element.metadata.get(key.name) == null) {
+                JsonValue value = key.convert(key.defaultValue);
+                if (value != null) {
+                    element.metadata.add(key.name, value);
+                }
+            }
+        }
+        return element;
+    }
+
+    private static void readData(XMLStreamReader xml, Key key, Element element) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                depth++;
+                String name = xml.getLocalName();
+                if (element.yedLabel == null && YED_NAMESPACE.equals(xml.getNamespaceURI())
+                        && ("NodeLabel".equals(name) || "EdgeLabel".equals(name))) {
+                    element.yedLabel = readOwnText(xml).trim();
+                    depth--;
+                }
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            } else if ((event == XMLStreamReader.CHARACTERS || event == XMLStreamReader.CDATA) && depth == 1) {
+                text.append(xml.getText());
+            }
+        }
+        if (key != null && key.name != null) {
+            JsonValue value = key.convert(text.toString());
+            if (value != null) {
+                element.metadata.add(key.name, value);
+            }
+        }
+    }
+
+    //the text directly inside the current element, skipping child elements
+    private static String readOwnText(XMLStreamReader xml) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            } else if ((event == XMLStreamReader.CHARACTERS || event == XMLStreamReader.CDATA) && depth == 1) {
+                text.append(xml.getText());
+            }
+        }
+        return text.toString();
+    }
+
+    private static Integer parseId(String value) {
+        try {
+            return value == null ? null : Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static class Key {
+
+        private final String id;
+        private final String target;
+        private final String name;
+        private final String type;
+        private String defaultValue;
+
+        private Key(String id, String target, String name, String type) {
+            this.id = id;
+            this.target = target == null ? "all" : target;
+            this.name = name;
+            this.type = type == null ? "string" : type;
+        }
+
+        private boolean appliesTo(String kind) {
+            return "all".equals(target) || kind.equals(target);
+        }
+
+        private JsonValue convert(String text) {
+            try {
+                switch (type) {
+                    case "boolean":
+                        return Json.value(Boolean.parseBoolean(text.trim()));
+                    case "int":
+                    case "long":
+                        return Json.value(Long.parseLong(text.trim()));
+                    case "float":
+                    case "double":
+                        return Json.value(Double.parseDouble(text.trim()));
+                    default:
+                        return Json.value(text);
+                }
+            } catch (NumberFormatException ex) {
+                //empty or invalid numbers are left out
+                return null;
+            }
+        }
+    }
+
+    private static class Element {
+
+        private final JsonObject metadata = new JsonObject();
+        private String yedLabel;
+
+        private String string(String name, String defaultValue) {
+            JsonValue value = metadata.get(name);
+            return value != null && value.isString() ? value.asString() : defaultValue;
+        }
+
+        private String label() {
+            String label = string("label", null);
+            return label != null ? label : yedLabel;
+        }
+    }
+}
@@ -23,9 +23,14 @@
  */
 package com.conversationkit.builder;
 
+import com.conversationkit.impl.action.StateEffects;
+import com.conversationkit.impl.edge.EdgeCondition;
 import com.conversationkit.model.IConversationEdge;
+import com.conversationkit.model.IConversationIntent;
+import com.conversationkit.model.IConversationState;
 import com.eclipsesource.json.JsonObject;
 import java.io.IOException;
+import java.util.function.BiFunction;
 
 /**
  * Builds an instance of IConversationEdge from the JSON graph values.
@@ -35,4 +40,40 @@ import java.io.IOException;
 @FunctionalInterface
 public interface JsonEdgeBuilder<E extends IConversationEdge> {
     public E edgeFromJson(String relation, String label, JsonObject metadata, Integer target) throws IOException;
+
+    /**
+     * Compiles the <code>validator</code> entry of the edge metadata, for
+     * builders to pass to the edge as its validate function.
+     * @param metadata the edge metadata, may be null
+     * @return the compiled validator, or {@link EdgeCondition#ALWAYS} if there
+     * is none
+     * @throws IOException if the validator is not valid
+     * @see EdgeCondition#fromJson(com.eclipsesource.json.JsonValue)
+     */
+    public static EdgeCondition validatorFromJson(JsonObject metadata) throws IOException {
+        if (metadata == null || metadata.get("validator") == null) {
+            return EdgeCondition.ALWAYS;
+        }
+        try {
+            return EdgeCondition.fromJson(metadata.get("validator"));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid edge validator " + metadata.get("validator") + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Compiles the <code>effect</code> entry of the edge metadata, for
+     * builders to pass to the edge as its side effects.
+     * @param metadata the edge metadata, may be null
+     * @return the compiled side effects, empty if there are none
+     * @throws IOException if an effect is not valid
+     * @see StateEffects#sideEffectsFromJson(com.eclipsesource.json.JsonObject)
+     */
+    public static BiFunction<IConversationIntent, IConversationState, Object>[] sideEffectsFromJson(JsonObject metadata) throws IOException {
+        try {
+            return StateEffects.sideEffectsFromJson(metadata);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid edge effect", ex);
+        }
+    }
 }
@@ -27,17 +27,25 @@ import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
-import com.conversationkit.impl.MapBackedNodeRepository;
+import com.conversationkit.impl.IntMapNodeRepository;
 import com.conversationkit.impl.edge.ConversationEdge;
 import com.conversationkit.impl.node.DialogTreeNode;
 import com.conversationkit.model.IConversationEdge;
 import com.conversationkit.model.IConversationNode;
 import com.conversationkit.model.ConversationNodeRepository;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 import java.util.logging.Logger;
 
 /**
@@ -122,39 +130,12 @@ public class JsonGraphBuilder {
 
         JsonObject keyTree = value.asObject().get("graph").asObject();
 
-        MapBackedNodeRepository<N> index = new MapBackedNodeRepository();
+        IntMapNodeRepository<N> index = new IntMapNodeRepository();
 
         int i = 0;
         //run through once to create nodes
         for (JsonValue member : keyTree.get("nodes").asArray()) {
-            JsonObject node = member.asObject();
-            Integer id;
-            try {
-                id = Integer.parseInt(node.get("id").asString());
-            } catch (Exception e) {
-                throw new IOException("Missing or Invalid \"id\" for node: " + node.toString());
-            }
-            if (node.get("label") == null) {
-                throw new IOException("Missing \"label\" for node " + id);
-            }
-            if (node.get("type") == null) {
-                throw new IOException("Missing \"type\" for node " + id);
-            }
-
-            String type = node.get("type").asString();
-            String content = node.get("label").asString();
-            JsonValue metadataValue = node.get("metadata");
-            JsonObject metadata = null;
-            if (metadataValue == null) {
-                throw new IOException("Missing \"metadata\" for node " + id);
-            } else {
-                metadata = metadataValue.asObject();
-            }
-
-            N conversationNode = nodeBuilder.nodeFromJson(id, type, metadata);
-            if (conversationNode == null) {
-                throw new IOException("Unhandled node " + node);
-            }
+            N conversationNode = nodeFromRecord(member.asObject(), nodeBuilder);
             index.addNodeToIndex(conversationNode.getId(), conversationNode);
             i++;
         }
@@ -166,49 +147,186 @@ public class JsonGraphBuilder {
         //connect the nodes
         for (JsonValue member : keyTree.get("edges").asArray()) {
             JsonObject edge = member.asObject();
+            N source = sourceOfRecord(edge, index);
+            source.addEdge(edgeFromRecord(edge, edgeBuilder));
+            i++;
+        }
 
-            if (edge.get("relation") == null) {
-                throw new IOException("Missing \"relation\" for edge: " + edge.toString());
-            }
-            if (edge.get("source") == null) {
-                throw new IOException("Missing \"source\" for edge: " + edge.toString());
-            }
-            if (edge.get("target") == null) {
-                throw new IOException("Missing \"target\" for edge: " + edge.toString());
-            }
+        logger.info(MessageFormat.format("Created {0} edges", i));
+        return index;
 
-            Integer sourceId = Integer.parseInt(edge.get("source").asString());
-            Integer targetId = Integer.parseInt(edge.get("target").asString());
+    }
 
-            N source = index.getNodeById(sourceId);
-            N target = index.getNodeById(targetId);
+    /**
+     * Reads JSON and creates a node repository, building the nodes and edges
+     * in parallel on a fork-join pool. Use it when the builders do expensive
+     * work per node, such as compiling templates.
+     * <p>
+     * All nodes are built first, then the edges of each source node are built
+     * and added by a single task, in file order, so the result is the same as
+     * from {@link #readJsonGraph(Reader, JsonNodeBuilder, JsonEdgeBuilder)}.
+     * The builders must be safe to call from several threads at once.
+     *
+     * @param <N> IConversationNode class
+     * @param <E> IConversationEdge class
+     * @param reader A reader of the JSON source file
+     * @param nodeBuilder Custom node builder implementation
+     * @param edgeBuilder Custom edge builder implementation
+     * @param pool the pool that runs the builders, for example
+     * <code>ForkJoinPool.commonPool()</code>
+     * @return A typed ConversationNodeRepository
+     * @throws IOException when the JSON is not able to be parsed.
+     */
+    public static <N extends IConversationNode<E>, E extends IConversationEdge> ConversationNodeRepository<N> readJsonGraph(Reader reader, JsonNodeBuilder<N> nodeBuilder, JsonEdgeBuilder<E> edgeBuilder, ForkJoinPool pool) throws IOException {
 
-            if (source == null) {
-                throw new IOException("Source node missing for edge " + edge);
-            }
+        JsonValue value = Json.parse(reader);
 
-            if (target == null) {
-                throw new IOException("Target node missing for edge " + edge);
-            }
+        JsonObject keyTree = value.asObject().get("graph").asObject();
 
-            String relation = edge.get("relation").asString();
-            String label = edge.getString("label", "");
-            JsonValue metadataValue = edge.get("metadata");
-            JsonObject metadata = null;
-            if (metadataValue != null) {
-                metadata = metadataValue.asObject();
-            }
+        IntMapNodeRepository<N> index = new IntMapNodeRepository();
 
-            E conversationEdge = edgeBuilder.edgeFromJson(relation, label, metadata, targetId);
-            if (conversationEdge == null) {
-                throw new IOException("Unhandled edge " + edge);
+        JsonArray nodeRecords = keyTree.get("nodes").asArray();
+        List<N> nodes = inParallel(pool, nodeRecords.size(), (int n) -> nodeFromRecord(nodeRecords.get(n).asObject(), nodeBuilder));
+        for (N conversationNode : nodes) {
+            index.addNodeToIndex(conversationNode.getId(), conversationNode);
+        }
+
+        logger.info(MessageFormat.format("Created {0} nodes", nodes.size()));
+
+        //group the edges by source node, keeping file order
+        Map<Integer, List<JsonObject>> edgesBySource = new LinkedHashMap();
+        int edgeCount = 0;
+        for (JsonValue member : keyTree.get("edges").asArray()) {
+            JsonObject edge = member.asObject();
+            N source = sourceOfRecord(edge, index);
+            List<JsonObject> edges = edgesBySource.get(source.getId());
+            if (edges == null) {
+                edges = new ArrayList();
+                edgesBySource.put(source.getId(), edges);
             }
-            source.addEdge(conversationEdge);
-            i++;
+            edges.add(edge);
+            edgeCount++;
         }
 
-        logger.info(MessageFormat.format("Created {0} edges", i));
+        List<Map.Entry<Integer, List<JsonObject>>> groups = new ArrayList(edgesBySource.entrySet());
+        inParallel(pool, groups.size(), (int g) -> {
+            N source = index.getNodeById(groups.get(g).getKey());
+            for (JsonObject edge : groups.get(g).getValue()) {
+                source.addEdge(edgeFromRecord(edge, edgeBuilder));
+            }
+            return source;
+        });
+
+        logger.info(MessageFormat.format("Created {0} edges", edgeCount));
         return index;
 
     }
+
+    private static <N extends IConversationNode> N nodeFromRecord(JsonObject node, JsonNodeBuilder<N> nodeBuilder) throws IOException {
+        Integer id;
+        try {
+            id = Integer.parseInt(node.get("id").asString());
+        } catch (Exception e) {
+            throw new IOException("Missing or Invalid \"id\" for node: " + node.toString());
+        }
+        if (node.get("label") == null) {
+            throw new IOException("Missing \"label\" for node " + id);
+        }
+        if (node.get("type") == null) {
+            throw new IOException("Missing \"type\" for node " + id);
+        }
+
+        String type = node.get("type").asString();
+        JsonValue metadataValue = node.get("metadata");
+        JsonObject metadata = null;
+        if (metadataValue == null) {
+            throw new IOException("Missing \"metadata\" for node " + id);
+        } else {
+            metadata = metadataValue.asObject();
+        }
+
+        N conversationNode = nodeBuilder.nodeFromJson(id, type, metadata);
+        if (conversationNode == null) {
+            throw new IOException("Unhandled node " + node);
+        }
+        return conversationNode;
+    }
+
+    private static <N extends IConversationNode> N sourceOfRecord(JsonObject edge, ConversationNodeRepository<N> index) throws IOException {
+        if (edge.get("relation") == null) {
+            throw new IOException("Missing \"relation\" for edge: " + edge.toString());
+        }
+        if (edge.get("source") == null) {
+            throw new IOException("Missing \"source\" for edge: " + edge.toString());
+        }
+        if (edge.get("target") == null) {
+            throw new IOException("Missing \"target\" for edge: " + edge.toString());
+        }
+
+        Integer sourceId = Integer.parseInt(edge.get("source").asString());
+        Integer targetId = Integer.parseInt(edge.get("target").asString());
+
+        N source = index.getNodeById(sourceId);
+        N target = index.getNodeById(targetId);
+
+        if (source == null) {
+            throw new IOException("Source node missing for edge " + edge);
+        }
+
+        if (target == null) {
+            throw new IOException("Target node missing for edge " + edge);
+        }
+        return source;
+    }
+
+    private static <E extends IConversationEdge> E edgeFromRecord(JsonObject edge, JsonEdgeBuilder<E> edgeBuilder) throws IOException {
+        Integer targetId = Integer.parseInt(edge.get("target").asString());
+        String relation = edge.get("relation").asString();
+        String label = edge.getString("label", "");
+        JsonValue metadataValue = edge.get("metadata");
+        JsonObject metadata = null;
+        if (metadataValue != null) {
+            metadata = metadataValue.asObject();
+        }
+
+        E conversationEdge = edgeBuilder.edgeFromJson(relation, label, metadata, targetId);
+        if (conversationEdge == null) {
+            throw new IOException("Unhandled edge " + edge);
+        }
+        return conversationEdge;
+    }
+
+    @FunctionalInterface
+    private interface IndexedTask<T> {
+
+        public T apply(int index) throws IOException;
+    }
+
+    private static <T> List<T> inParallel(ForkJoinPool pool, int count, IndexedTask<T> task) throws IOException {
+        Object[] results = new Object[count];
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(i -> {
+                try {
+                    results[i] = task.apply(i);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            })).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while building the graph");
+        } catch (ExecutionException ex) {
+            //fork-join may rewrap the exception, look for the original
+            for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+        return (List<T>) Arrays.asList(results);
+    }
 }
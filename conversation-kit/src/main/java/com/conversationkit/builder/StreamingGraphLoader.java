@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.builder;
+
+import com.conversationkit.impl.IntMapNodeRepository;
+import com.conversationkit.model.IConversationEdge;
+import com.conversationkit.model.IConversationNode;
+import com.eclipsesource.json.JsonObject;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builds a node index from node and edge records as a streaming reader finds
+ * them. Records have the shape of JSON Graph nodes and edges.
+ * <p>
+ * Edges refer to their nodes by key, the way the source file does. Each node
+ * is built as soon as its record arrives, and each edge as soon as both of its
+ * nodes exist. An edge that comes before one of its nodes is kept until that
+ * node arrives, and later edges from the same source node wait behind it, so
+ * every node gets its edges in file order.
+ *
+ * @author pdtyreus
+ * @param <N> type of IConversationNode
+ * @param <E> type of IConversationEdge
+ */
+class StreamingGraphLoader<N extends IConversationNode<E>, E extends IConversationEdge> {
+
+    private final JsonNodeBuilder<N> nodeBuilder;
+    private final JsonEdgeBuilder<E> edgeBuilder;
+    private final Function<String, Integer> resolver;
+    private final IntMapNodeRepository<N> index = new IntMapNodeRepository();
+    //edges that cannot be added yet, per source node key in file order
+    private final Map<String, ArrayDeque<PendingEdge>> pending = new HashMap();
+    //source node keys whose first pending edge waits for the keyed node
+    private final Map<String, List<String>> waiting = new HashMap();
+    private int edgeCount;
+
+    /**
+     * @param nodeBuilder creates the nodes
+     * @param edgeBuilder creates the edges
+     * @param resolver returns the node id for a node key, or null if the node
+     * has not been read yet
+     */
+    StreamingGraphLoader(JsonNodeBuilder<N> nodeBuilder, JsonEdgeBuilder<E> edgeBuilder, Function<String, Integer> resolver) {
+        this.nodeBuilder = nodeBuilder;
+        this.edgeBuilder = edgeBuilder;
+        this.resolver = resolver;
+    }
+
+    IntMapNodeRepository<N> getIndex() {
+        return index;
+    }
+
+    int getEdgeCount() {
+        return edgeCount;
+    }
+
+    void node(String key, JsonObject node) throws IOException {
+        Integer id;
+        try {
+            id = Integer.parseInt(node.get("id").asString());
+        } catch (Exception e) {
+            throw new IOException("Missing or Invalid \"id\" for node: " + node.toString());
+        }
+        if (node.get("label") == null) {
+            throw new IOException("Missing \"label\" for node " + id);
+        }
+        if (node.get("type") == null) {
+            throw new IOException("Missing \"type\" for node " + id);
+        }
+        if (node.get("metadata") == null) {
+            throw new IOException("Missing \"metadata\" for node " + id);
+        }
+
+        N conversationNode = nodeBuilder.nodeFromJson(id, node.get("type").asString(), node.get("metadata").asObject());
+        if (conversationNode == null) {
+            throw new IOException("Unhandled node " + node);
+        }
+        index.addNodeToIndex(conversationNode.getId(), conversationNode);
+
+        List<String> sources = waiting.remove(key);
+        if (sources != null) {
+            for (String sourceKey : sources) {
+                flush(sourceKey);
+            }
+        }
+    }
+
+    void edge(String sourceKey, String targetKey, JsonObject edge) throws IOException {
+        if (edge.get("relation") == null) {
+            throw new IOException("Missing \"relation\" for edge: " + edge.toString());
+        }
+
+        ArrayDeque<PendingEdge> queue = pending.get(sourceKey);
+        if (queue == null) {
+            N source = lookup(sourceKey);
+            if (source != null && lookup(targetKey) != null) {
+                addEdge(source, edge, resolver.apply(targetKey));
+                return;
+            }
+            queue = new ArrayDeque();
+            pending.put(sourceKey, queue);
+            queue.add(new PendingEdge(sourceKey, targetKey, edge));
+            waitFor(source == null ? sourceKey : targetKey, sourceKey);
+        } else {
+            //the queue is already waiting for its first edge
+            queue.add(new PendingEdge(sourceKey, targetKey, edge));
+        }
+    }
+
+    /**
+     * @throws IOException if any edge still refers to a missing node
+     */
+    void finish() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        PendingEdge edge = pending.values().iterator().next().peek();
+        if (lookup(edge.sourceKey) == null) {
+            throw new IOException("Source node missing for edge " + edge.record);
+        }
+        throw new IOException("Target node missing for edge " + edge.record);
+    }
+
+    private N lookup(String key) {
+        Integer id = resolver.apply(key);
+        return id == null ? null : index.getNodeById(id);
+    }
+
+    private void flush(String sourceKey) throws IOException {
+        N source = lookup(sourceKey);
+        if (source == null) {
+            waitFor(sourceKey, sourceKey);
+            return;
+        }
+        ArrayDeque<PendingEdge> queue = pending.get(sourceKey);
+        while (!queue.isEmpty()) {
+            PendingEdge next = queue.peek();
+            if (lookup(next.targetKey) == null) {
+                waitFor(next.targetKey, sourceKey);
+                return;
+            }
+            queue.poll();
+            addEdge(source, next.record, resolver.apply(next.targetKey));
+        }
+        pending.remove(sourceKey);
+    }
+
+    private void waitFor(String nodeKey, String sourceKey) {
+        List<String> sources = waiting.get(nodeKey);
+        if (sources == null) {
+            sources = new ArrayList();
+            waiting.put(nodeKey, sources);
+        }
+        sources.add(sourceKey);
+    }
+
+    private void addEdge(N source, JsonObject edge, Integer targetId) throws IOException {
+        String relation = edge.get("relation").asString();
+        String label = edge.getString("label", "");
+        JsonObject metadata = edge.get("metadata") == null ? null : edge.get("metadata").asObject();
+
+        E conversationEdge = edgeBuilder.edgeFromJson(relation, label, metadata, targetId);
+        if (conversationEdge == null) {
+            throw new IOException("Unhandled edge " + edge);
+        }
+        source.addEdge(conversationEdge);
+        edgeCount++;
+    }
+
+    private static class PendingEdge {
+
+        private final String sourceKey;
+        private final String targetKey;
+        private final JsonObject record;
+
+        private PendingEdge(String sourceKey, String targetKey, JsonObject record) {
+            this.sourceKey = sourceKey;
+            this.targetKey = targetKey;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.builder;
+
+import com.conversationkit.model.ConversationNodeRepository;
+import com.conversationkit.model.IConversationEdge;
+import com.conversationkit.model.IConversationNode;
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import com.eclipsesource.json.ParseException;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.MessageFormat;
+import java.util.logging.Logger;
+
+/**
+ * I/O class for loading a node index from a JSON file without holding the
+ * whole document in memory.
+ * <p>
+ * Where {@link JsonGraphBuilder} parses the file into a tree and then walks it
+ * twice, this class reads the file as a stream and only ever holds one node or
+ * edge record at a time. Each node is built as soon as its record has been
+ * read, and each edge as soon as both of its nodes exist. An edge that comes
+ * before one of its nodes in the file is kept until that node is read. Later
+ * edges from the same source node wait behind it, so every node gets its edges
+ * in file order, the same as with {@link JsonGraphBuilder}.
+ * <p>
+ * The same node and edge builders used with {@link JsonGraphBuilder} work
+ * here.
+ *
+ * @author pdtyreus
+ * @see <a href="http://jsongraphformat.info/">JSON Graph Format</a>
+ */
+public class StreamingJsonGraphBuilder {
+
+    private static final Logger logger = Logger.getLogger(StreamingJsonGraphBuilder.class.getName());
+
+    /**
+     * Reads JSON and creates a node repository using default node and edge
+     * builder implementations.
+     *
+     * @param reader A reader of the JSON source file
+     * @return A ConversationNodeRepository
+     * @throws IOException when the JSON is not able to be parsed.
+     */
+    public static ConversationNodeRepository readJsonGraph(Reader reader) throws IOException {
+
+        return readJsonGraph(reader, JsonGraphBuilder.DEFAULT_NODE_BUILDER, JsonGraphBuilder.DEFAULT_EDGE_BUILDER);
+    }
+
+    /**
+     *
+     * @param <N> IConversationNode class
+     * @param <E> IConversationEdge class
+     * @param reader A reader of the JSON source file
+     * @param nodeBuilder Custom node builder implementation
+     * @param edgeBuilder Custom edge builder implementation
+     * @return A typed ConversationNodeRepository
+     * @throws IOException when the JSON is not able to be parsed.
+     */
+    public static <N extends IConversationNode<E>, E extends IConversationEdge> ConversationNodeRepository<N> readJsonGraph(Reader reader, JsonNodeBuilder<N> nodeBuilder, JsonEdgeBuilder<E> edgeBuilder) throws IOException {
+
+        StreamingGraphLoader<N, E> loader = new StreamingGraphLoader<>(nodeBuilder, edgeBuilder, Integer::parseInt);
+        JsonTokenizer json = new JsonTokenizer(reader);
+
+        boolean foundGraph = false;
+        json.expect('{');
+        if (!json.endOf('}')) {
+            do {
+                String key = json.readString();
+                json.expect(':');
+                if ("graph".equals(key)) {
+                    readGraph(json, loader);
+                    foundGraph = true;
+                } else {
+                    json.skipValue();
+                }
+            } while (json.comma());
+            json.expect('}');
+        }
+        if (!foundGraph) {
+            throw new IOException("Missing \"graph\"");
+        }
+
+        loader.finish();
+        logger.info(MessageFormat.format("Created {0} nodes", loader.getIndex().size()));
+        logger.info(MessageFormat.format("Created {0} edges", loader.getEdgeCount()));
+        return loader.getIndex();
+    }
+
+    private static void readGraph(JsonTokenizer json, StreamingGraphLoader loader) throws IOException {
+        json.expect('{');
+        if (json.endOf('}')) {
+            return;
+        }
+        do {
+            String key = json.readString();
+            json.expect(':');
+            if ("nodes".equals(key) || "edges".equals(key)) {
+                json.expect('[');
+                if (!json.endOf(']')) {
+                    do {
+                        JsonValue record = json.readValue();
+                        if (!record.isObject()) {
+                            throw new IOException("Expected an object in \"" + key + "\" but found " + record);
+                        }
+                        if ("nodes".equals(key)) {
+                            node(record.asObject(), loader);
+                        } else {
+                            edge(record.asObject(), loader);
+                        }
+                    } while (json.comma());
+                    json.expect(']');
+                }
+            } else {
+                json.skipValue();
+            }
+        } while (json.comma());
+        json.expect('}');
+    }
+
+    private static void node(JsonObject node, StreamingGraphLoader loader) throws IOException {
+        JsonValue id = node.get("id");
+        String key = id != null && id.isString() ? canonical(id.asString()) : null;
+        loader.node(key, node);
+    }
+
+    private static void edge(JsonObject edge, StreamingGraphLoader loader) throws IOException {
+        if (edge.get("source") == null) {
+            throw new IOException("Missing \"source\" for edge: " + edge.toString());
+        }
+        if (edge.get("target") == null) {
+            throw new IOException("Missing \"target\" for edge: " + edge.toString());
+        }
+        loader.edge(canonical(edge.get("source").asString()), canonical(edge.get("target").asString()), edge);
+    }
+
+    //so "007" and "7" refer to the same node
+    private static String canonical(String id) {
+        try {
+            return Integer.toString(Integer.parseInt(id));
+        } catch (NumberFormatException ex) {
+            return id;
+        }
+    }
+
+    /**
+     * Reads JSON one token at a time. Records are small, so they are turned
+     * into minimal-json values for the builders; everything else is skipped
+     * without building values.
+     */
+    private static class JsonTokenizer {
+
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder text = new StringBuilder();
+        private int position;
+        private int limit;
+        private long offset;
+
+        private JsonTokenizer(Reader reader) {
+            this.reader = reader;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                offset += limit;
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            while (true) {
+                int c = read();
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    if (c != -1) {
+                        position--;
+                    }
+                    return c;
+                }
+            }
+        }
+
+        private void expect(char expected) throws IOException {
+            int c = peek();
+            if (c != expected) {
+                throw error("Expected '" + expected + "'", c);
+            }
+            position++;
+        }
+
+        private boolean endOf(char close) throws IOException {
+            return peek() == close;
+        }
+
+        private boolean comma() throws IOException {
+            if (peek() == ',') {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            text.setLength(0);
+            while (true) {
+                int c = read();
+                if (c == '"') {
+                    return text.toString();
+                } else if (c == '\\') {
+                    c = read();
+                    switch (c) {
+                        case '"':
+                        case '\\':
+                        case '/':
+                            text.append((char) c);
+                            break;
+                        case 'b':
+                            text.append('\b');
+                            break;
+                        case 'f':
+                            text.append('\f');
+                            break;
+                        case 'n':
+                            text.append('\n');
+                            break;
+                        case 'r':
+                            text.append('\r');
+                            break;
+                        case 't':
+                            text.append('\t');
+                            break;
+                        case 'u':
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(read(), 16);
+                                if (digit < 0) {
+                                    throw error("Invalid unicode escape", c);
+                                }
+                                code = code * 16 + digit;
+                            }
+                            text.append((char) code);
+                            break;
+                        default:
+                            throw error("Invalid escape", c);
+                    }
+                } else if (c == -1 || c < 0x20) {
+                    throw error("Unterminated string", c);
+                } else {
+                    text.append((char) c);
+                }
+            }
+        }
+
+        private JsonValue readValue() throws IOException {
+            int c = peek();
+            switch (c) {
+                case '{':
+                    position++;
+                    JsonObject object = new JsonObject();
+                    if (!endOf('}')) {
+                        do {
+                            String name = readString();
+                            expect(':');
+                            object.add(name, readValue());
+                        } while (comma());
+                    }
+                    expect('}');
+                    return object;
+                case '[':
+                    position++;
+                    JsonArray array = new JsonArray();
+                    if (!endOf(']')) {
+                        do {
+                            array.add(readValue());
+                        } while (comma());
+                    }
+                    expect(']');
+                    return array;
+                case '"':
+                    return Json.value(readString());
+                default:
+                    String literal = readLiteral();
+                    try {
+                        return Json.parse(literal);
+                    } catch (ParseException ex) {
+                        throw new IOException("Invalid value " + literal + " at " + (offset + position), ex);
+                    }
+            }
+        }
+
+        private void skipValue() throws IOException {
+            int c = peek();
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                int depth = 0;
+                do {
+                    c = peek();
+                    if (c == '"') {
+                        readString();
+                        continue;
+                    }
+                    if (c == -1) {
+                        throw error("Unexpected end of input", c);
+                    }
+                    position++;
+                    if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                } while (depth > 0);
+            } else {
+                readLiteral();
+            }
+        }
+
+        //numbers, true, false and null
+        private String readLiteral() throws IOException {
+            text.setLength(0);
+            int c = peek();
+            while (c != -1 && (Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.')) {
+                text.append((char) c);
+                position++;
+                c = position < limit ? buffer[position] : peekRaw();
+            }
+            if (text.length() == 0) {
+                throw error("Unexpected character", c);
+            }
+            return text.toString();
+        }
+
+        private int peekRaw() throws IOException {
+            int c = read();
+            if (c != -1) {
+                position--;
+            }
+            return c;
+        }
+
+        private IOException error(String message, int c) {
+            String found = c == -1 ? "end of input" : "'" + (char) c + "'";
+            return new IOException(message + " but found " + found + " at " + (offset + position));
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl;
+
+import com.conversationkit.impl.node.ConversationNode;
+import com.conversationkit.impl.node.DialogTreeNode;
+import com.conversationkit.model.ConversationNodeRepository;
+import com.conversationkit.model.IConversationEdge;
+import com.conversationkit.model.IConversationNode;
+import com.conversationkit.model.NodeMetadata;
+import com.conversationkit.nlp.IntentSymbolTable;
+import com.eclipsesource.json.JsonObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A read-only conversation graph packed into primitive arrays.
+ * <p>
+ * Nodes are numbered densely from 0 in order of their id. The outbound edges
+ * of node <code>n</code> are the edge indexes from
+ * <code>edgeStart[n]</code> (inclusive) to <code>edgeStart[n + 1]</code>
+ * (exclusive), in the order they were added to the node. For each edge the
+ * graph stores the index of its target node, the {@link IntentSymbolTable}
+ * symbol of its intent and the edge object itself, so traversal never touches
+ * boxed ids or compares strings.
+ * <p>
+ * {@link #getNodeById(int)} returns a lightweight read-only view for plain
+ * {@link ConversationNode}s, whose id, {@link NodeMetadata} and edges are all
+ * held by the graph, so the original nodes can be garbage collected. Nodes of
+ * other classes, such as <code>DialogTreeNode</code>, carry fields of their
+ * own and are kept and returned as they are. Built-in nodes are frozen when
+ * they are compiled, so a later {@link IConversationNode#addEdge} throws
+ * <code>UnsupportedOperationException</code>; the graph never reads the edges
+ * of a node again after compiling, so a node that can still change cannot
+ * make it pick the wrong edge.
+ *
+ * @author pdtyreus
+ */
+public class CompiledConversationGraph implements ConversationNodeRepository<IConversationNode> {
+
+    private final int[] nodeIds;
+    private final NodeMetadata[] metadata;
+    //null where a view is returned instead of the original node
+    private final IConversationNode[] originals;
+    private final int[] edgeStart;
+    private final int[] edgeTarget;
+    private final int[] edgeIntentSymbol;
+    private final IConversationEdge[] edges;
+    private final IntentSymbolTable symbols;
+    //true when the ids are consecutive and the index is id - firstId
+    private final boolean denseIds;
+
+    private CompiledConversationGraph(int[] nodeIds, NodeMetadata[] metadata, IConversationNode[] originals, int[] edgeStart, int[] edgeTarget, int[] edgeIntentSymbol, IConversationEdge[] edges, IntentSymbolTable symbols) {
+        this.nodeIds = nodeIds;
+        this.metadata = metadata;
+        this.originals = originals;
+        this.edgeStart = edgeStart;
+        this.edgeTarget = edgeTarget;
+        this.edgeIntentSymbol = edgeIntentSymbol;
+        this.edges = edges;
+        this.symbols = symbols;
+        this.denseIds = nodeIds.length == 0 || nodeIds[nodeIds.length - 1] - nodeIds[0] == nodeIds.length - 1;
+    }
+
+    /**
+     * Compiles the nodes and their edges using the default symbol table.
+     *
+     * @param nodes every node of the graph
+     * @return the compiled graph
+     * @throws IllegalArgumentException if two nodes share an id or an edge
+     * points to a node that is not in the graph
+     */
+    public static CompiledConversationGraph compile(Iterable<? extends IConversationNode> nodes) {
+        return compile(nodes, IntentSymbolTable.getDefault());
+    }
+
+    /**
+     * Compiles the nodes and their edges.
+     *
+     * @param nodes every node of the graph
+     * @param symbols table used to intern the intent ids of the edges
+     * @return the compiled graph
+     * @throws IllegalArgumentException if two nodes share an id or an edge
+     * points to a node that is not in the graph
+     */
+    public static CompiledConversationGraph compile(Iterable<? extends IConversationNode> nodes, IntentSymbolTable symbols) {
+        List<IConversationNode> sorted = new ArrayList();
+        for (IConversationNode node : nodes) {
+            sorted.add(node);
+        }
+        Collections.sort(sorted, Comparator.comparingInt(IConversationNode::getId));
+
+        int[] nodeIds = new int[sorted.size()];
+        NodeMetadata[] metadata = new NodeMetadata[sorted.size()];
+        IConversationNode[] originals = new IConversationNode[sorted.size()];
+        //node edges are only iterable, so collect them before sizing the arrays
+        List<IConversationEdge> edgeList = new ArrayList();
+        int[] edgeStart = new int[nodeIds.length + 1];
+        for (int i = 0; i < nodeIds.length; i++) {
+            IConversationNode node = sorted.get(i);
+            nodeIds[i] = node.getId();
+            if (i > 0 && nodeIds[i] == nodeIds[i - 1]) {
+                throw new IllegalArgumentException("Duplicate node id " + nodeIds[i]);
+            }
+            if (node.getClass() == ConversationNode.class) {
+                metadata[i] = node.getCompactMetadata();
+            } else {
+                originals[i] = node;
+            }
+            edgeStart[i] = edgeList.size();
+            for (Object edge : node.getEdges()) {
+                edgeList.add((IConversationEdge) edge);
+            }
+        }
+        edgeStart[nodeIds.length] = edgeList.size();
+
+        IConversationEdge[] edges = edgeList.toArray(new IConversationEdge[edgeList.size()]);
+        int[] edgeTarget = new int[edges.length];
+        int[] edgeIntentSymbol = new int[edges.length];
+        for (int i = 0; i < nodeIds.length; i++) {
+            for (int e = edgeStart[i]; e < edgeStart[i + 1]; e++) {
+                IConversationEdge edge = edges[e];
+                int target = Arrays.binarySearch(nodeIds, edge.getEndNodeId());
+                if (target < 0) {
+                    throw new IllegalArgumentException("Edge from node " + nodeIds[i] + " points to missing node " + edge.getEndNodeId());
+                }
+                edgeTarget[e] = target;
+                edgeIntentSymbol[e] = symbols == IntentSymbolTable.getDefault() ? edge.getIntentSymbol() : symbols.intern(edge.getIntentId());
+            }
+        }
+
+        //only freeze once the graph is known to be valid
+        for (IConversationNode node : sorted) {
+            if (node instanceof ConversationNode) {
+                ((ConversationNode) node).freeze();
+            } else if (node instanceof DialogTreeNode) {
+                ((DialogTreeNode) node).freeze();
+            }
+        }
+
+        return new CompiledConversationGraph(nodeIds, metadata, originals, edgeStart, edgeTarget, edgeIntentSymbol, edges, symbols);
+    }
+
+    @Override
+    public IConversationNode getNodeById(int id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        return originals[index] != null ? originals[index] : new NodeView(index);
+    }
+
+    /**
+     * @param id a node id
+     * @return the dense index of the node, or -1 if there is no such node
+     */
+    public int indexOf(int id) {
+        if (denseIds) {
+            int index = nodeIds.length == 0 ? -1 : id - nodeIds[0];
+            return (index >= 0 && index < nodeIds.length) ? index : -1;
+        }
+        int index = Arrays.binarySearch(nodeIds, id);
+        return index < 0 ? -1 : index;
+    }
+
+    public int getNodeCount() {
+        return nodeIds.length;
+    }
+
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    public IntentSymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @param index a node index
+     * @return the id of the node
+     */
+    public int nodeId(int index) {
+        return nodeIds[index];
+    }
+
+    /**
+     * @param index a node index
+     * @return the index of the node's first outbound edge
+     */
+    public int edgeStart(int index) {
+        return edgeStart[index];
+    }
+
+    /**
+     * @param index a node index
+     * @return one past the index of the node's last outbound edge
+     */
+    public int edgeEnd(int index) {
+        return edgeStart[index + 1];
+    }
+
+    /**
+     * @param edge an edge index
+     * @return the node index of the edge's target
+     */
+    public int edgeTarget(int edge) {
+        return edgeTarget[edge];
+    }
+
+    /**
+     * @param edge an edge index
+     * @return the intent symbol of the edge
+     */
+    public int edgeIntentSymbol(int edge) {
+        return edgeIntentSymbol[edge];
+    }
+
+    /**
+     * @param edge an edge index
+     * @return the edge object, for validation and side effects
+     */
+    public IConversationEdge edge(int edge) {
+        return edges[edge];
+    }
+
+    private class NodeView implements IConversationNode<IConversationEdge> {
+
+        private final int index;
+
+        NodeView(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Iterable<IConversationEdge> getEdges() {
+            return Collections.unmodifiableList(Arrays.asList(edges).subList(edgeStart[index], edgeStart[index + 1]));
+        }
+
+        @Override
+        public void addEdge(IConversationEdge edge) {
+            throw new UnsupportedOperationException("A compiled graph is read only");
+        }
+
+        @Override
+        public int getId() {
+            return nodeIds[index];
+        }
+
+        @Override
+        public JsonObject getMetadata() {
+            return metadata[index].asJsonObject();
+        }
+
+        @Override
+        public NodeMetadata getCompactMetadata() {
+            return metadata[index];
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof NodeView)) {
+                return false;
+            }
+            NodeView other = (NodeView) obj;
+            return other.index == index && other.graph() == graph();
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        private CompiledConversationGraph graph() {
+            return CompiledConversationGraph.this;
+        }
+    }
+
+}
@@ -43,7 +43,7 @@ import java.util.logging.Logger;
  */
 public class ConversationReducer implements Reducer {
 
-    private static final Set<String> reservedKeys = new HashSet(Arrays.asList("intentId", "edgeId", "misunderstoodCount", "nodeId"));
+    private static final Set<String> reservedKeys = new HashSet(Arrays.asList("intentId", "edgeId", "misunderstoodCount", "nodeId", "languageCode"));
     private static Logger logger = Logger.getLogger(ConversationReducer.class.getName());
 
     @Override
@@ -62,6 +62,9 @@ public class ConversationReducer implements Reducer {
                     nextState.remove("misunderstoodCount");
                     nextState.put("nodeId", ((ConversationAction<String>) action).getPayload().get());
                     return nextState;
+                case SET_LANGUAGE_CODE:
+                    nextState.put("languageCode", ((ConversationAction<String>) action).getPayload().get());
+                    return nextState;
                 case INTENT_UNDERSTANDING_SUCCEEDED:
                     nextState.remove("misunderstoodCount");
                     IConversationIntent successfulIntent = ((ConversationAction<IConversationIntent>) action).getPayload().get();
@@ -31,6 +31,7 @@ import com.conversationkit.model.IConversationNode;
 import com.conversationkit.model.ConversationNodeRepository;
 import com.conversationkit.model.IConversationState;
 import com.conversationkit.nlp.IntentDetector;
+import com.conversationkit.nlp.IntentSymbolTable;
 import com.conversationkit.redux.Dispatcher;
 import com.conversationkit.redux.Reducer;
 import com.conversationkit.redux.Redux;
@@ -64,10 +65,11 @@ import java.util.logging.Logger;
  * <ol>
  * <li>Receive a message and update the state with that message.</li>
  * <li>Delegate to the IntentDetector to try to determine the user's
- * intent.</li>
+ * intent in the language of the conversation. The detector may return several ranked candidates; candidates below
+ * the minimum confidence are ignored.</li>
  * <li>Loop over all outbound edges for the current node and find the first edge
- * that matches the intent and has {@link IConversationEdge#validate }
- * that returns true.</li>
+ * that matches the best candidate intent and has {@link IConversationEdge#validate }
+ * that returns true. If there is none, try the next candidate.</li>
  * <li>Dispatch any side effects for the matched edge and process on the Redux
  * middleware chain.</li>
  * <li>Update the state with the new node id.</li>
@@ -87,6 +89,10 @@ public class DirectedConversationEngine<S extends IConversationState, I extends
     protected final IntentDetector<I> intentDetector;
     protected final List<IConversationEdge> fallbackEdges = new ArrayList();
     protected final Store<S> store;
+    protected int maxIntentCandidates = 3;
+    protected double minIntentConfidence = 0.0;
+    protected String defaultLanguageCode = "en-US";
+    protected EdgeMatchCache edgeMatchCache;
 
     public final static String CONVERSATION_STATE_KEY = "conversation-kit";
 
@@ -106,37 +112,157 @@ public class DirectedConversationEngine<S extends IConversationState, I extends
         fallbackEdges.add(edge);
     }
 
+    /**
+     * Sets how many ranked intents are requested from the
+     * {@link IntentDetector}. If the best intent has no valid outbound edge,
+     * the next candidate is tried. Defaults to 3.
+     *
+     * @param maxIntentCandidates the number of intents to try, at least 1
+     */
+    public void setMaxIntentCandidates(int maxIntentCandidates) {
+        if (maxIntentCandidates < 1) {
+            throw new IllegalArgumentException("maxIntentCandidates must be at least 1");
+        }
+        this.maxIntentCandidates = maxIntentCandidates;
+    }
+
+    /**
+     * Sets the minimum {@link IConversationIntent#getConfidence()} for a
+     * detected intent to be considered at all. Defaults to 0.
+     *
+     * @param minIntentConfidence confidence between 0 and 1
+     */
+    public void setMinIntentConfidence(double minIntentConfidence) {
+        this.minIntentConfidence = minIntentConfidence;
+    }
+
+    /**
+     * Sets the language passed to the {@link IntentDetector} when the state
+     * has no language of its own. The language of a conversation is set by
+     * dispatching a {@link ActionType#SET_LANGUAGE_CODE} action. Defaults to
+     * <code>en-US</code>.
+     *
+     * @param defaultLanguageCode language code such as <code>en-US</code>
+     */
+    public void setDefaultLanguageCode(String defaultLanguageCode) {
+        this.defaultLanguageCode = defaultLanguageCode;
+    }
+
+    /**
+     * Caches the results of edge validators that declare their inputs. The
+     * cache may be shared by the engines of all conversations on the same
+     * graph. Defaults to none.
+     *
+     * @param edgeMatchCache the cache, or null to always call the validators
+     */
+    public void setEdgeMatchCache(EdgeMatchCache edgeMatchCache) {
+        this.edgeMatchCache = edgeMatchCache;
+    }
+
     public S getState() {
         return store.getState();
     }
 
-    private Optional<IConversationEdge> findEdgeMatchingIntent(I intent, Optional<IConversationNode> currentNode) {
-        if (currentNode.isPresent()) {
+    /**
+     * An edge together with the candidate intent it was matched with.
+     */
+    private static class EdgeMatch<I> {
+
+        private final I intent;
+        private final IConversationEdge edge;
+
+        public EdgeMatch(I intent, IConversationEdge edge) {
+            this.intent = intent;
+            this.edge = edge;
+        }
+    }
+
+    private static int rankOf(int[] candidateSymbols, int intentSymbol) {
+        for (int rank = 0; rank < candidateSymbols.length; rank++) {
+            if (candidateSymbols[rank] == intentSymbol) {
+                return rank;
+            }
+        }
+        return -1;
+    }
+
+    private boolean validate(int nodeId, IConversationEdge edge, I intent) {
+        if (edgeMatchCache != null && edge.hasValidator() && edge.getValidatorInputs() != null) {
+            return edgeMatchCache.validate(nodeId, edge, intent, store.getState());
+        }
+        return edge.validate(intent, store.getState());
+    }
+
+    private Optional<EdgeMatch<I>> findEdgeMatchingIntent(List<I> candidates, Optional<IConversationNode> currentNode) {
+        //group the outbound edges by the rank of the intent they handle in one pass over the node
+        List<IConversationEdge>[] edgesByRank = new List[candidates.size()];
+        int[] candidateSymbols = new int[candidates.size()];
+        for (int rank = 0; rank < candidateSymbols.length; rank++) {
+            candidateSymbols[rank] = candidates.get(rank).getIntentSymbol();
+        }
+        int compiledIndex = -1;
+        if (currentNode.isPresent() && nodeRepository instanceof CompiledConversationGraph) {
+            compiledIndex = ((CompiledConversationGraph) nodeRepository).indexOf(currentNode.get().getId());
+        }
+        if (compiledIndex >= 0) {
+            CompiledConversationGraph graph = (CompiledConversationGraph) nodeRepository;
+            int[] graphSymbols = candidateSymbols;
+            if (graph.getSymbols() != IntentSymbolTable.getDefault()) {
+                graphSymbols = new int[candidates.size()];
+                for (int rank = 0; rank < graphSymbols.length; rank++) {
+                    graphSymbols[rank] = graph.getSymbols().lookup(candidates.get(rank).getIntentId());
+                }
+            }
+            for (int e = graph.edgeStart(compiledIndex); e < graph.edgeEnd(compiledIndex); e++) {
+                int rank = rankOf(graphSymbols, graph.edgeIntentSymbol(e));
+                if (rank >= 0) {
+                    if (edgesByRank[rank] == null) {
+                        edgesByRank[rank] = new ArrayList(2);
+                    }
+                    edgesByRank[rank].add(graph.edge(e));
+                }
+            }
+        } else if (currentNode.isPresent()) {
             Iterable<IConversationEdge> edges = currentNode.get().getEdges();
             for (IConversationEdge edge : edges) {
-                if (edge.getIntentId().equals(intent.getIntentId())) {
+                int rank = rankOf(candidateSymbols, edge.getIntentSymbol());
+                if (rank >= 0) {
+                    if (edgesByRank[rank] == null) {
+                        edgesByRank[rank] = new ArrayList(2);
+                    }
+                    edgesByRank[rank].add(edge);
+                }
+            }
+        }
+
+        //fallback edges are not tied to a node
+        int nodeId = currentNode.isPresent() ? currentNode.get().getId() : Integer.MIN_VALUE;
+        for (int rank = 0; rank < candidates.size(); rank++) {
+            I intent = candidates.get(rank);
+            if (edgesByRank[rank] != null) {
+                for (IConversationEdge edge : edgesByRank[rank]) {
                     logger.log(Level.INFO, "Found unvalidated matching edge with end node {0} for intent {1}", Arrays.asList(edge.getEndNodeId(), intent.getIntentId()).toArray());
-                    boolean valid = edge.validate(intent, store.getState());
+                    boolean valid = validate(nodeId, edge, intent);
                     if (valid) {
                         logger.log(Level.INFO, "Edge with end node {0} for intent {1} validates.", Arrays.asList(edge.getEndNodeId(), intent.getIntentId()).toArray());
-                        return Optional.of(edge);
+                        return Optional.of(new EdgeMatch<>(intent, edge));
                     } else {
                         logger.log(Level.INFO, "Edge with end node {0} for intent {1} does not validate.", Arrays.asList(edge.getEndNodeId(), intent.getIntentId()).toArray());
                     }
                 }
             }
-        }
-        logger.log(Level.INFO, "No matching connected edge for intent {0}", intent.getIntentId());
-
-        for (IConversationEdge edge : fallbackEdges) {
-            if (edge.getIntentId().equals(intent.getIntentId())) {
-                logger.log(Level.INFO, "Found unvalidated matching fallback edge with end node {0} for intent {1}", Arrays.asList(edge.getEndNodeId(), intent.getIntentId()).toArray());
-                boolean valid = edge.validate(intent, store.getState());
-                if (valid) {
-                    logger.log(Level.INFO, "Fallback edge with end node {0} for intent {1} validates.", Arrays.asList(edge.getEndNodeId(), intent.getIntentId()).toArray());
-                    return Optional.of(edge);
-                } else {
-                    logger.log(Level.INFO, "Fallback edge with end node {0} for intent {1} does not validate.", Arrays.asList(edge.getEndNodeId(), intent.getIntentId()).toArray());
+            logger.log(Level.INFO, "No matching connected edge for intent {0}", intent.getIntentId());
+
+            for (IConversationEdge edge : fallbackEdges) {
+                if (edge.getIntentSymbol() == candidateSymbols[rank]) {
+                    logger.log(Level.INFO, "Found unvalidated matching fallback edge with end node {0} for intent {1}", Arrays.asList(edge.getEndNodeId(), intent.getIntentId()).toArray());
+                    boolean valid = validate(Integer.MIN_VALUE, edge, intent);
+                    if (valid) {
+                        logger.log(Level.INFO, "Fallback edge with end node {0} for intent {1} validates.", Arrays.asList(edge.getEndNodeId(), intent.getIntentId()).toArray());
+                        return Optional.of(new EdgeMatch<>(intent, edge));
+                    } else {
+                        logger.log(Level.INFO, "Fallback edge with end node {0} for intent {1} does not validate.", Arrays.asList(edge.getEndNodeId(), intent.getIntentId()).toArray());
+                    }
                 }
             }
         }
@@ -144,6 +270,25 @@ public class DirectedConversationEngine<S extends IConversationState, I extends
         return Optional.empty();
     }
 
+    /**
+     * Asks the detector for ranked intents in the language of the conversation
+     * and drops those below the confidence floor.
+     */
+    private List<I> detectIntentCandidates(String message) {
+        S state = store.getState();
+        String languageCode = state.getLanguageCode() != null ? state.getLanguageCode() : defaultLanguageCode;
+        List<I> detected = intentDetector.detectIntents(message, languageCode, state.getUserId(), maxIntentCandidates);
+        List<I> candidates = new ArrayList(detected.size());
+        for (I candidate : detected) {
+            if (candidate.getConfidence() >= minIntentConfidence) {
+                candidates.add(candidate);
+            } else {
+                logger.log(Level.INFO, "Ignoring intent {0} with confidence {1}", Arrays.asList(candidate.getIntentId(), candidate.getConfidence()).toArray());
+            }
+        }
+        return candidates;
+    }
+
     @Override
     public MessageHandlingResult handleIncomingMessage(String message) {
 
@@ -154,26 +299,38 @@ public class DirectedConversationEngine<S extends IConversationState, I extends
                         : Optional.empty();
 
         dispatch(new ConversationAction<>(ActionType.MESSAGE_RECEIVED, message));
-        Optional<I> intent = intentDetector.detectIntent(message, "en-US", store.getState().getUserId());
+        List<I> candidates = detectIntentCandidates(message);
         try {
             MessageHandlingResult result = new MessageHandlingResult();
-            if (intent.isPresent()) {
-                I conversationIntent = intent.get();
+            if (!candidates.isEmpty()) {
+                I conversationIntent = candidates.get(0);
                 if (conversationIntent.getAllRequiredSlotsFilled()) {
                     dispatch(new ConversationAction(ActionType.INTENT_UNDERSTANDING_SUCCEEDED, conversationIntent));
-                    Optional<IConversationEdge> outboundEdge = findEdgeMatchingIntent(conversationIntent, currentNode);
-                    if (!outboundEdge.isPresent()) {
+                    List<I> filledCandidates = new ArrayList(candidates.size());
+                    for (I candidate : candidates) {
+                        if (candidate.getAllRequiredSlotsFilled()) {
+                            filledCandidates.add(candidate);
+                        }
+                    }
+                    Optional<EdgeMatch<I>> match = findEdgeMatchingIntent(filledCandidates, currentNode);
+                    if (!match.isPresent()) {
                         dispatch(new ConversationAction(ActionType.EDGE_MATCH_FAILED));
 
                         result.ok = false;
                         result.errorCode = ErrorCode.EDGE_MATCHING_FAILED;
                     } else {
-                        List<Object> sideEffects = outboundEdge.get().getSideEffects(conversationIntent, store.getState());
+                        I matchedIntent = match.get().intent;
+                        if (matchedIntent != conversationIntent) {
+                            //a lower ranked intent matched, so it becomes the understood intent
+                            dispatch(new ConversationAction(ActionType.INTENT_UNDERSTANDING_SUCCEEDED, matchedIntent));
+                        }
+                        IConversationEdge outboundEdge = match.get().edge;
+                        List<Object> sideEffects = outboundEdge.getSideEffects(matchedIntent, store.getState());
                         for (Object effect : sideEffects) {
                             logger.log(Level.INFO, "Dispatching side effect {0}.", effect);
                             dispatch(effect);
                         }
-                        IConversationNode nextNode = nodeRepository.getNodeById(outboundEdge.get().getEndNodeId());
+                        IConversationNode nextNode = nodeRepository.getNodeById(outboundEdge.getEndNodeId());
                         dispatch(new ConversationAction<>(ActionType.EDGE_MATCH_SUCCEEDED, nextNode));
                         result.ok = true;
                     }
@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl;
+
+import com.conversationkit.impl.edge.ConversationEdge;
+import com.conversationkit.impl.edge.EdgeCondition;
+import com.conversationkit.model.IConversationEdge;
+import com.conversationkit.model.IConversationIntent;
+import com.conversationkit.model.IConversationState;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded cache of edge validation results, shared by the
+ * {@link DirectedConversationEngine}s of many conversations.
+ * <p>
+ * Only edges that declare their {@link IConversationEdge#getValidatorInputs()}
+ * are cached. A result is stored under the node id, the intent symbol, the
+ * edge and the values of the declared inputs, so a validator is evaluated
+ * once for each distinct combination and looked up after that. The values
+ * themselves are compared, not just their hash, so a collision can never
+ * return another combination's result. A {@link ConversationEdge} reads its
+ * inputs with readers compiled when it was created; other edges have theirs
+ * parsed once per distinct input, and an edge whose inputs do not parse is
+ * validated without the cache.
+ * <p>
+ * The cache holds at most about <code>maxEntries</code> results. Entries are
+ * kept in two generations: when the newer one fills up, the older one is
+ * dropped and entries still in use are copied forward as they are read.
+ *
+ * @author pdtyreus
+ */
+public class EdgeMatchCache {
+
+    private static final Logger logger = Logger.getLogger(EdgeMatchCache.class.getName());
+
+    private final int generationSize;
+    private final Map<String, BiFunction<IConversationIntent, IConversationState, Object>> readers = new ConcurrentHashMap();
+    private volatile Map<Key, Boolean> current = new ConcurrentHashMap();
+    private volatile Map<Key, Boolean> previous = new ConcurrentHashMap();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxEntries approximate number of results to keep
+     */
+    public EdgeMatchCache(int maxEntries) {
+        if (maxEntries < 2) {
+            throw new IllegalArgumentException("maxEntries must be at least 2");
+        }
+        this.generationSize = maxEntries / 2;
+    }
+
+    /**
+     * Validates the edge, using a cached result if there is one.
+     *
+     * @param nodeId id of the node the edge leaves
+     * @param edge the edge, which must declare its validator inputs
+     * @param intent the candidate intent
+     * @param state the conversation state
+     * @return the result of {@link IConversationEdge#validate}
+     */
+    public boolean validate(int nodeId, IConversationEdge edge, IConversationIntent intent, IConversationState state) {
+        Object[] values;
+        if (edge instanceof ConversationEdge) {
+            values = ((ConversationEdge) edge).readValidatorInputs(intent, state);
+        } else {
+            List<String> inputs = edge.getValidatorInputs();
+            values = new Object[inputs.size()];
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readers.computeIfAbsent(inputs.get(i), EdgeCondition::input).apply(intent, state);
+                }
+            } catch (IllegalArgumentException ex) {
+                logger.log(Level.WARNING, "Not caching {0}: {1}", new Object[]{edge, ex.getMessage()});
+                return edge.validate(intent, state);
+            }
+        }
+        Key key = new Key(nodeId, intent.getIntentSymbol(), edge, values);
+        Boolean valid = current.get(key);
+        if (valid == null) {
+            valid = previous.get(key);
+            if (valid == null) {
+                misses.increment();
+                valid = edge.validate(intent, state);
+            } else {
+                hits.increment();
+            }
+            put(key, valid);
+        } else {
+            hits.increment();
+        }
+        return valid;
+    }
+
+    private void put(Key key, Boolean valid) {
+        Map<Key, Boolean> generation = current;
+        generation.put(key, valid);
+        if (generation.size() >= generationSize) {
+            synchronized (this) {
+                if (current == generation) {
+                    previous = generation;
+                    current = new ConcurrentHashMap();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of validations answered from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of validations that called the validator
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Drops every cached result, for example after the graph is replaced.
+     */
+    public synchronized void clear() {
+        previous = new ConcurrentHashMap();
+        current = new ConcurrentHashMap();
+    }
+
+    private static final class Key {
+
+        private final int nodeId;
+        private final int intentSymbol;
+        private final IConversationEdge edge;
+        private final Object[] values;
+        private final int hash;
+
+        Key(int nodeId, int intentSymbol, IConversationEdge edge, Object[] values) {
+            this.nodeId = nodeId;
+            this.intentSymbol = intentSymbol;
+            this.edge = edge;
+            this.values = values;
+            this.hash = ((nodeId * 31 + intentSymbol) * 31 + System.identityHashCode(edge)) * 31 + Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return other.hash == hash && other.nodeId == nodeId && other.intentSymbol == intentSymbol
+                    && other.edge == edge && Arrays.equals(other.values, values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
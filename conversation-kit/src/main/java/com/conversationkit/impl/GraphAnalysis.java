@@ -0,0 +1,390 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl;
+
+import com.conversationkit.model.IConversationEdge;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Structural checks of a conversation graph, computed once over a
+ * {@link CompiledConversationGraph} so they scale to graphs with millions of
+ * edges. All sets are {@link BitSet}s over node indexes and all traversals
+ * are iterative.
+ * <ul>
+ * <li><b>unreachable</b> nodes cannot be reached from the entry nodes</li>
+ * <li><b>terminal</b> nodes have no outbound edges; the conversation ends
+ * there</li>
+ * <li><b>dead ends</b> are nodes from which no terminal node can be reached,
+ * so a user who gets there can never finish the conversation</li>
+ * <li><b>ambiguous</b> nodes have an edge that can never match because an
+ * earlier edge with the same intent has no validator, see
+ * {@link IConversationEdge#hasValidator()}</li>
+ * <li>the strongly connected component of every node</li>
+ * <li>the number of edges from every node to the nearest terminal node</li>
+ * </ul>
+ * The tables can be stored next to the graph with {@link #write} and loaded
+ * with {@link #read} instead of analyzing the graph again at startup.
+ *
+ * @author pdtyreus
+ */
+public class GraphAnalysis {
+
+    private static final int MAGIC = 0x434b4741;
+    private static final int VERSION = 1;
+
+    /**
+     * Returned by {@link #getDistanceToTerminal(int)} when no terminal node
+     * can be reached.
+     */
+    public static final int UNREACHABLE = -1;
+
+    private final int[] nodeIds;
+    private final BitSet reachable;
+    private final BitSet ambiguous;
+    private final int[] distanceToTerminal;
+    private final int[] component;
+    private final int componentCount;
+
+    private GraphAnalysis(int[] nodeIds, BitSet reachable, BitSet ambiguous, int[] distanceToTerminal, int[] component, int componentCount) {
+        this.nodeIds = nodeIds;
+        this.reachable = reachable;
+        this.ambiguous = ambiguous;
+        this.distanceToTerminal = distanceToTerminal;
+        this.component = component;
+        this.componentCount = componentCount;
+    }
+
+    /**
+     * Analyzes the graph.
+     *
+     * @param graph the graph
+     * @param entryNodeIds nodes where conversations start, usually the end
+     * nodes of the engine's fallback edges
+     * @return the analysis
+     */
+    public static GraphAnalysis analyze(CompiledConversationGraph graph, Iterable<Integer> entryNodeIds) {
+        int n = graph.getNodeCount();
+        int[] nodeIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            nodeIds[i] = graph.nodeId(i);
+        }
+
+        //forward breadth first search from the entry nodes
+        BitSet reachable = new BitSet(n);
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (Integer id : entryNodeIds) {
+            int index = graph.indexOf(id);
+            if (index >= 0 && !reachable.get(index)) {
+                reachable.set(index);
+                queue[tail++] = index;
+            }
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int target = graph.edgeTarget(e);
+                if (!reachable.get(target)) {
+                    reachable.set(target);
+                    queue[tail++] = target;
+                }
+            }
+        }
+
+        int[] component = new int[n];
+        int componentCount = findComponents(graph, component);
+        return new GraphAnalysis(nodeIds, reachable, findAmbiguous(graph), distancesToTerminal(graph), component, componentCount);
+    }
+
+    private static BitSet findAmbiguous(CompiledConversationGraph graph) {
+        BitSet ambiguous = new BitSet(graph.getNodeCount());
+        BitSet unconditional = new BitSet();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            unconditional.clear();
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int symbol = graph.edgeIntentSymbol(e);
+                if (unconditional.get(symbol)) {
+                    ambiguous.set(node);
+                    break;
+                }
+                if (!graph.edge(e).hasValidator()) {
+                    unconditional.set(symbol);
+                }
+            }
+        }
+        return ambiguous;
+    }
+
+    //multi source breadth first search from the terminal nodes over reversed edges
+    private static int[] distancesToTerminal(CompiledConversationGraph graph) {
+        int n = graph.getNodeCount();
+        int[] reverseStart = new int[n + 1];
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            reverseStart[graph.edgeTarget(e) + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            reverseStart[i + 1] += reverseStart[i];
+        }
+        int[] reverseSource = new int[graph.getEdgeCount()];
+        int[] fill = Arrays.copyOf(reverseStart, n);
+        for (int node = 0; node < n; node++) {
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                reverseSource[fill[graph.edgeTarget(e)]++] = node;
+            }
+        }
+
+        int[] distance = new int[n];
+        Arrays.fill(distance, UNREACHABLE);
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int node = 0; node < n; node++) {
+            if (graph.edgeStart(node) == graph.edgeEnd(node)) {
+                distance[node] = 0;
+                queue[tail++] = node;
+            }
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int r = reverseStart[node]; r < reverseStart[node + 1]; r++) {
+                int source = reverseSource[r];
+                if (distance[source] == UNREACHABLE) {
+                    distance[source] = distance[node] + 1;
+                    queue[tail++] = source;
+                }
+            }
+        }
+        return distance;
+    }
+
+    //iterative Tarjan, returns the number of components
+    private static int findComponents(CompiledConversationGraph graph, int[] component) {
+        int n = graph.getNodeCount();
+        int[] order = new int[n];
+        int[] low = new int[n];
+        Arrays.fill(order, -1);
+        BitSet onStack = new BitSet(n);
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+        int counter = 0;
+        int components = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (order[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = graph.edgeStart(root);
+            order[root] = low[root] = counter++;
+            stack[stackSize++] = root;
+            onStack.set(root);
+            while (depth >= 0) {
+                int node = callNode[depth];
+                if (callEdge[depth] < graph.edgeEnd(node)) {
+                    int target = graph.edgeTarget(callEdge[depth]++);
+                    if (order[target] < 0) {
+                        order[target] = low[target] = counter++;
+                        stack[stackSize++] = target;
+                        onStack.set(target);
+                        depth++;
+                        callNode[depth] = target;
+                        callEdge[depth] = graph.edgeStart(target);
+                    } else if (onStack.get(target)) {
+                        low[node] = Math.min(low[node], order[target]);
+                    }
+                    continue;
+                }
+                if (low[node] == order[node]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack.clear(member);
+                        component[member] = components;
+                    } while (member != node);
+                    components++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNode[depth];
+                    low[parent] = Math.min(low[parent], low[node]);
+                }
+            }
+        }
+        return components;
+    }
+
+    private int indexOf(int nodeId) {
+        int index = Arrays.binarySearch(nodeIds, nodeId);
+        if (index < 0) {
+            throw new IllegalArgumentException("No node " + nodeId);
+        }
+        return index;
+    }
+
+    private List<Integer> idsOf(BitSet indexes) {
+        List<Integer> ids = new ArrayList(indexes.cardinality());
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            ids.add(nodeIds[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * @return ids of the nodes that cannot be reached from the entry nodes
+     */
+    public List<Integer> getUnreachableNodeIds() {
+        BitSet unreachable = new BitSet(nodeIds.length);
+        unreachable.set(0, nodeIds.length);
+        unreachable.andNot(reachable);
+        return idsOf(unreachable);
+    }
+
+    /**
+     * @return ids of the nodes without outbound edges
+     */
+    public List<Integer> getTerminalNodeIds() {
+        BitSet terminal = new BitSet(nodeIds.length);
+        for (int i = 0; i < nodeIds.length; i++) {
+            if (distanceToTerminal[i] == 0) {
+                terminal.set(i);
+            }
+        }
+        return idsOf(terminal);
+    }
+
+    /**
+     * @return ids of the nodes from which no terminal node can be reached
+     */
+    public List<Integer> getDeadEndNodeIds() {
+        BitSet deadEnds = new BitSet(nodeIds.length);
+        for (int i = 0; i < nodeIds.length; i++) {
+            if (distanceToTerminal[i] == UNREACHABLE) {
+                deadEnds.set(i);
+            }
+        }
+        return idsOf(deadEnds);
+    }
+
+    /**
+     * @return ids of the nodes with an edge that is shadowed by an earlier
+     * edge with the same intent and no validator
+     */
+    public List<Integer> getAmbiguousNodeIds() {
+        return idsOf(ambiguous);
+    }
+
+    /**
+     * @param nodeId a node id
+     * @return true if the node can be reached from the entry nodes
+     */
+    public boolean isReachable(int nodeId) {
+        return reachable.get(indexOf(nodeId));
+    }
+
+    /**
+     * @param nodeId a node id
+     * @return the number of edges to the nearest terminal node, or
+     * {@link #UNREACHABLE}
+     */
+    public int getDistanceToTerminal(int nodeId) {
+        return distanceToTerminal[indexOf(nodeId)];
+    }
+
+    /**
+     * @param nodeId a node id
+     * @return the strongly connected component of the node, a number from 0
+     * to {@link #getComponentCount()} - 1; components are numbered in reverse
+     * topological order, so every edge leads to a component with the same or
+     * a lower number
+     */
+    public int getComponent(int nodeId) {
+        return component[indexOf(nodeId)];
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * Writes the tables.
+     *
+     * @param out the output
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(nodeIds.length);
+        out.writeInt(componentCount);
+        for (int i = 0; i < nodeIds.length; i++) {
+            out.writeInt(nodeIds[i]);
+            out.writeInt(distanceToTerminal[i]);
+            out.writeInt(component[i]);
+            out.writeByte((reachable.get(i) ? 1 : 0) | (ambiguous.get(i) ? 2 : 0));
+        }
+    }
+
+    /**
+     * Reads tables written by {@link #write}.
+     *
+     * @param in the input
+     * @return the analysis
+     * @throws IOException if reading fails or the input holds no analysis
+     */
+    public static GraphAnalysis read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a conversation graph analysis");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported graph analysis version " + version);
+        }
+        int n = in.readInt();
+        int componentCount = in.readInt();
+        int[] nodeIds = new int[n];
+        int[] distance = new int[n];
+        int[] component = new int[n];
+        BitSet reachable = new BitSet(n);
+        BitSet ambiguous = new BitSet(n);
+        for (int i = 0; i < n; i++) {
+            nodeIds[i] = in.readInt();
+            distance[i] = in.readInt();
+            component[i] = in.readInt();
+            int flags = in.readByte();
+            reachable.set(i, (flags & 1) != 0);
+            ambiguous.set(i, (flags & 2) != 0);
+        }
+        return new GraphAnalysis(nodeIds, reachable, ambiguous, distance, component, componentCount);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl;
+
+import com.conversationkit.model.ConversationNodeRepository;
+import com.conversationkit.model.IConversationNode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An implementation of {@link ConversationNodeRepository} keyed by primitive
+ * ints, so looking up a node never boxes its id.
+ * <p>
+ * While the ids are dense, as in most graph files where nodes are numbered
+ * 1, 2, 3..., the nodes are kept in a plain array indexed by
+ * offset from the smallest id. Once the ids become too sparse for that (the range
+ * of ids is more than about twice the number of nodes) the repository switches
+ * to an open addressing hash table with linear probing.
+ * <p>
+ * Like {@link MapBackedNodeRepository}, the repository is meant to be filled
+ * once and then read; adding nodes is not safe while other threads read.
+ *
+ * @author pdtyreus
+ * @param <N> type of IConversationNode
+ */
+public class IntMapNodeRepository<N extends IConversationNode> implements ConversationNodeRepository<N> {
+
+    private static final int DENSE_SLACK = 16;
+
+    //dense mode, slot i holds the node with id base + i
+    private Object[] dense = new Object[DENSE_SLACK];
+    private int base;
+    private int minId;
+    private int maxId;
+
+    //hashed mode, used once dense is null
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+
+    private int size;
+
+    @Override
+    public N getNodeById(int id) {
+        if (dense != null) {
+            long index = (long) id - base;
+            if (size == 0 || index < 0 || index >= dense.length) {
+                return null;
+            }
+            return (N) dense[(int) index];
+        }
+        int slot = hash(id) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == id) {
+                return (N) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public void addNodeToIndex(int id, N node) {
+        if (node == null) {
+            throw new NullPointerException("node");
+        }
+        if (dense != null) {
+            int lo = size == 0 ? id : Math.min(minId, id);
+            int hi = size == 0 ? id : Math.max(maxId, id);
+            long span = (long) hi - lo + 1;
+            if (span <= 2L * (size + 1) + DENSE_SLACK) {
+                putDense(id, node, lo, hi);
+                return;
+            }
+            toHashed();
+        }
+        putHashed(id, node);
+    }
+
+    /**
+     * @return the number of nodes in the repository
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a snapshot of all nodes in the repository
+     */
+    public Collection<N> getNodes() {
+        List<N> nodes = new ArrayList(size);
+        Object[] slots = dense != null ? dense : values;
+        for (Object node : slots) {
+            if (node != null) {
+                nodes.add((N) node);
+            }
+        }
+        return nodes;
+    }
+
+    private void putDense(int id, N node, int lo, int hi) {
+        if (size == 0) {
+            base = id;
+        } else if (lo < base || (long) hi - base >= dense.length) {
+            long span = (long) hi - lo + 1;
+            int length = (int) Math.max(dense.length * 2L, span + DENSE_SLACK);
+            //when growing downwards leave room below for more ids
+            long newBase = lo < base ? Math.max(Integer.MIN_VALUE, lo - (length - span) / 2) : base;
+            if ((long) hi - newBase >= length) {
+                length = (int) ((long) hi - newBase + 1);
+            }
+            Object[] grown = new Object[length];
+            System.arraycopy(dense, 0, grown, (int) (base - newBase), (int) Math.min(dense.length, length - (base - newBase)));
+            dense = grown;
+            base = (int) newBase;
+        }
+        minId = lo;
+        maxId = hi;
+        int index = id - base;
+        if (dense[index] == null) {
+            size++;
+        }
+        dense[index] = node;
+    }
+
+    private void toHashed() {
+        Object[] old = dense;
+        int oldBase = base;
+        dense = null;
+        allocateHashed(size);
+        size = 0;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] != null) {
+                putHashed(oldBase + i, (N) old[i]);
+            }
+        }
+    }
+
+    private void allocateHashed(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private void putHashed(int id, N node) {
+        if ((size + 1) * 2 > values.length) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            allocateHashed(size + 1);
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+        if (insert(id, node)) {
+            size++;
+        }
+    }
+
+    private boolean insert(int id, Object node) {
+        int slot = hash(id) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == id) {
+                values[slot] = node;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        values[slot] = node;
+        return true;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -65,6 +65,11 @@ public abstract class MapBackedConversationState <S extends MapBackedConversatio
         return (Integer) getConversationMap().get("misunderstoodCount");
     }
 
+    @Override
+    public String getLanguageCode() {
+        return (String) getConversationMap().get("languageCode");
+    }
+
     @Override
     public Map getStateAsMap() {
         return Collections.unmodifiableMap(source);
@@ -25,6 +25,7 @@ package com.conversationkit.impl;
 
 import com.conversationkit.model.IConversationNode;
 import com.conversationkit.model.ConversationNodeRepository;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -48,4 +49,12 @@ public class MapBackedNodeRepository<N extends IConversationNode> implements Con
         nodeIndex.put(id, node);
     }
 
+    /**
+     * @return all nodes in the repository, for example to build a
+     * {@link CompiledConversationGraph}
+     */
+    public Collection<N> getNodes() {
+        return nodeIndex.values();
+    }
+
 }
@@ -0,0 +1,317 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl;
+
+import com.conversationkit.builder.JsonEdgeBuilder;
+import com.conversationkit.builder.JsonNodeBuilder;
+import com.conversationkit.model.ConversationNodeRepository;
+import com.conversationkit.model.IConversationEdge;
+import com.conversationkit.model.IConversationNode;
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import com.eclipsesource.json.ParseException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link ConversationNodeRepository} served from a memory mapped binary
+ * graph written by
+ * {@link com.conversationkit.builder.BinaryGraphBuilder#compileJsonGraph}.
+ * <p>
+ * The file pages are shared by every JVM on the host that maps it. A node and
+ * its outbound edges are decoded from the buffer the first time the node is
+ * requested, using the same {@link JsonNodeBuilder} and {@link JsonEdgeBuilder}
+ * as {@link com.conversationkit.builder.JsonGraphBuilder}, and then cached.
+ * <p>
+ * Opening the repository checks the header and that the sections it
+ * describes fit in the buffer, so a truncated or corrupt header fails with an
+ * <code>IOException</code> right away while the cost of opening stays the same
+ * for any size of graph. Records are checked when their node is decoded, and
+ * {@link #verify()} checks the structure of every record up front for callers
+ * that want to, for example after copying a file. Metadata is only parsed
+ * when its node is decoded.
+ * <p>
+ * The file is laid out big endian as:
+ * <pre>
+ * header   MAGIC, VERSION, nodeCount, edgeCount, stringBytes
+ * nodes    nodeCount x (id, type, metadata, firstEdge), sorted by id
+ *          followed by a final firstEdge equal to edgeCount
+ * edges    edgeCount x (relation, label, metadata, target node index)
+ * strings  stringBytes of (length, UTF-8 bytes) entries
+ * </pre>
+ * All fields are ints. Strings are referenced by their offset in the string
+ * section, with {@link #NO_STRING} for a missing value. The mapping is released
+ * when the repository is garbage collected.
+ *
+ * @author pdtyreus
+ * @param <N> type of IConversationNode
+ * @param <E> type of IConversationEdge
+ */
+public class MappedNodeRepository<N extends IConversationNode<E>, E extends IConversationEdge> implements ConversationNodeRepository<N> {
+
+    public static final int MAGIC = 0x434b4742;
+    public static final int VERSION = 1;
+    public static final int HEADER_INTS = 5;
+    public static final int NODE_INTS = 4;
+    public static final int EDGE_INTS = 4;
+    public static final int NO_STRING = -1;
+
+    private final ByteBuffer buffer;
+    private final JsonNodeBuilder<N> nodeBuilder;
+    private final JsonEdgeBuilder<E> edgeBuilder;
+    private final int nodeCount;
+    private final int edgeCount;
+    private final int nodesOffset;
+    private final int edgesOffset;
+    private final int stringsOffset;
+    private final int stringBytes;
+    private final AtomicReferenceArray<N> nodes;
+
+    /**
+     * @param buffer a binary graph, read with absolute gets only
+     * @param nodeBuilder creates the nodes
+     * @param edgeBuilder creates the edges
+     * @throws IOException if the buffer does not hold a binary graph of this
+     * version or its sections do not fit in the buffer
+     */
+    public MappedNodeRepository(ByteBuffer buffer, JsonNodeBuilder<N> nodeBuilder, JsonEdgeBuilder<E> edgeBuilder) throws IOException {
+        this.buffer = buffer;
+        this.nodeBuilder = nodeBuilder;
+        this.edgeBuilder = edgeBuilder;
+        if (buffer.limit() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary conversation graph");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported binary graph version " + buffer.getInt(4));
+        }
+        this.nodeCount = buffer.getInt(8);
+        this.edgeCount = buffer.getInt(12);
+        this.stringBytes = buffer.getInt(16);
+        if (nodeCount < 0 || edgeCount < 0 || stringBytes < 0) {
+            throw new IOException("Corrupt binary conversation graph header");
+        }
+        //in longs so a corrupt count cannot overflow into a valid looking offset
+        long edges = HEADER_INTS * 4L + (nodeCount * (long) NODE_INTS + 1) * 4;
+        long strings = edges + edgeCount * (long) EDGE_INTS * 4;
+        if (strings + stringBytes > buffer.limit()) {
+            throw new IOException("Truncated binary conversation graph");
+        }
+        this.nodesOffset = HEADER_INTS * 4;
+        this.edgesOffset = (int) edges;
+        this.stringsOffset = (int) strings;
+        if (firstEdge(0) != 0 || firstEdge(nodeCount) != edgeCount) {
+            throw new IOException("Edge ranges do not cover the edge section");
+        }
+        this.nodes = new AtomicReferenceArray(nodeCount);
+    }
+
+    /**
+     * Checks the structure of every node and edge record: ids are sorted,
+     * edge ranges and targets are in bounds and strings lie inside the string
+     * section. Metadata is not parsed and nodes are not built.
+     *
+     * @throws IOException describing the first corrupt record
+     */
+    public void verify() throws IOException {
+        for (int index = 0; index < nodeCount; index++) {
+            int id = buffer.getInt(nodeField(index, 0));
+            if (index > 0 && buffer.getInt(nodeField(index - 1, 0)) >= id) {
+                throw new IOException("Node " + id + " is out of order");
+            }
+            string(buffer.getInt(nodeField(index, 1)));
+            string(buffer.getInt(nodeField(index, 2)));
+            checkEdgeRange(index);
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            int base = edgesOffset + e * EDGE_INTS * 4;
+            string(buffer.getInt(base));
+            string(buffer.getInt(base + 4));
+            string(buffer.getInt(base + 8));
+            targetIndex(e);
+        }
+    }
+
+    /**
+     * Maps a binary graph file read only.
+     *
+     * @param <N> type of IConversationNode
+     * @param <E> type of IConversationEdge
+     * @param path the file
+     * @param nodeBuilder creates the nodes
+     * @param edgeBuilder creates the edges
+     * @return the repository
+     * @throws IOException if the file cannot be mapped or is not a binary
+     * graph
+     */
+    public static <N extends IConversationNode<E>, E extends IConversationEdge> MappedNodeRepository<N, E> load(Path path, JsonNodeBuilder<N> nodeBuilder, JsonEdgeBuilder<E> edgeBuilder) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedNodeRepository(buffer, nodeBuilder, edgeBuilder);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException if a builder rejects the node or one of its
+     * edges
+     */
+    @Override
+    public N getNodeById(int id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        N node = nodes.get(index);
+        if (node == null) {
+            try {
+                node = decodeNode(index);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            if (!nodes.compareAndSet(index, null, node)) {
+                node = nodes.get(index);
+            }
+        }
+        return node;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    private int indexOf(int id) {
+        int lo = 0;
+        int hi = nodeCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = buffer.getInt(nodeField(mid, 0));
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private N decodeNode(int index) throws IOException {
+        int id = buffer.getInt(nodeField(index, 0));
+        String type = string(buffer.getInt(nodeField(index, 1)));
+        JsonObject metadata = json(buffer.getInt(nodeField(index, 2)));
+        N node = nodeBuilder.nodeFromJson(id, type, metadata == null ? new JsonObject() : metadata);
+        if (node == null) {
+            throw new IOException("Unhandled node " + id);
+        }
+        checkEdgeRange(index);
+        int end = firstEdge(index + 1);
+        for (int e = firstEdge(index); e < end; e++) {
+            int base = edgesOffset + e * EDGE_INTS * 4;
+            String relation = string(buffer.getInt(base));
+            String label = string(buffer.getInt(base + 4));
+            JsonObject edgeMetadata = json(buffer.getInt(base + 8));
+            int targetId = buffer.getInt(nodeField(targetIndex(e), 0));
+            E edge = edgeBuilder.edgeFromJson(relation, label, edgeMetadata, targetId);
+            if (edge == null) {
+                throw new IOException("Unhandled edge " + relation + " from node " + id);
+            }
+            node.addEdge(edge);
+        }
+        return node;
+    }
+
+    private void checkEdgeRange(int index) throws IOException {
+        int start = firstEdge(index);
+        int end = firstEdge(index + 1);
+        if (start < 0 || start > end || end > edgeCount) {
+            throw new IOException("Invalid edge range for node " + buffer.getInt(nodeField(index, 0)));
+        }
+    }
+
+    private int targetIndex(int edge) throws IOException {
+        int target = buffer.getInt(edgesOffset + edge * EDGE_INTS * 4 + 12);
+        if (target < 0 || target >= nodeCount) {
+            throw new IOException("Edge " + edge + " points to missing node index " + target);
+        }
+        return target;
+    }
+
+    private int nodeField(int index, int field) {
+        return nodesOffset + (index * NODE_INTS + field) * 4;
+    }
+
+    private int firstEdge(int index) {
+        //the sentinel after the last node is a lone firstEdge
+        return buffer.getInt(index == nodeCount ? nodeField(index, 0) : nodeField(index, 3));
+    }
+
+    private JsonObject json(int offset) throws IOException {
+        String text = string(offset);
+        if (text == null) {
+            return null;
+        }
+        try {
+            JsonValue value = Json.parse(text);
+            if (!value.isObject()) {
+                throw new IOException("Metadata is not a JSON object: " + text);
+            }
+            return value.asObject();
+        } catch (ParseException ex) {
+            throw new IOException("Invalid metadata: " + ex.getMessage(), ex);
+        }
+    }
+
+    private String string(int offset) throws IOException {
+        if (offset == NO_STRING) {
+            return null;
+        }
+        if (offset < 0 || offset > stringBytes - 4) {
+            throw new IOException("String offset " + offset + " is outside the string section");
+        }
+        int position = stringsOffset + offset;
+        int length = buffer.getInt(position);
+        if (length < 0 || length > stringBytes - offset - 4) {
+            throw new IOException("String at " + offset + " runs past the string section");
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl;
+
+import com.conversationkit.model.ConversationNodeRepository;
+import com.conversationkit.model.IConversationNode;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link ConversationNodeRepository} whose graph can be replaced while
+ * conversations are running.
+ * <p>
+ * Each published graph gets the next version number and becomes current
+ * atomically; looking up a node never blocks. A conversation that must not
+ * see the graph change under it opens a {@link Session}, which is itself a
+ * repository pinned to the version that was current when it was opened. Pass
+ * the session to the engine in place of the shared repository:
+ * <pre>
+ * VersionedNodeRepository&lt;DialogTreeNode&gt; graphs = new VersionedNodeRepository&lt;&gt;(initialGraph);
+ * ...
+ * VersionedNodeRepository&lt;DialogTreeNode&gt;.Session session = graphs.openSession();
+ * DirectedConversationEngine engine = new DirectedConversationEngine(detector, session, state);
+ * ...
+ * graphs.loadAsync(() -&gt; JsonGraphBuilder.readJsonGraph(reader), migration, executor);
+ * ...
+ * session.close();
+ * </pre>
+ * A new graph can come with a migration map from node ids of the previous
+ * version to node ids of the new one, used by {@link Session#upgrade} to move
+ * a conversation onto the current version. Ids missing from the map are kept
+ * as they are. A version is dropped, so its graph can be garbage collected, as
+ * soon as it is neither current nor pinned by an open session.
+ *
+ * @author pdtyreus
+ * @param <N> type of IConversationNode
+ */
+public class VersionedNodeRepository<N extends IConversationNode> implements ConversationNodeRepository<N> {
+
+    private static final Logger logger = Logger.getLogger(VersionedNodeRepository.class.getName());
+
+    private volatile GraphVersion<N> current;
+    //versions still pinned by sessions, and the current one
+    private final Map<Integer, GraphVersion<N>> live = new HashMap();
+    //migration maps from version - 1 to version, kept while older versions are live
+    private final TreeMap<Integer, Map<Integer, Integer>> migrations = new TreeMap();
+
+    /**
+     * @param initialGraph the graph published as version 1
+     */
+    public VersionedNodeRepository(ConversationNodeRepository<N> initialGraph) {
+        current = new GraphVersion(1, initialGraph);
+        live.put(1, current);
+    }
+
+    /**
+     * Looks the node up in the current version.
+     */
+    @Override
+    public N getNodeById(int id) {
+        return current.graph.getNodeById(id);
+    }
+
+    /**
+     * @return the number of the current version
+     */
+    public int getCurrentVersion() {
+        return current.number;
+    }
+
+    /**
+     * @return the number of versions still held in memory
+     */
+    public synchronized int getLiveVersionCount() {
+        return live.size();
+    }
+
+    /**
+     * Makes the graph the current version. Open sessions keep their version.
+     *
+     * @param graph the new graph
+     * @return the new version number
+     */
+    public int publish(ConversationNodeRepository<N> graph) {
+        return publish(graph, Collections.emptyMap());
+    }
+
+    /**
+     * Makes the graph the current version. Open sessions keep their version.
+     *
+     * @param graph the new graph
+     * @param migration node ids of the previous version mapped to the ids of
+     * the same nodes in the new graph, only for nodes whose id changed
+     * @return the new version number
+     */
+    public synchronized int publish(ConversationNodeRepository<N> graph, Map<Integer, Integer> migration) {
+        GraphVersion<N> next = new GraphVersion(current.number + 1, graph);
+        if (!migration.isEmpty()) {
+            migrations.put(next.number, new HashMap(migration));
+        }
+        live.put(next.number, next);
+        GraphVersion<N> previous = current;
+        current = next;
+        logger.log(Level.INFO, "Published graph version {0}", next.number);
+        collect(previous);
+        return next.number;
+    }
+
+    /**
+     * Loads a graph on the executor and publishes it once it has loaded, so
+     * the conversations never wait for the load.
+     *
+     * @param loader loads the new graph
+     * @param migration node id migration map, see {@link #publish(ConversationNodeRepository, Map)}
+     * @param executor runs the loader
+     * @return the new version number, or an exceptional future if loading
+     * failed, in which case the current version is unchanged
+     */
+    public CompletableFuture<Integer> loadAsync(Callable<? extends ConversationNodeRepository<N>> loader, Map<Integer, Integer> migration, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return loader.call();
+            } catch (Exception ex) {
+                logger.log(Level.WARNING, "Unable to load new graph version", ex);
+                throw new CompletionException(ex);
+            }
+        }, executor).thenApply(graph -> publish(graph, migration));
+    }
+
+    /**
+     * Pins a session to the current version.
+     *
+     * @return the session, which must be closed when the conversation ends
+     */
+    public synchronized Session openSession() {
+        GraphVersion<N> version = current;
+        version.sessions++;
+        return new Session(version);
+    }
+
+    private synchronized void release(GraphVersion<N> version) {
+        version.sessions--;
+        collect(version);
+    }
+
+    //drops the version if nothing uses it anymore
+    private void collect(GraphVersion<N> version) {
+        if (version == current || version.sessions > 0) {
+            return;
+        }
+        live.remove(version.number);
+        logger.log(Level.INFO, "Dropped graph version {0}", version.number);
+        int oldest = current.number;
+        for (Integer number : live.keySet()) {
+            oldest = Math.min(oldest, number);
+        }
+        //maps into versions at or below the oldest live one are never needed again
+        Iterator<Integer> it = migrations.headMap(oldest, true).keySet().iterator();
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private synchronized Integer migrate(int fromVersion, Integer nodeId) {
+        Integer id = nodeId;
+        for (Map<Integer, Integer> migration : migrations.subMap(fromVersion, false, current.number, true).values()) {
+            if (id != null && migration.containsKey(id)) {
+                id = migration.get(id);
+            }
+        }
+        return id;
+    }
+
+    private static class GraphVersion<N extends IConversationNode> {
+
+        private final int number;
+        private final ConversationNodeRepository<N> graph;
+        //guarded by the repository
+        private int sessions;
+
+        private GraphVersion(int number, ConversationNodeRepository<N> graph) {
+            this.number = number;
+            this.graph = graph;
+        }
+    }
+
+    /**
+     * A view of the repository pinned to one version.
+     */
+    public class Session implements ConversationNodeRepository<N>, AutoCloseable {
+
+        private volatile GraphVersion<N> version;
+        private boolean closed;
+
+        private Session(GraphVersion<N> version) {
+            this.version = version;
+        }
+
+        @Override
+        public N getNodeById(int id) {
+            return version.graph.getNodeById(id);
+        }
+
+        /**
+         * @return the version this session is pinned to
+         */
+        public int getVersion() {
+            return version.number;
+        }
+
+        /**
+         * Moves the session to the current version, for example between two
+         * conversations or when the conversation reaches a safe point.
+         *
+         * @param currentNodeId the node the conversation is at, may be null
+         * @return the id of that node in the current version, or null if it
+         * does not exist there
+         */
+        public Integer upgrade(Integer currentNodeId) {
+            GraphVersion<N> from;
+            GraphVersion<N> to;
+            Integer migrated;
+            synchronized (VersionedNodeRepository.this) {
+                if (closed) {
+                    throw new IllegalStateException("Session is closed");
+                }
+                from = version;
+                to = current;
+                if (from == to) {
+                    return currentNodeId;
+                }
+                migrated = currentNodeId == null ? null : migrate(from.number, currentNodeId);
+                to.sessions++;
+                version = to;
+                release(from);
+            }
+            logger.log(Level.FINE, "Moved session from graph version {0} to {1}", new Object[]{from.number, to.number});
+            if (migrated != null && to.graph.getNodeById(migrated) == null) {
+                return null;
+            }
+            return migrated;
+        }
+
+        /**
+         * Unpins the version.
+         */
+        @Override
+        public void close() {
+            synchronized (VersionedNodeRepository.this) {
+                if (!closed) {
+                    closed = true;
+                    release(version);
+                }
+            }
+        }
+    }
+}
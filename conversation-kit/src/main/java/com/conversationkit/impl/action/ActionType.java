@@ -33,6 +33,7 @@ public enum ActionType {
 
     MESSAGE_RECEIVED, SET_NODE_ID,
     INTENT_UNDERSTANDING_SUCCEEDED, INTENT_UNDERSTANDING_PARTIAL, INTENT_UNDERSTANDING_FAILED,
-    EDGE_MATCH_SUCCEEDED, EDGE_MATCH_FAILED
+    EDGE_MATCH_SUCCEEDED, EDGE_MATCH_FAILED,
+    SET_LANGUAGE_CODE
 
     }
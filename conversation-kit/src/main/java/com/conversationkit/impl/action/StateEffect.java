@@ -0,0 +1,193 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl.action;
+
+import com.conversationkit.model.IConversationIntent;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One built-in change to the state, compiled from edge metadata such as
+ * <pre>
+ * {"op": "set", "key": "numFingers", "slot": "fingers"}
+ * {"op": "set", "key": "level", "value": "beginner"}
+ * {"op": "increment", "key": "attempts", "by": 1}
+ * {"op": "append", "key": "answers", "slot": "answer"}
+ * {"op": "clear", "key": "answer"}
+ * </pre>
+ * The value comes from the named slot of the matched intent, or else from the
+ * literal <code>value</code>. The key defaults to the slot name. If the slot
+ * has no value, <code>set</code> and <code>append</code> leave the state
+ * unchanged.
+ * <p>
+ * Effects are applied by a {@link StateEffectReducer}.
+ *
+ * @author pdtyreus
+ */
+public final class StateEffect {
+
+    public enum Operation {
+        SET, INCREMENT, APPEND, CLEAR
+    }
+
+    private final Operation operation;
+    private final String key;
+    private final String slot;
+    private final Object value;
+
+    public StateEffect(Operation operation, String key, String slot, Object value) {
+        if (key == null) {
+            throw new IllegalArgumentException("A state effect needs a key");
+        }
+        this.operation = operation;
+        this.key = key;
+        this.slot = slot;
+        this.value = value;
+    }
+
+    /**
+     * @param effect the effect metadata
+     * @return the compiled effect
+     * @throws IllegalArgumentException if the effect is not valid
+     */
+    public static StateEffect fromJson(JsonObject effect) {
+        Operation operation;
+        try {
+            operation = Operation.valueOf(effect.getString("op", "").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown effect op in " + effect);
+        }
+        String slot = effect.getString("slot", null);
+        String key = effect.getString("key", slot);
+        JsonValue value = effect.get(operation == Operation.INCREMENT ? "by" : "value");
+        Object literal = value == null ? null : toJava(value);
+        if (operation == Operation.INCREMENT) {
+            if (literal == null) {
+                literal = 1;
+            } else if (!(literal instanceof Number)) {
+                throw new IllegalArgumentException("Increment must be a number in " + effect);
+            }
+        } else if ((operation == Operation.SET || operation == Operation.APPEND) && slot == null && value == null) {
+            throw new IllegalArgumentException("Effect needs a slot or a value in " + effect);
+        }
+        return new StateEffect(operation, key, slot, literal);
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the intent slot the value is read from, or null
+     */
+    public String getSlot() {
+        return slot;
+    }
+
+    /**
+     * @param intent the matched intent
+     * @return the value the effect will apply
+     */
+    Object resolve(IConversationIntent intent) {
+        if (slot != null && operation != Operation.INCREMENT && operation != Operation.CLEAR) {
+            Object slotValue = intent == null || intent.getSlots() == null ? null : intent.getSlots().get(slot);
+            if (slotValue != null) {
+                return slotValue;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Applies the effect to a state map that the caller owns.
+     *
+     * @param state the state to change
+     * @param resolved the value returned by {@link #resolve}
+     */
+    void applyTo(Map<String, Object> state, Object resolved) {
+        switch (operation) {
+            case SET:
+                if (resolved != null) {
+                    state.put(key, resolved);
+                }
+                break;
+            case INCREMENT:
+                Object current = state.get(key);
+                Number by = (Number) resolved;
+                if (current == null || current instanceof Integer || current instanceof Long) {
+                    long base = current == null ? 0 : ((Number) current).longValue();
+                    if (by instanceof Integer || by instanceof Long) {
+                        long sum = base + by.longValue();
+                        state.put(key, sum == (int) sum ? (Object) (int) sum : (Object) sum);
+                        break;
+                    }
+                }
+                double base = current instanceof Number ? ((Number) current).doubleValue() : 0;
+                state.put(key, base + by.doubleValue());
+                break;
+            case APPEND:
+                if (resolved != null) {
+                    Object existing = state.get(key);
+                    List<Object> list = existing instanceof List ? new ArrayList((List) existing) : new ArrayList();
+                    list.add(resolved);
+                    state.put(key, list);
+                }
+                break;
+            default:
+                state.remove(key);
+                break;
+        }
+    }
+
+    private static Object toJava(JsonValue value) {
+        if (value.isString()) {
+            return value.asString();
+        }
+        if (value.isBoolean()) {
+            return value.asBoolean();
+        }
+        if (value.isNumber()) {
+            double number = value.asDouble();
+            return number == Math.rint(number) && Math.abs(number) <= Integer.MAX_VALUE ? (Object) (int) number : (Object) number;
+        }
+        if (value.isNull()) {
+            return null;
+        }
+        throw new IllegalArgumentException("Effect values must be strings, numbers or booleans: " + value);
+    }
+
+    @Override
+    public String toString() {
+        return operation.name().toLowerCase(Locale.ROOT) + " " + key + (slot != null ? " from slot " + slot : "") + (value != null ? " " + value : "");
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl.action;
+
+import com.conversationkit.redux.Action;
+import com.conversationkit.redux.Reducer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies {@link StateEffectsAction}s to the slice of state it is registered
+ * for, copying the state once per action however many effects it carries.
+ * Other actions are passed to the application reducer, if there is one.
+ * <pre>
+ * reducers.put("dialog", new StateEffectReducer(dialogReducer));
+ * </pre>
+ * Register it for one key only, since every reducer sees every action.
+ *
+ * @author pdtyreus
+ */
+public class StateEffectReducer implements Reducer {
+
+    private final Reducer next;
+
+    public StateEffectReducer() {
+        this(null);
+    }
+
+    /**
+     * @param next reducer for all other actions, may be null
+     */
+    public StateEffectReducer(Reducer next) {
+        this.next = next;
+    }
+
+    @Override
+    public Map reduce(Action action, Map currentState) {
+        if (action instanceof StateEffectsAction) {
+            StateEffectsAction effects = (StateEffectsAction) action;
+            Map<String, Object> nextState = new HashMap(currentState);
+            for (int i = 0; i < effects.size(); i++) {
+                effects.effect(i).applyTo(nextState, effects.value(i));
+            }
+            return nextState;
+        }
+        return next != null ? next.reduce(action, currentState) : currentState;
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl.action;
+
+import com.conversationkit.impl.PayloadAction;
+import com.conversationkit.model.IConversationIntent;
+import com.conversationkit.model.IConversationState;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+/**
+ * The side effects of an edge, compiled once from its <code>effect</code>
+ * metadata. All {@link StateEffect}s of the edge are returned as one
+ * {@link StateEffectsAction}, so following the edge dispatches a single action
+ * that a {@link StateEffectReducer} applies in one pass.
+ * <p>
+ * For graphs written for an application reducer, an effect with an
+ * <code>actionType</code> and no <code>op</code>, such as
+ * <code>{"slot": "fingers", "actionType": "SET_FINGERS"}</code>, still
+ * dispatches a {@link PayloadAction} of that type carrying the slot value.
+ * Use {@link #sideEffectsFromJson} to get the functions to pass to an edge.
+ *
+ * @author pdtyreus
+ */
+public final class StateEffects implements BiFunction<IConversationIntent, IConversationState, Object> {
+
+    private final StateEffect[] effects;
+
+    public StateEffects(List<StateEffect> effects) {
+        this.effects = effects.toArray(new StateEffect[effects.size()]);
+    }
+
+    @Override
+    public Object apply(IConversationIntent intent, IConversationState state) {
+        Object[] values = new Object[effects.length];
+        for (int i = 0; i < effects.length; i++) {
+            values[i] = effects[i].resolve(intent);
+        }
+        return new StateEffectsAction(effects, values);
+    }
+
+    /**
+     * @return the compiled effects
+     */
+    public List<StateEffect> getEffects() {
+        return Collections.unmodifiableList(Arrays.asList(effects));
+    }
+
+    /**
+     * Compiles the <code>effect</code> entry of edge metadata, which is one
+     * effect object or an array of them.
+     *
+     * @param metadata the edge metadata, may be null
+     * @return the side effect functions, empty if there are no effects
+     * @throws IllegalArgumentException if an effect is not valid
+     */
+    public static BiFunction<IConversationIntent, IConversationState, Object>[] sideEffectsFromJson(JsonObject metadata) {
+        List<BiFunction<IConversationIntent, IConversationState, Object>> functions = new ArrayList();
+        JsonValue value = metadata == null ? null : metadata.get("effect");
+        if (value != null) {
+            List<JsonValue> entries = new ArrayList();
+            if (value.isArray()) {
+                for (JsonValue entry : value.asArray()) {
+                    entries.add(entry);
+                }
+            } else {
+                entries.add(value);
+            }
+            List<StateEffect> stateEffects = new ArrayList();
+            for (JsonValue entry : entries) {
+                if (!entry.isObject()) {
+                    throw new IllegalArgumentException("Effects must be objects: " + entry);
+                }
+                JsonObject effect = entry.asObject();
+                if (effect.get("op") == null && effect.get("actionType") != null) {
+                    functions.add(actionEffect(effect.getString("actionType", ""), effect.getString("slot", "")));
+                } else {
+                    stateEffects.add(StateEffect.fromJson(effect));
+                }
+            }
+            if (!stateEffects.isEmpty()) {
+                functions.add(0, new StateEffects(stateEffects));
+            }
+        }
+        return functions.toArray(new BiFunction[functions.size()]);
+    }
+
+    private static BiFunction<IConversationIntent, IConversationState, Object> actionEffect(String actionType, String slot) {
+        return (intent, state) -> {
+            return PayloadAction.build(actionType, Optional.ofNullable(intent.getSlots().get(slot)));
+        };
+    }
+
+}
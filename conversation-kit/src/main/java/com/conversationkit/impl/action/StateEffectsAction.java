@@ -0,0 +1,72 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl.action;
+
+import com.conversationkit.redux.Action;
+
+/**
+ * Carries the {@link StateEffect}s of one edge together with the values they
+ * resolved from the matched intent.
+ *
+ * @author pdtyreus
+ */
+public class StateEffectsAction implements Action {
+
+    public static final String TYPE = "STATE_EFFECTS";
+
+    private final StateEffect[] effects;
+    private final Object[] values;
+
+    StateEffectsAction(StateEffect[] effects, Object[] values) {
+        this.effects = effects;
+        this.values = values;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    int size() {
+        return effects.length;
+    }
+
+    StateEffect effect(int index) {
+        return effects[index];
+    }
+
+    Object value(int index) {
+        return values[index];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("StateEffectsAction {");
+        for (int i = 0; i < effects.length; i++) {
+            sb.append(i == 0 ? "" : ", ").append(effects[i].getOperation()).append(' ').append(effects[i].getKey()).append('=').append(values[i]);
+        }
+        return sb.append('}').toString();
+    }
+
+}
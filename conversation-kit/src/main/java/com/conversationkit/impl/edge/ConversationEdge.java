@@ -26,8 +26,10 @@ package com.conversationkit.impl.edge;
 import com.conversationkit.model.IConversationEdge;
 import com.conversationkit.model.IConversationIntent;
 import com.conversationkit.model.IConversationState;
+import com.conversationkit.nlp.IntentSymbolTable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.BiFunction;
 
@@ -40,37 +42,90 @@ import java.util.function.BiFunction;
  */
 public class ConversationEdge<I extends IConversationIntent, S extends IConversationState> implements IConversationEdge<I,S> {
 
+    /**
+     * A validate function that accepts every intent and state.
+     */
+    protected static final BiFunction ALWAYS_VALID = (intent, state) -> {
+        return true;
+    };
+
     private final Integer endNodeId;
     private final String id;
+    private final int intentSymbol;
     private final BiFunction<I, S, Boolean> validateFunction;
     private final List<BiFunction<I, S, Object>> sideEffects;
+    private final List<String> validatorInputs;
+    private final BiFunction[] validatorReaders;
 
     public ConversationEdge(Integer endNodeId, String intentId) {
         this.endNodeId = endNodeId;
-        this.id = intentId;
-        this.validateFunction = (intent, state) -> {
-            return true;
-        };
+        this.intentSymbol = internIntent(endNodeId, intentId);
+        this.id = IntentSymbolTable.getDefault().nameOf(intentSymbol);
+        this.validateFunction = ALWAYS_VALID;
         this.sideEffects = new ArrayList();
+        this.validatorInputs = null;
+        this.validatorReaders = null;
     }
 
     public ConversationEdge(Integer endNodeId, String intentId, BiFunction<I, S, Boolean> validateFunction, BiFunction<I, S, Object>... sideEffects) {
+        this(endNodeId, intentId, validateFunction, null, sideEffects);
+    }
+
+    /**
+     * Creates an edge whose validate function reads only the given inputs, so
+     * its result may be cached on their values.
+     *
+     * @param endNodeId next node id in the conversation
+     * @param intentId intent id
+     * @param validateFunction validate function
+     * @param validatorInputs everything the validate function reads, as
+     * {@link EdgeCondition} operands such as <code>slot.answer</code>, or null
+     * if it is not known
+     * @param sideEffects side effects of following the edge
+     * @throws IllegalArgumentException if the intent id is null or an input
+     * is not a valid operand
+     * @see IConversationEdge#getValidatorInputs()
+     */
+    public ConversationEdge(Integer endNodeId, String intentId, BiFunction<I, S, Boolean> validateFunction, List<String> validatorInputs, BiFunction<I, S, Object>... sideEffects) {
         this.endNodeId = endNodeId;
-        this.id = intentId;
+        this.intentSymbol = internIntent(endNodeId, intentId);
+        this.id = IntentSymbolTable.getDefault().nameOf(intentSymbol);
         this.validateFunction = validateFunction;
         this.sideEffects = new ArrayList();
         for (BiFunction<I, S, Object> effect : sideEffects) {
             this.sideEffects.add(effect);
         }
+        if (validatorInputs == null && validateFunction instanceof EdgeCondition) {
+            EdgeCondition condition = (EdgeCondition) validateFunction;
+            this.validatorInputs = condition.getInputs();
+            this.validatorReaders = condition.getInputReaders().toArray(new BiFunction[0]);
+        } else if (validatorInputs != null) {
+            this.validatorInputs = Collections.unmodifiableList(new ArrayList(validatorInputs));
+            this.validatorReaders = new BiFunction[validatorInputs.size()];
+            for (int i = 0; i < validatorReaders.length; i++) {
+                validatorReaders[i] = EdgeCondition.input(validatorInputs.get(i));
+            }
+        } else {
+            this.validatorInputs = null;
+            this.validatorReaders = null;
+        }
     }
     
     public ConversationEdge(Integer endNodeId, String intentId, BiFunction<I, S, Object> sideEffect) {
         this.endNodeId = endNodeId;
-        this.id = intentId;
-        this.validateFunction = (intent, state) -> {
-            return true;
-        };
+        this.intentSymbol = internIntent(endNodeId, intentId);
+        this.id = IntentSymbolTable.getDefault().nameOf(intentSymbol);
+        this.validateFunction = ALWAYS_VALID;
         this.sideEffects = Arrays.asList(sideEffect);
+        this.validatorInputs = null;
+        this.validatorReaders = null;
+    }
+
+    private static int internIntent(Integer endNodeId, String intentId) {
+        if (intentId == null) {
+            throw new IllegalArgumentException("Edge to node " + endNodeId + " has no intent id");
+        }
+        return IntentSymbolTable.getDefault().intern(intentId);
     }
 
     @Override
@@ -83,6 +138,11 @@ public class ConversationEdge<I extends IConversationIntent, S extends IConversa
         return id;
     }
 
+    @Override
+    public int getIntentSymbol() {
+        return intentSymbol;
+    }
+
     @Override
     public String toString() {
         return "ConversationEdge {" + getIntentId() + '}';
@@ -93,6 +153,44 @@ public class ConversationEdge<I extends IConversationIntent, S extends IConversa
         return validateFunction.apply(intent, state);
     }
 
+    @Override
+    public boolean hasValidator() {
+        return validateFunction != ALWAYS_VALID && validateFunction != EdgeCondition.ALWAYS;
+    }
+
+    @Override
+    public List<String> getValidatorInputs() {
+        return validatorInputs;
+    }
+
+    /**
+     * Reads the current values of the {@link #getValidatorInputs()} using
+     * readers compiled when the edge was created.
+     *
+     * @param intent the candidate intent
+     * @param state the conversation state
+     * @return one value per validator input, or null if the inputs are not
+     * declared
+     */
+    public Object[] readValidatorInputs(I intent, S state) {
+        if (validatorReaders == null) {
+            return null;
+        }
+        Object[] values = new Object[validatorReaders.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = validatorReaders[i].apply(intent, state);
+        }
+        return values;
+    }
+
+    /**
+     * @return the validate function if it is a compiled {@link EdgeCondition}
+     * that can be inspected, otherwise null
+     */
+    public EdgeCondition getCondition() {
+        return validateFunction instanceof EdgeCondition ? (EdgeCondition) validateFunction : null;
+    }
+
     @Override
     public List<Object> getSideEffects(I intent, S state) {
         List<Object> effects = new ArrayList();
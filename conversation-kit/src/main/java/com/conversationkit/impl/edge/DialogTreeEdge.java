@@ -26,6 +26,10 @@ package com.conversationkit.impl.edge;
 import com.conversationkit.impl.node.DialogTreeNode;
 import com.conversationkit.model.IConversationIntent;
 import com.conversationkit.model.IConversationState;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.function.BiFunction;
 
 /**
@@ -41,12 +45,18 @@ import java.util.function.BiFunction;
  * the supplied suggestions from the {@link DialogTreeNode}, this edge type does
  * a string match between the answer stored in the edge and the response
  * provided by the user.
+ * <p>
+ * The prompt may have translations, keyed by language codes such as
+ * <code>fr</code> or <code>fr-CA</code>. {@link #getPrompt(java.lang.String)}
+ * picks the closest one in the same way as
+ * <code>LanguageRoutingIntentDetector</code> picks a detector.
  *
  * @author pdtyreus
  */
 public class DialogTreeEdge extends ConversationEdge {
 
     private final String prompt;
+    private final Map<String, String> localizedPrompts;
 
     /**
      * Only an exact match for the answer stored in this node will cause the
@@ -59,13 +69,31 @@ public class DialogTreeEdge extends ConversationEdge {
     public DialogTreeEdge(Integer endNodeId, String intentId, String prompt) {
         super(endNodeId, intentId);
         this.prompt = prompt;
+        this.localizedPrompts = Collections.emptyMap();
     }
 
     public DialogTreeEdge(Integer endNodeId, String intentId, String prompt, BiFunction<IConversationIntent, IConversationState, Object>... sideEffects) {
-        super(endNodeId, intentId, (intent, state) -> {
-            return true;
-        }, sideEffects);
+        super(endNodeId, intentId, ALWAYS_VALID, sideEffects);
         this.prompt = prompt;
+        this.localizedPrompts = Collections.emptyMap();
+    }
+
+    /**
+     * @param endNodeId next node id in the conversation
+     * @param intentId intent id
+     * @param prompt string value to match, used for languages without a
+     * translation
+     * @param localizedPrompts translations of the prompt by language code
+     * @param sideEffects side effects of following the edge
+     */
+    public DialogTreeEdge(Integer endNodeId, String intentId, String prompt, Map<String, String> localizedPrompts, BiFunction<IConversationIntent, IConversationState, Object>... sideEffects) {
+        super(endNodeId, intentId, ALWAYS_VALID, sideEffects);
+        this.prompt = prompt;
+        Map<String, String> prompts = new HashMap();
+        for (Map.Entry<String, String> entry : localizedPrompts.entrySet()) {
+            prompts.put(canonical(entry.getKey()), entry.getValue());
+        }
+        this.localizedPrompts = Collections.unmodifiableMap(prompts);
     }
 
     @Override
@@ -76,4 +104,32 @@ public class DialogTreeEdge extends ConversationEdge {
     public String getPrompt() {
         return prompt;
     }
+
+    /**
+     * @param languageCode a language code, may be null
+     * @return the translation for the language, or for the language without
+     * its region, or else the untranslated prompt
+     */
+    public String getPrompt(String languageCode) {
+        if (languageCode == null || localizedPrompts.isEmpty()) {
+            return prompt;
+        }
+        String code = canonical(languageCode);
+        String localized = localizedPrompts.get(code);
+        if (localized == null && code.indexOf('-') > 0) {
+            localized = localizedPrompts.get(code.substring(0, code.indexOf('-')));
+        }
+        return localized != null ? localized : prompt;
+    }
+
+    /**
+     * @return true if the prompt has at least one translation
+     */
+    public boolean isLocalized() {
+        return !localizedPrompts.isEmpty();
+    }
+
+    private static String canonical(String languageCode) {
+        return languageCode.replace('_', '-').toLowerCase(Locale.ROOT);
+    }
 }
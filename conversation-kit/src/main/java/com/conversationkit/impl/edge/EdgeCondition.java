@@ -0,0 +1,786 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl.edge;
+
+import com.conversationkit.model.IConversationIntent;
+import com.conversationkit.model.IConversationState;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * An edge validator written as an expression instead of Java code, so it can
+ * be stored in the graph file and inspected after it is compiled.
+ * <pre>
+ * slot.age &gt;= 18 &amp;&amp; state.dialog.verified == true
+ * slot.answer in ["six", "6"] || intent.confidence &lt; 0.3
+ * </pre>
+ * Operands are slots of the detected intent (<code>slot.name</code>),
+ * values in the state map (<code>state.key.key</code>, following nested
+ * maps); slot and state names may contain dashes, as in
+ * <code>slot.first-name</code>, <code>intent.id</code> and <code>intent.confidence</code>, and
+ * literal numbers, quoted strings, <code>true</code>, <code>false</code> and
+ * <code>null</code>. Comparisons are <code>== != &lt; &lt;= &gt; &gt;=</code>
+ * and <code>in [list]</code>; they combine with <code>&amp;&amp;</code>,
+ * <code>||</code>, <code>!</code> and parentheses. An operand on its own is
+ * true unless it is missing, <code>false</code> or an empty string.
+ * <p>
+ * Slot values usually arrive as strings, so a number compared with a string
+ * is compared with the number the string holds. An ordering comparison with
+ * anything that is not a number is false.
+ * <p>
+ * Conditions are immutable and can be passed to {@link ConversationEdge} as
+ * its validate function.
+ *
+ * @author pdtyreus
+ */
+public abstract class EdgeCondition implements BiFunction<IConversationIntent, IConversationState, Boolean> {
+
+    /**
+     * A condition that accepts every intent and state.
+     */
+    public static final EdgeCondition ALWAYS = new EdgeCondition() {
+        @Override
+        public boolean test(IConversationIntent intent, IConversationState state) {
+            return true;
+        }
+
+        @Override
+        void addInputs(Map<String, Operand> inputs) {
+        }
+
+        @Override
+        public String toString() {
+            return "true";
+        }
+    };
+
+    EdgeCondition() {
+    }
+
+    /**
+     * @param intent the detected intent
+     * @param state the conversation state
+     * @return true if the edge may be followed
+     */
+    public abstract boolean test(IConversationIntent intent, IConversationState state);
+
+    @Override
+    public Boolean apply(IConversationIntent intent, IConversationState state) {
+        return test(intent, state);
+    }
+
+    /**
+     * Lists the intent slots the condition reads, for example to index edges
+     * on the slots they test.
+     *
+     * @return the slot names in the order they appear
+     */
+    public Set<String> getSlots() {
+        Set<String> slots = new LinkedHashSet();
+        for (String input : getInputs()) {
+            if (input.startsWith("slot.")) {
+                slots.add(input.substring(5));
+            }
+        }
+        return Collections.unmodifiableSet(slots);
+    }
+
+    /**
+     * Lists everything the condition reads, written as operands such as
+     * <code>slot.age</code> or <code>state.dialog.verified</code>. The result
+     * of the condition depends on nothing else, so it can be cached on the
+     * values of these inputs.
+     *
+     * @return the inputs in the order they appear
+     * @see #input(java.lang.String)
+     */
+    public List<String> getInputs() {
+        Map<String, Operand> inputs = new LinkedHashMap();
+        addInputs(inputs);
+        return Collections.unmodifiableList(new ArrayList(inputs.keySet()));
+    }
+
+    /**
+     * Returns functions that read the inputs of the condition, in the same
+     * order as {@link #getInputs()}, without parsing them again.
+     *
+     * @return one reader per input
+     */
+    public List<BiFunction<IConversationIntent, IConversationState, Object>> getInputReaders() {
+        Map<String, Operand> inputs = new LinkedHashMap();
+        addInputs(inputs);
+        List<BiFunction<IConversationIntent, IConversationState, Object>> readers = new ArrayList(inputs.size());
+        for (Operand operand : inputs.values()) {
+            readers.add(operand::get);
+        }
+        return Collections.unmodifiableList(readers);
+    }
+
+    abstract void addInputs(Map<String, Operand> inputs);
+
+    /**
+     * Compiles a single operand such as <code>slot.age</code>,
+     * <code>state.dialog.verified</code> or <code>intent.confidence</code>
+     * into a function that reads its value.
+     *
+     * @param operand the operand
+     * @return a function returning the value of the operand
+     * @throws IllegalArgumentException if the text is not an intent, slot or
+     * state operand
+     */
+    public static BiFunction<IConversationIntent, IConversationState, Object> input(String operand) {
+        Parser parser = new Parser(operand);
+        Operand compiled = parser.operand();
+        parser.end();
+        if (compiled instanceof Literal) {
+            throw new IllegalArgumentException("Not an input: " + operand);
+        }
+        return compiled::get;
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression the expression
+     * @return the compiled condition
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static EdgeCondition parse(String expression) {
+        return new Parser(expression).parse();
+    }
+
+    /**
+     * Compiles the <code>validator</code> value of edge metadata. The value is
+     * either an expression string, an object with an <code>expression</code>,
+     * <code>{"type": "any"}</code>, or
+     * <code>{"type": "string", "slot": "answer", "matches": ["six", "6"]}</code>
+     * which is the same as <code>slot.answer in ["six", "6"]</code>.
+     *
+     * @param validator the validator value
+     * @return the compiled condition
+     * @throws IllegalArgumentException if the validator is not valid
+     */
+    public static EdgeCondition fromJson(JsonValue validator) {
+        if (validator.isString()) {
+            return parse(validator.asString());
+        }
+        if (!validator.isObject()) {
+            throw new IllegalArgumentException("Validator must be a string or an object: " + validator);
+        }
+        JsonObject object = validator.asObject();
+        if (object.get("expression") != null) {
+            return parse(stringMember(object, "expression", null));
+        }
+        String type = stringMember(object, "type", "any");
+        switch (type) {
+            case "any":
+                return ALWAYS;
+            case "string":
+                JsonValue matches = object.get("matches");
+                if (matches == null || !matches.isArray()) {
+                    throw new IllegalArgumentException("String validator needs a \"matches\" array: " + validator);
+                }
+                List<Object> values = new ArrayList();
+                for (JsonValue match : matches.asArray()) {
+                    if (!match.isString()) {
+                        throw new IllegalArgumentException("String validator matches must be strings: " + validator);
+                    }
+                    values.add(match.asString());
+                }
+                return new In(new SlotOperand(checkName(stringMember(object, "slot", ""))), values);
+            default:
+                throw new IllegalArgumentException("Unknown validator type " + type + ": " + validator);
+        }
+    }
+
+    /**
+     * Reads a string member of a validator object, rejecting other JSON types
+     * instead of letting minimal-json throw UnsupportedOperationException.
+     */
+    private static String stringMember(JsonObject object, String name, String defaultValue) {
+        JsonValue value = object.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!value.isString()) {
+            throw new IllegalArgumentException("Validator \"" + name + "\" must be a string: " + object);
+        }
+        return value.asString();
+    }
+
+    /**
+     * Slot and state names start like a Java identifier and may contain
+     * dashes after that.
+     */
+    private static String checkName(String name) {
+        boolean valid = !name.isEmpty() && Character.isJavaIdentifierStart(name.charAt(0));
+        for (int i = 1; valid && i < name.length(); i++) {
+            valid = isNamePart(name.charAt(i));
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("Invalid slot name \"" + name + "\"");
+        }
+        return name;
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isJavaIdentifierPart(c) || c == '-';
+    }
+
+    private interface Operand {
+
+        Object get(IConversationIntent intent, IConversationState state);
+    }
+
+    private static final class Literal implements Operand {
+
+        private final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object get(IConversationIntent intent, IConversationState state) {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value instanceof String ? '"' + ((String) value).replace("\\", "\\\\").replace("\"", "\\\"") + '"' : String.valueOf(value);
+        }
+    }
+
+    private static final class SlotOperand implements Operand {
+
+        private final String slot;
+
+        SlotOperand(String slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public Object get(IConversationIntent intent, IConversationState state) {
+            Map<String, Object> slots = intent == null ? null : intent.getSlots();
+            return slots == null ? null : slots.get(slot);
+        }
+
+        @Override
+        public String toString() {
+            return "slot." + slot;
+        }
+    }
+
+    private static final class StateOperand implements Operand {
+
+        private final String[] path;
+
+        StateOperand(String[] path) {
+            this.path = path;
+        }
+
+        @Override
+        public Object get(IConversationIntent intent, IConversationState state) {
+            Object value = state == null ? null : state.getStateAsMap();
+            for (String key : path) {
+                if (!(value instanceof Map)) {
+                    return null;
+                }
+                value = ((Map) value).get(key);
+            }
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "state." + String.join(".", path);
+        }
+    }
+
+    private static final class IntentOperand implements Operand {
+
+        private final boolean confidence;
+
+        IntentOperand(boolean confidence) {
+            this.confidence = confidence;
+        }
+
+        @Override
+        public Object get(IConversationIntent intent, IConversationState state) {
+            if (intent == null) {
+                return null;
+            }
+            return confidence ? (Object) intent.getConfidence() : intent.getIntentId();
+        }
+
+        @Override
+        public String toString() {
+            return confidence ? "intent.confidence" : "intent.id";
+        }
+    }
+
+    private static void addInput(Operand operand, Map<String, Operand> inputs) {
+        if (!(operand instanceof Literal)) {
+            inputs.putIfAbsent(operand.toString(), operand);
+        }
+    }
+
+    private static Double toNumber(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble(((String) value).trim());
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean valueEquals(Object left, Object right) {
+        if (left == null || right == null) {
+            return left == right;
+        }
+        if (left instanceof Number || right instanceof Number) {
+            Double x = toNumber(left);
+            Double y = toNumber(right);
+            return x != null && y != null && x.doubleValue() == y.doubleValue();
+        }
+        if (left instanceof Boolean || right instanceof Boolean) {
+            return left.toString().equalsIgnoreCase(right.toString());
+        }
+        return left.toString().equals(right.toString());
+    }
+
+    private static final class Truthy extends EdgeCondition {
+
+        private final Operand operand;
+
+        Truthy(Operand operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean test(IConversationIntent intent, IConversationState state) {
+            Object value = operand.get(intent, state);
+            return value != null && !Boolean.FALSE.equals(value) && !"".equals(value);
+        }
+
+        @Override
+        void addInputs(Map<String, Operand> inputs) {
+            addInput(operand, inputs);
+        }
+
+        @Override
+        public String toString() {
+            return operand.toString();
+        }
+    }
+
+    private static final class Compare extends EdgeCondition {
+
+        private final Operand left;
+        private final String operator;
+        private final Operand right;
+
+        Compare(Operand left, String operator, Operand right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(IConversationIntent intent, IConversationState state) {
+            Object l = left.get(intent, state);
+            Object r = right.get(intent, state);
+            switch (operator) {
+                case "==":
+                    return valueEquals(l, r);
+                case "!=":
+                    return !valueEquals(l, r);
+                default:
+                    Double x = toNumber(l);
+                    Double y = toNumber(r);
+                    if (x == null || y == null) {
+                        return false;
+                    }
+                    int c = Double.compare(x, y);
+                    switch (operator) {
+                        case "<":
+                            return c < 0;
+                        case "<=":
+                            return c <= 0;
+                        case ">":
+                            return c > 0;
+                        default:
+                            return c >= 0;
+                    }
+            }
+        }
+
+        @Override
+        void addInputs(Map<String, Operand> inputs) {
+            addInput(left, inputs);
+            addInput(right, inputs);
+        }
+
+        @Override
+        public String toString() {
+            return left + " " + operator + " " + right;
+        }
+    }
+
+    private static final class In extends EdgeCondition {
+
+        private final Operand operand;
+        private final Object[] values;
+
+        In(Operand operand, List<Object> values) {
+            this.operand = operand;
+            this.values = values.toArray();
+        }
+
+        @Override
+        public boolean test(IConversationIntent intent, IConversationState state) {
+            Object value = operand.get(intent, state);
+            for (Object candidate : values) {
+                if (valueEquals(value, candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void addInputs(Map<String, Operand> inputs) {
+            addInput(operand, inputs);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder().append(operand).append(" in [");
+            for (int i = 0; i < values.length; i++) {
+                sb.append(i == 0 ? "" : ", ").append(new Literal(values[i]));
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    private static final class Not extends EdgeCondition {
+
+        private final EdgeCondition condition;
+
+        Not(EdgeCondition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        public boolean test(IConversationIntent intent, IConversationState state) {
+            return !condition.test(intent, state);
+        }
+
+        @Override
+        void addInputs(Map<String, Operand> inputs) {
+            condition.addInputs(inputs);
+        }
+
+        @Override
+        public String toString() {
+            return "!(" + condition + ")";
+        }
+    }
+
+    private static final class Junction extends EdgeCondition {
+
+        private final boolean and;
+        private final EdgeCondition[] conditions;
+
+        Junction(boolean and, List<EdgeCondition> conditions) {
+            this.and = and;
+            this.conditions = conditions.toArray(new EdgeCondition[conditions.size()]);
+        }
+
+        @Override
+        public boolean test(IConversationIntent intent, IConversationState state) {
+            for (EdgeCondition condition : conditions) {
+                if (condition.test(intent, state) != and) {
+                    return !and;
+                }
+            }
+            return and;
+        }
+
+        @Override
+        void addInputs(Map<String, Operand> inputs) {
+            for (EdgeCondition condition : conditions) {
+                condition.addInputs(inputs);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (EdgeCondition condition : conditions) {
+                if (sb.length() > 0) {
+                    sb.append(and ? " && " : " || ");
+                }
+                sb.append('(').append(condition).append(')');
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Recursive descent parser over the expression text.
+     */
+    private static final class Parser {
+
+        private static final List<String> COMPARISONS = Arrays.asList("==", "!=", "<=", ">=", "<", ">");
+
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        EdgeCondition parse() {
+            EdgeCondition condition = or();
+            end();
+            return condition;
+        }
+
+        void end() {
+            skipWhitespace();
+            if (position < text.length()) {
+                throw error("Unexpected " + text.charAt(position));
+            }
+        }
+
+        private EdgeCondition or() {
+            List<EdgeCondition> conditions = new ArrayList();
+            conditions.add(and());
+            while (accept("||")) {
+                conditions.add(and());
+            }
+            return conditions.size() == 1 ? conditions.get(0) : new Junction(false, conditions);
+        }
+
+        private EdgeCondition and() {
+            List<EdgeCondition> conditions = new ArrayList();
+            conditions.add(unary());
+            while (accept("&&")) {
+                conditions.add(unary());
+            }
+            return conditions.size() == 1 ? conditions.get(0) : new Junction(true, conditions);
+        }
+
+        private EdgeCondition unary() {
+            if (accept("!")) {
+                return new Not(unary());
+            }
+            if (accept("(")) {
+                EdgeCondition condition = or();
+                expect(")");
+                return condition;
+            }
+            Operand left = operand();
+            for (String operator : COMPARISONS) {
+                if (accept(operator)) {
+                    return new Compare(left, operator, operand());
+                }
+            }
+            if (acceptWord("in")) {
+                expect("[");
+                List<Object> values = new ArrayList();
+                if (!accept("]")) {
+                    do {
+                        values.add(literal());
+                    } while (accept(","));
+                    expect("]");
+                }
+                return new In(left, values);
+            }
+            return new Truthy(left);
+        }
+
+        Operand operand() {
+            skipWhitespace();
+            if (position < text.length() && Character.isJavaIdentifierStart(text.charAt(position))) {
+                int start = position;
+                String word = word();
+                switch (word) {
+                    case "true":
+                    case "false":
+                    case "null":
+                        position = start;
+                        return new Literal(literal());
+                    case "slot":
+                        expect(".");
+                        return new SlotOperand(name());
+                    case "state":
+                        List<String> path = new ArrayList();
+                        do {
+                            expect(".");
+                            path.add(name());
+                        } while (position < text.length() && text.charAt(position) == '.');
+                        return new StateOperand(path.toArray(new String[path.size()]));
+                    case "intent":
+                        expect(".");
+                        String field = word();
+                        if (field.equals("id") || field.equals("confidence")) {
+                            return new IntentOperand(field.equals("confidence"));
+                        }
+                        throw error("Unknown intent field " + field);
+                    default:
+                        throw error("Unknown operand " + word);
+                }
+            }
+            return new Literal(literal());
+        }
+
+        private Object literal() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw error("Expected a value");
+            }
+            char c = text.charAt(position);
+            if (c == '"' || c == '\'') {
+                StringBuilder sb = new StringBuilder();
+                position++;
+                while (position < text.length() && text.charAt(position) != c) {
+                    if (text.charAt(position) == '\\' && position + 1 < text.length()) {
+                        position++;
+                    }
+                    sb.append(text.charAt(position++));
+                }
+                if (position >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                position++;
+                return sb.toString();
+            }
+            if (c == '-' || Character.isDigit(c)) {
+                int start = position++;
+                while (position < text.length() && (Character.isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+                    position++;
+                }
+                try {
+                    return Double.parseDouble(text.substring(start, position));
+                } catch (NumberFormatException ex) {
+                    throw error("Invalid number " + text.substring(start, position));
+                }
+            }
+            String word = word();
+            switch (word) {
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+                case "null":
+                    return null;
+                default:
+                    throw error("Expected a value but found " + word);
+            }
+        }
+
+        private String word() {
+            skipWhitespace();
+            int start = position;
+            while (position < text.length() && Character.isJavaIdentifierPart(text.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw error("Expected a name");
+            }
+            return text.substring(start, position);
+        }
+
+        private String name() {
+            skipWhitespace();
+            int start = position;
+            if (position < text.length() && Character.isJavaIdentifierStart(text.charAt(position))) {
+                position++;
+                while (position < text.length() && isNamePart(text.charAt(position))) {
+                    position++;
+                }
+            }
+            if (start == position) {
+                throw error("Expected a name");
+            }
+            return text.substring(start, position);
+        }
+
+        private boolean acceptWord(String word) {
+            skipWhitespace();
+            int end = position + word.length();
+            if (text.startsWith(word, position) && (end == text.length() || !Character.isJavaIdentifierPart(text.charAt(end)))) {
+                position = end;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean accept(String token) {
+            skipWhitespace();
+            //do not read the start of != as a negation
+            if (token.equals("!") && text.startsWith("!=", position)) {
+                return false;
+            }
+            if (text.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error("Expected " + token);
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + position + " in \"" + text + "\"");
+        }
+    }
+
+}
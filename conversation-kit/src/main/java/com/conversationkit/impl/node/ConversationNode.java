@@ -25,12 +25,18 @@ package com.conversationkit.impl.node;
 
 import com.conversationkit.model.IConversationEdge;
 import com.conversationkit.model.IConversationNode;
+import com.conversationkit.model.NodeMetadata;
 import com.eclipsesource.json.JsonObject;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Convenience base class for creating nodes.
+ * <p>
+ * The metadata is kept as {@link NodeMetadata}. {@link #getMetadata()}
+ * decodes a modifiable copy on first use and returns that same object after
+ * that, so changes made to it are kept, as they were when nodes held a
+ * <code>JsonObject</code>. Prefer {@link #getCompactMetadata()} for reading.
  *
  * @author pdtyreus
  */
@@ -38,15 +44,22 @@ public class ConversationNode implements IConversationNode {
 
     protected final List<IConversationEdge> edges;
     private final int id;
-    private final JsonObject metadata;
+    private volatile boolean frozen;
+    private final NodeMetadata metadata;
+    //decoded by the first getMetadata call, null until then
+    private volatile JsonObject json;
 
     public ConversationNode(int id) {
         this.id = id;
         this.edges = new ArrayList();
-        this.metadata = new JsonObject();
+        this.metadata = NodeMetadata.EMPTY;
     }
 
     public ConversationNode(int id, JsonObject metadata) {
+        this(id, NodeMetadata.of(metadata));
+    }
+
+    public ConversationNode(int id, NodeMetadata metadata) {
         this.id = id;
         this.edges = new ArrayList();
         this.metadata = metadata;
@@ -57,8 +70,20 @@ public class ConversationNode implements IConversationNode {
         return edges;
     }
 
+    /**
+     * Makes the edges of the node read only, for example once it is part of a
+     * {@link com.conversationkit.impl.CompiledConversationGraph}. After this
+     * {@link #addEdge} throws <code>UnsupportedOperationException</code>.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
     @Override
     public void addEdge(IConversationEdge edge) {
+        if (frozen) {
+            throw new UnsupportedOperationException("Node " + getId() + " is frozen");
+        }
         edges.add(edge);
     }
 
@@ -69,7 +94,28 @@ public class ConversationNode implements IConversationNode {
 
     @Override
     public JsonObject getMetadata() {
-        return metadata;
+        JsonObject current = json;
+        if (current == null) {
+            synchronized (this) {
+                if (json == null) {
+                    json = metadata.toJsonObject();
+                }
+                current = json;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Once {@link #getMetadata()} has handed out its object, which may have
+     * been changed, the compact form is encoded from that object again.
+     */
+    @Override
+    public NodeMetadata getCompactMetadata() {
+        JsonObject current = json;
+        return current == null ? metadata : NodeMetadata.of(current);
     }
 
 }
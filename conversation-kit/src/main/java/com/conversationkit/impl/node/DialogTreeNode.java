@@ -26,9 +26,13 @@ package com.conversationkit.impl.node;
 import com.conversationkit.impl.edge.DialogTreeEdge;
 import com.conversationkit.model.IConversationEdge;
 import com.conversationkit.model.IConversationNode;
+import com.conversationkit.model.NodeMetadata;
 import com.eclipsesource.json.JsonObject;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A <code>DialogTreeNode</code> is an implementation of 
@@ -46,9 +50,15 @@ import java.util.List;
 public class DialogTreeNode implements IConversationNode<DialogTreeEdge> {
 
     protected final List<String> messages;
+    private final List<MessageTemplate> templates;
+    //built on first use and dropped by addEdge
+    private volatile List<String> suggestions;
+    private final Map<String, List<String>> localizedSuggestions = new ConcurrentHashMap();
     protected final List<DialogTreeEdge> edges;
     private final int id;
-    private final JsonObject metadata;
+    private volatile boolean frozen;
+    //created by the first getMetadata call, most dialog tree nodes have none
+    private volatile JsonObject metadata;
 
     /**
      * Creates a node with the specified text.
@@ -59,20 +69,89 @@ public class DialogTreeNode implements IConversationNode<DialogTreeEdge> {
     public DialogTreeNode(int id, List<String> messages) {
         this.id = id;
         this.edges = new ArrayList();
-        this.metadata = new JsonObject();
         this.messages = messages;
+        List<MessageTemplate> compiled = new ArrayList(messages.size());
+        for (String message : messages) {
+            compiled.add(MessageTemplate.compile(message));
+        }
+        this.templates = Collections.unmodifiableList(compiled);
     }
 
     public List<String> getMessages() {
         return messages;
     }
+
+    /**
+     * @return the messages compiled when the node was created
+     */
+    public List<MessageTemplate> getMessageTemplates() {
+        return templates;
+    }
+
+    /**
+     * Renders the messages, filling their <code>{{slot}}</code> placeholders.
+     *
+     * @param values slot values by name, usually part of the conversation state
+     * @param missing what to render for slots without a value
+     * @return the rendered messages
+     */
+    public List<String> renderMessages(Map<String, ?> values, MessageTemplate.MissingSlot missing) {
+        List<String> rendered = new ArrayList(templates.size());
+        for (MessageTemplate template : templates) {
+            rendered.add(template.render(values, missing));
+        }
+        return rendered;
+    }
     
+    /**
+     * Returns the prompts of the outbound edges. The list is built once and
+     * kept until the next {@link #addEdge}, so rendering a turn does not
+     * allocate.
+     *
+     * @return unmodifiable list of prompts
+     */
     public List<String> getSuggestedResponses() {
-        List<String> suggestions = new ArrayList();
+        List<String> current = suggestions;
+        if (current == null) {
+            current = buildSuggestions(null);
+            suggestions = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the prompts of the outbound edges translated for a language.
+     * Like {@link #getSuggestedResponses()} the list is built once per
+     * language code and kept until the next {@link #addEdge}.
+     *
+     * @param languageCode language of the conversation, may be null
+     * @return unmodifiable list of prompts
+     * @see DialogTreeEdge#getPrompt(java.lang.String)
+     */
+    public List<String> getSuggestedResponses(String languageCode) {
+        if (languageCode == null) {
+            return getSuggestedResponses();
+        }
+        List<String> current = localizedSuggestions.get(languageCode);
+        if (current == null) {
+            current = buildSuggestions(languageCode);
+            localizedSuggestions.put(languageCode, current);
+        }
+        return current;
+    }
+
+    private List<String> buildSuggestions(String languageCode) {
+        List<String> prompts = new ArrayList(edges.size());
+        boolean localized = false;
         for (DialogTreeEdge edge : edges) {
-            suggestions.add(edge.getPrompt());
+            prompts.add(edge.getPrompt(languageCode));
+            localized |= edge.isLocalized();
         }
-        return suggestions;
+        if (languageCode != null && !localized) {
+            //share the untranslated list instead of keeping a copy per language
+            return getSuggestedResponses();
+        }
+        return Collections.unmodifiableList(prompts);
     }
 
     @Override
@@ -80,9 +159,23 @@ public class DialogTreeNode implements IConversationNode<DialogTreeEdge> {
         return edges;
     }
 
+    /**
+     * Makes the edges of the node read only, for example once it is part of a
+     * {@link com.conversationkit.impl.CompiledConversationGraph}. After this
+     * {@link #addEdge} throws <code>UnsupportedOperationException</code>.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
     @Override
     public void addEdge(DialogTreeEdge edge) {
+        if (frozen) {
+            throw new UnsupportedOperationException("Node " + getId() + " is frozen");
+        }
         edges.add(edge);
+        suggestions = null;
+        localizedSuggestions.clear();
     }
 
     @Override
@@ -92,7 +185,22 @@ public class DialogTreeNode implements IConversationNode<DialogTreeEdge> {
 
     @Override
     public JsonObject getMetadata() {
-        return metadata;
+        JsonObject current = metadata;
+        if (current == null) {
+            synchronized (this) {
+                if (metadata == null) {
+                    metadata = new JsonObject();
+                }
+                current = metadata;
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public NodeMetadata getCompactMetadata() {
+        JsonObject current = metadata;
+        return current == null ? NodeMetadata.EMPTY : NodeMetadata.of(current);
     }
     
     
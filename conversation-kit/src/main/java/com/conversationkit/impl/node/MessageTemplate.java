@@ -0,0 +1,208 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.impl.node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A message with <code>{{slot}}</code> placeholders, parsed once into
+ * alternating literal text and slot names so it can be rendered many times
+ * without scanning the text again.
+ * <pre>
+ * MessageTemplate template = MessageTemplate.compile("Hello {{name}}, I'm a test bot");
+ * String message = template.render(slots, MessageTemplate.MissingSlot.REMOVE);
+ * </pre>
+ * Whitespace around a slot name is ignored. A <code>{{</code> without a
+ * closing <code>}}</code> is kept as text. Slot values are appended with
+ * {@link String#valueOf(java.lang.Object)}.
+ * <p>
+ * {@link #render} reuses a per-thread <code>StringBuilder</code>, so the only
+ * allocation is the resulting string; templates without slots return their
+ * text as is. Templates are immutable and safe to share between threads.
+ *
+ * @author pdtyreus
+ */
+public final class MessageTemplate {
+
+    /**
+     * What to render for a slot that is missing from the values or null.
+     */
+    public enum MissingSlot {
+        /**
+         * Render the placeholder as it was written, e.g.
+         * <code>{{name}}</code>.
+         */
+        KEEP_PLACEHOLDER,
+        /**
+         * Render nothing.
+         */
+        REMOVE,
+        /**
+         * Throw an {@link IllegalArgumentException}.
+         */
+        FAIL
+    }
+
+    private static final int MAX_RETAINED_BUFFER = 4096;
+
+    private static final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String text;
+    //literals[i] is the text before slots[i], the last literal follows the last slot
+    private final String[] literals;
+    private final String[] slots;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private MessageTemplate(String text, String[] literals, String[] slots, String[] placeholders) {
+        this.text = text;
+        this.literals = literals;
+        this.slots = slots;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parses a message.
+     *
+     * @param text the message text
+     * @return the compiled template
+     */
+    public static MessageTemplate compile(String text) {
+        List<String> literals = new ArrayList();
+        List<String> slots = new ArrayList();
+        List<String> placeholders = new ArrayList();
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < text.length()) {
+            int open = text.indexOf("{{", position);
+            int close = open < 0 ? -1 : text.indexOf("}}", open + 2);
+            if (close < 0) {
+                break;
+            }
+            //in "{{{{name}}" the slot starts at the last opening braces
+            open = text.lastIndexOf("{{", close - 2);
+            String name = text.substring(open + 2, close).trim();
+            literal.append(text, position, open);
+            if (name.isEmpty()) {
+                literal.append(text, open, close + 2);
+            } else {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                slots.add(name);
+                placeholders.add(text.substring(open, close + 2));
+            }
+            position = close + 2;
+        }
+        literal.append(text, position, text.length());
+        literals.add(literal.toString());
+        return new MessageTemplate(text,
+                literals.toArray(new String[literals.size()]),
+                slots.toArray(new String[slots.size()]),
+                placeholders.toArray(new String[placeholders.size()]));
+    }
+
+    /**
+     * @return the text the template was compiled from
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the slot names in the order they appear, with repeats
+     */
+    public List<String> getSlots() {
+        return Collections.unmodifiableList(Arrays.asList(slots));
+    }
+
+    /**
+     * @return true if the template has no slots
+     */
+    public boolean isConstant() {
+        return slots.length == 0;
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param values slot values by name
+     * @param missing what to render for missing slots
+     * @return the rendered message
+     * @throws IllegalArgumentException if a slot is missing and the policy is
+     * {@link MissingSlot#FAIL}
+     */
+    public String render(Map<String, ?> values, MissingSlot missing) {
+        if (slots.length == 0) {
+            return text;
+        }
+        StringBuilder out = buffer.get();
+        out.setLength(0);
+        renderTo(out, values, missing);
+        String result = out.toString();
+        if (out.capacity() > MAX_RETAINED_BUFFER) {
+            buffer.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Renders the template to the end of a builder.
+     *
+     * @param out the builder to append to
+     * @param values slot values by name
+     * @param missing what to render for missing slots
+     * @throws IllegalArgumentException if a slot is missing and the policy is
+     * {@link MissingSlot#FAIL}
+     */
+    public void renderTo(StringBuilder out, Map<String, ?> values, MissingSlot missing) {
+        out.ensureCapacity(out.length() + literalLength + 16 * slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            Object value = values == null ? null : values.get(slots[i]);
+            if (value != null) {
+                out.append(value);
+            } else if (missing == MissingSlot.KEEP_PLACEHOLDER) {
+                out.append(placeholders[i]);
+            } else if (missing == MissingSlot.FAIL) {
+                throw new IllegalArgumentException("No value for slot " + slots[i] + " in \"" + text + "\"");
+            }
+        }
+        out.append(literals[slots.length]);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+}
@@ -23,6 +23,7 @@
  */
 package com.conversationkit.model;
 
+import com.conversationkit.nlp.IntentSymbolTable;
 import com.conversationkit.redux.Middleware;
 import com.conversationkit.redux.Redux;
 import java.util.List;
@@ -46,6 +47,15 @@ public interface IConversationEdge<I extends IConversationIntent, S extends ICon
     public Integer getEndNodeId();
     
     public String getIntentId();
+
+    /**
+     * @return the symbol of the intent id in the default
+     * {@link IntentSymbolTable}, so edges and intents can be matched with an
+     * int compare
+     */
+    public default int getIntentSymbol() {
+        return IntentSymbolTable.getDefault().intern(getIntentId());
+    }
     
     /**
      * Additional logic to perform before continuing the conversation along this edge. It's possible for
@@ -58,6 +68,29 @@ public interface IConversationEdge<I extends IConversationIntent, S extends ICon
      * @return true if the edge should validate, false otherwise
      */
     public boolean validate(I intent, S state);
+
+    /**
+     * Used by graph analysis to find edges that can never match. An edge
+     * without a validator accepts every intent it matches, so later edges
+     * from the same node with the same intent are never used.
+     * @return false if {@link #validate} always returns true
+     */
+    public default boolean hasValidator() {
+        return true;
+    }
+
+    /**
+     * Declares everything {@link #validate} reads besides the intent id, as
+     * operands like <code>slot.answer</code>, <code>state.dialog.age</code> or
+     * <code>intent.confidence</code>. The engine may then cache the result of
+     * validate on the values of those inputs instead of calling it again.
+     * @return the inputs of the validator, or null if validate may depend on
+     * anything and must always be called
+     * @see com.conversationkit.impl.edge.EdgeCondition
+     */
+    public default List<String> getValidatorInputs() {
+        return null;
+    }
     
     /**
      * Side effects that should occur if this edge is validated. Side effects are
@@ -60,8 +60,25 @@ public interface IConversationNode<E extends IConversationEdge> {
      * need to build platform-specific implementations of itself. The values stored
      * in the metadata will be highly dependent on the final use case and is
      * designed to be highly flexible. 
+     * <p>
+     * The built-in nodes keep their metadata as {@link NodeMetadata} and
+     * decode a modifiable object the first time it is asked for; changes to
+     * it are kept. The nodes of a compiled graph are read-only and return an
+     * object that throws <code>UnsupportedOperationException</code> when
+     * changed. Use {@link #getCompactMetadata()} to read single values
+     * without decoding the rest.
      * @return JSON metadata
      */
     public JsonObject getMetadata();
-    
+
+    /**
+     * Returns the metadata in its compact form. Nodes that keep their metadata
+     * as {@link NodeMetadata} should return it directly instead of encoding
+     * {@link #getMetadata()} again.
+     * @return compact metadata
+     */
+    public default NodeMetadata getCompactMetadata() {
+        return NodeMetadata.of(getMetadata());
+    }
+
 }
@@ -51,6 +51,13 @@ public interface IConversationState <S extends IConversationState> extends Funct
      * @return a unique string representation of the current user
      */
     public String getUserId();
+    /**
+     * @return the language of the conversation, such as <code>en-US</code>, or
+     * null to use the engine default
+     */
+    public default String getLanguageCode() {
+        return null;
+    }
     /**
      * @return the current state as a Map
      */
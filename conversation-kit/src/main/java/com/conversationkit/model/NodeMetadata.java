@@ -0,0 +1,356 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.model;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonValue;
+import java.io.ByteArrayOutputStream;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node metadata packed into a single byte array, for graphs too large to keep
+ * a minimal-json tree per node.
+ * <p>
+ * Member names are interned in a table shared by all metadata and stored as
+ * small numbers, strings are stored as UTF-8 and numbers as their JSON text.
+ * Nothing is decoded until it is asked for: {@link #get(String)} decodes one
+ * member, {@link #toJsonObject()} the whole object. Metadata is immutable and
+ * equal metadata is shared, so the many nodes of a graph that carry the same
+ * metadata, or none, cost one array between them.
+ * <p>
+ * {@link #asJsonObject()} decodes a read-only view once and keeps it, softly
+ * referenced, for the next call; {@link #toJsonObject()} decodes a new,
+ * modifiable copy each time.
+ * <p>
+ * The encoding refers to the name table of the running JVM and is not meant
+ * to be stored.
+ *
+ * @author pdtyreus
+ */
+public final class NodeMetadata {
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int NUMBER = 3;
+    private static final int STRING = 4;
+    private static final int ARRAY = 5;
+    private static final int OBJECT = 6;
+
+    private static final Map<String, Integer> nameIds = new ConcurrentHashMap();
+    private static volatile String[] names = new String[64];
+    private static int nameCount;
+
+    private static final Map<NodeMetadata, WeakReference<NodeMetadata>> pool = new WeakHashMap();
+
+    /**
+     * Metadata without members.
+     */
+    public static final NodeMetadata EMPTY = new NodeMetadata(new byte[]{OBJECT, 0});
+
+    private final byte[] data;
+    private final int hash;
+    private volatile SoftReference<JsonObject> view;
+
+    private NodeMetadata(byte[] data) {
+        this.data = data;
+        this.hash = Arrays.hashCode(data);
+    }
+
+    /**
+     * Encodes a JSON object.
+     *
+     * @param object the metadata, may be null
+     * @return the compact metadata, shared with any equal metadata encoded
+     * before
+     */
+    public static NodeMetadata of(JsonObject object) {
+        if (object == null || object.isEmpty()) {
+            return EMPTY;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encode(object, out);
+        NodeMetadata metadata = new NodeMetadata(out.toByteArray());
+        synchronized (pool) {
+            WeakReference<NodeMetadata> shared = pool.get(metadata);
+            NodeMetadata existing = shared == null ? null : shared.get();
+            if (existing != null) {
+                return existing;
+            }
+            pool.put(metadata, new WeakReference(metadata));
+        }
+        return metadata;
+    }
+
+    /**
+     * @param name a member name
+     * @return the decoded value of the member, or null if there is none
+     */
+    public JsonValue get(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            return null;
+        }
+        int[] position = new int[]{1};
+        int count = readVarint(position);
+        for (int i = 0; i < count; i++) {
+            if (readVarint(position) == id) {
+                return decode(position, false);
+            }
+            skip(position);
+        }
+        return null;
+    }
+
+    /**
+     * @param name a member name
+     * @param defaultValue returned if the member is missing or not a string
+     * @return the string value of the member
+     */
+    public String getString(String name, String defaultValue) {
+        JsonValue value = get(name);
+        return value != null && value.isString() ? value.asString() : defaultValue;
+    }
+
+    /**
+     * @return the member names in order
+     */
+    public List<String> names() {
+        int[] position = new int[]{1};
+        int count = readVarint(position);
+        List<String> result = new ArrayList(count);
+        for (int i = 0; i < count; i++) {
+            result.add(names[readVarint(position)]);
+            skip(position);
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return data[1] == 0;
+    }
+
+    /**
+     * @return the number of bytes used by the encoded metadata
+     */
+    public int getEncodedLength() {
+        return data.length;
+    }
+
+    /**
+     * Decodes the whole object. Each call returns a new object, so changing
+     * it does not change the metadata.
+     *
+     * @return the metadata as JSON
+     */
+    public JsonObject toJsonObject() {
+        return decode(new int[]{0}, false).asObject();
+    }
+
+    /**
+     * Returns the metadata as a read-only JSON object. The object is decoded
+     * on the first call and reused until memory runs low. It and the arrays
+     * and objects inside it throw <code>UnsupportedOperationException</code>
+     * when changed.
+     *
+     * @return the metadata as read-only JSON
+     */
+    public JsonObject asJsonObject() {
+        SoftReference<JsonObject> cached = view;
+        JsonObject object = cached == null ? null : cached.get();
+        if (object == null) {
+            object = decode(new int[]{0}, true).asObject();
+            view = new SoftReference(object);
+        }
+        return object;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof NodeMetadata && ((NodeMetadata) obj).hash == hash && Arrays.equals(((NodeMetadata) obj).data, data);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return toJsonObject().toString();
+    }
+
+    private static int nameId(String name) {
+        Integer id = nameIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (nameIds) {
+            id = nameIds.get(name);
+            if (id != null) {
+                return id;
+            }
+            String[] current = names;
+            if (nameCount == current.length) {
+                current = Arrays.copyOf(current, nameCount * 2);
+            }
+            current[nameCount] = name;
+            //publish the name before the id can be seen
+            names = current;
+            nameIds.put(name, nameCount);
+            return nameCount++;
+        }
+    }
+
+    private static void encode(JsonValue value, ByteArrayOutputStream out) {
+        if (value.isNull()) {
+            out.write(NULL);
+        } else if (value.isTrue()) {
+            out.write(TRUE);
+        } else if (value.isFalse()) {
+            out.write(FALSE);
+        } else if (value.isNumber()) {
+            out.write(NUMBER);
+            writeBytes(value.toString().getBytes(StandardCharsets.US_ASCII), out);
+        } else if (value.isString()) {
+            out.write(STRING);
+            writeBytes(value.asString().getBytes(StandardCharsets.UTF_8), out);
+        } else if (value.isArray()) {
+            JsonArray array = value.asArray();
+            out.write(ARRAY);
+            writeVarint(array.size(), out);
+            for (JsonValue element : array) {
+                encode(element, out);
+            }
+        } else {
+            JsonObject object = value.asObject();
+            out.write(OBJECT);
+            writeVarint(object.size(), out);
+            for (JsonObject.Member member : object) {
+                writeVarint(nameId(member.getName()), out);
+                encode(member.getValue(), out);
+            }
+        }
+    }
+
+    private static void writeBytes(byte[] bytes, ByteArrayOutputStream out) {
+        writeVarint(bytes.length, out);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(int value, ByteArrayOutputStream out) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private int readVarint(int[] position) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private JsonValue decode(int[] position, boolean readOnly) {
+        int tag = data[position[0]++];
+        switch (tag) {
+            case NULL:
+                return Json.NULL;
+            case TRUE:
+                return Json.TRUE;
+            case FALSE:
+                return Json.FALSE;
+            case NUMBER: {
+                int length = readVarint(position);
+                String text = new String(data, position[0], length, StandardCharsets.US_ASCII);
+                position[0] += length;
+                return Json.parse(text);
+            }
+            case STRING: {
+                int length = readVarint(position);
+                String text = new String(data, position[0], length, StandardCharsets.UTF_8);
+                position[0] += length;
+                return Json.value(text);
+            }
+            case ARRAY: {
+                int count = readVarint(position);
+                JsonArray array = new JsonArray();
+                for (int i = 0; i < count; i++) {
+                    array.add(decode(position, readOnly));
+                }
+                return readOnly ? JsonArray.unmodifiableArray(array) : array;
+            }
+            default: {
+                int count = readVarint(position);
+                JsonObject object = new JsonObject();
+                for (int i = 0; i < count; i++) {
+                    String name = names[readVarint(position)];
+                    object.add(name, decode(position, readOnly));
+                }
+                return readOnly ? JsonObject.unmodifiableObject(object) : object;
+            }
+        }
+    }
+
+    private void skip(int[] position) {
+        int tag = data[position[0]++];
+        switch (tag) {
+            case NUMBER:
+            case STRING:
+                int length = readVarint(position);
+                position[0] += length;
+                break;
+            case ARRAY:
+                for (int i = readVarint(position); i > 0; i--) {
+                    skip(position);
+                }
+                break;
+            case OBJECT:
+                for (int i = readVarint(position); i > 0; i--) {
+                    readVarint(position);
+                    skip(position);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
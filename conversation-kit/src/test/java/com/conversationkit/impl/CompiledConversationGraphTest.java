@@ -0,0 +1,178 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.impl.edge.ConversationEdge;
+import com.conversationkit.impl.edge.DialogTreeEdge;
+import com.conversationkit.impl.node.ConversationNode;
+import com.conversationkit.impl.node.DialogTreeNode;
+import com.conversationkit.model.IConversationEdge;
+import com.conversationkit.model.IConversationNode;
+import com.conversationkit.nlp.IntentSymbolTable;
+import com.conversationkit.model.IConversationIntent;
+import com.conversationkit.nlp.RegexIntentDetector;
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class CompiledConversationGraphTest {
+
+    @Test
+    public void testCompile() {
+        System.out.println("compile");
+        ConversationNode top = new ConversationNode(10, Json.object().add("message", "top"));
+        ConversationNode left = new ConversationNode(20);
+        ConversationNode right = new ConversationNode(40);
+        ConversationEdge leftEdge = new ConversationEdge(20, "leftIntent");
+        ConversationEdge rightEdge = new ConversationEdge(40, "rightIntent");
+        ConversationEdge backEdge = new ConversationEdge(10, "backIntent");
+        top.addEdge(leftEdge);
+        top.addEdge(rightEdge);
+        right.addEdge(backEdge);
+
+        IntentSymbolTable symbols = new IntentSymbolTable();
+        CompiledConversationGraph graph = CompiledConversationGraph.compile(Arrays.asList(right, top, left), symbols);
+        assertEquals(3, graph.getNodeCount());
+        assertEquals(3, graph.getEdgeCount());
+
+        int topIndex = graph.indexOf(10);
+        assertEquals(0, topIndex);
+        assertEquals(-1, graph.indexOf(30));
+        assertEquals(2, graph.edgeEnd(topIndex) - graph.edgeStart(topIndex));
+        int first = graph.edgeStart(topIndex);
+        assertEquals(20, graph.nodeId(graph.edgeTarget(first)));
+        assertEquals("leftIntent", symbols.nameOf(graph.edgeIntentSymbol(first)));
+        assertEquals(symbols.lookup("rightIntent"), graph.edgeIntentSymbol(first + 1));
+
+        IConversationNode view = graph.getNodeById(10);
+        assertEquals(10, view.getId());
+        assertEquals("top", view.getMetadata().getString("message", null));
+        Iterator<IConversationEdge> edges = view.getEdges().iterator();
+        assertSame(leftEdge, edges.next());
+        assertSame(rightEdge, edges.next());
+        assertFalse(edges.hasNext());
+        assertNull(graph.getNodeById(30));
+        assertSame(backEdge, graph.getNodeById(40).getEdges().iterator().next());
+        assertFalse(graph.edge(first).hasValidator());
+        assertSame(leftEdge, graph.edge(first));
+    }
+
+    @Test
+    public void testDialogTreeNodes() {
+        System.out.println("testDialogTreeNodes");
+        DialogTreeNode question = new DialogTreeNode(1, Arrays.asList("Pick one"));
+        DialogTreeNode answer = new DialogTreeNode(2, Arrays.asList("Done"));
+        question.addEdge(new DialogTreeEdge(2, "yes", "Yes"));
+        question.addEdge(new DialogTreeEdge(2, "no", "No"));
+
+        CompiledConversationGraph graph = CompiledConversationGraph.compile(Arrays.asList(question, answer));
+        assertEquals(2, graph.getEdgeCount());
+        DialogTreeNode node = (DialogTreeNode) graph.getNodeById(1);
+        assertEquals(Arrays.asList("Pick one"), node.getMessages());
+        assertEquals(Arrays.asList("Yes", "No"), node.getSuggestedResponses());
+        try {
+            node.addEdge(new DialogTreeEdge(1, "back", "Back"));
+            fail();
+        } catch (UnsupportedOperationException ex) {
+        }
+    }
+
+    @Test
+    public void testEdgeAddedAfterCompile() {
+        System.out.println("testEdgeAddedAfterCompile");
+        //a custom node that puts new edges first and cannot be frozen
+        List<IConversationEdge> customEdges = new ArrayList();
+        IConversationNode custom = new IConversationNode<IConversationEdge>() {
+            @Override
+            public Iterable<IConversationEdge> getEdges() {
+                return customEdges;
+            }
+
+            @Override
+            public void addEdge(IConversationEdge edge) {
+                customEdges.add(0, edge);
+            }
+
+            @Override
+            public int getId() {
+                return 1;
+            }
+
+            @Override
+            public JsonObject getMetadata() {
+                return new JsonObject();
+            }
+        };
+        ConversationEdge leftEdge = new ConversationEdge(2, "leftIntent");
+        custom.addEdge(leftEdge);
+        ConversationNode left = new ConversationNode(2);
+        ConversationNode right = new ConversationNode(3);
+        CompiledConversationGraph graph = CompiledConversationGraph.compile(Arrays.asList(custom, left, right));
+
+        custom.addEdge(new ConversationEdge(3, "leftIntent"));
+        try {
+            left.addEdge(new ConversationEdge(3, "rightIntent"));
+            fail();
+        } catch (UnsupportedOperationException ex) {
+        }
+        try {
+            graph.getNodeById(2).addEdge(new ConversationEdge(3, "rightIntent"));
+            fail();
+        } catch (UnsupportedOperationException ex) {
+        }
+
+        assertEquals(1, graph.getEdgeCount());
+        assertSame(leftEdge, graph.edge(graph.edgeStart(graph.indexOf(1))));
+
+        Map<String, String> intentMap = new HashMap();
+        intentMap.put("leftIntent", "left");
+        Map conversation = new HashMap();
+        conversation.put("nodeId", 1);
+        Map initialState = new HashMap();
+        initialState.put(DirectedConversationEngine.CONVERSATION_STATE_KEY, conversation);
+        DirectedConversationEngine<TestState, IConversationIntent> engine = new DirectedConversationEngine<>(new RegexIntentDetector(intentMap), graph, new TestState(initialState));
+        assertTrue(engine.handleIncomingMessage("left").ok);
+        assertEquals(2, engine.getState().getCurrentNodeId().intValue());
+    }
+
+    private static class TestState extends MapBackedConversationState<TestState> {
+
+        public TestState(Map source) {
+            super(source, DirectedConversationEngine.CONVERSATION_STATE_KEY);
+        }
+
+        @Override
+        public String getUserId() {
+            return "TEST_USER";
+        }
+
+        @Override
+        public TestState apply(Map t) {
+            return new TestState(t);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingTarget() {
+        System.out.println("compile");
+        ConversationNode top = new ConversationNode(1);
+        top.addEdge(new ConversationEdge(2, "leftIntent"));
+        CompiledConversationGraph.compile(Arrays.asList(top));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullIntentId() {
+        System.out.println("testNullIntentId");
+        new ConversationEdge(2, null);
+    }
+
+}
@@ -260,4 +260,71 @@ public class ConversationGraphTest {
         logger.info(convo.toString());
 
     }
+    @Test
+    public void testDirectedConversationWithEdgeConditions() throws IOException {
+
+        logger.info("** Initializing Regex / EdgeCondition Conversation for testing");
+
+        Reader reader = new InputStreamReader(DialogTreeTest.class.getResourceAsStream("/directed_conversation.json"));
+
+        JsonEdgeBuilder<ConversationEdge> edgeBuilder = (String intentId, String label, JsonObject metadata, Integer target) -> {
+            return new ConversationEdge(target, intentId, JsonEdgeBuilder.validatorFromJson(metadata), JsonEdgeBuilder.sideEffectsFromJson(metadata));
+        };
+
+        ConversationNodeRepository<ConversationNode> index = JsonGraphBuilder.readJsonGraph(reader, new ConversationNodeBuilder(), edgeBuilder);
+
+        Map intentMap = new LinkedHashMap();
+        intentMap.put("YES", RegexIntentDetector.YES);
+        intentMap.put("NUMBER_ANSWER", "(?<answer>one|two|three|four|five|six|\\d)");
+
+        Map slotMap = new HashMap();
+        List<RegexIntentSlot> slots = new ArrayList();
+        slots.add(new RegexIntentSlot("answer",true));
+        slotMap.put("NUMBER_ANSWER", slots);
+
+        RegexIntentDetector intentDetector = new RegexIntentDetector(intentMap, slotMap);
+
+        HashMap initialConversationState = new HashMap();
+        initialConversationState.put("nodeId", 1);
+
+        Map initialState = new HashMap();
+        initialState.put(DirectedConversationEngine.CONVERSATION_STATE_KEY, initialConversationState);
+        initialState.put("math", new HashMap());
+
+        Reducer mathReducer = (Action action, Map currentState) -> {
+            switch (action.getType()) {
+                case "SET_ANSWER":
+                    Map nextState = new HashMap();
+                    nextState.putAll(currentState);
+                    nextState.put("answer", ((PayloadAction<String>) action).getPayload().get());
+                    return nextState;
+                default:
+                    return currentState;
+            }
+        };
+
+        Map<String, Reducer> reducers = new HashMap();
+        reducers.put("math", mathReducer);
+
+        DirectedConversationEngine<TestState, IConversationIntent> engine = new DirectedConversationEngine<>(
+                intentDetector,
+                index,
+                new TestState(initialState),
+                reducers);
+
+        MessageHandlingResult result = engine.handleIncomingMessage("five");
+        assertEquals(true, result.ok);
+        assertEquals(5, engine.getState().getCurrentNodeId().intValue());
+        assertEquals("five", engine.getState().getAnswer());
+
+        result = engine.handleIncomingMessage("yes");
+        assertEquals(true, result.ok);
+        assertEquals(1, engine.getState().getCurrentNodeId().intValue());
+
+        result = engine.handleIncomingMessage("6");
+        assertEquals(true, result.ok);
+        assertEquals(4, engine.getState().getCurrentNodeId().intValue());
+        assertEquals("6", engine.getState().getAnswer());
+    }
+
 }
@@ -0,0 +1,54 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.impl.edge.DialogTreeEdge;
+import com.conversationkit.impl.node.DialogTreeNode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class DialogTreeNodeTest {
+
+    @Test
+    public void testSuggestedResponses() {
+        System.out.println("testSuggestedResponses");
+        DialogTreeNode node = new DialogTreeNode(1, Collections.singletonList("How many fingers am I holding up?"));
+        node.addEdge(new DialogTreeEdge(2, "ONE", "1"));
+        node.addEdge(new DialogTreeEdge(3, "TWO", "2"));
+        List<String> suggestions = node.getSuggestedResponses();
+        assertEquals(Arrays.asList("1", "2"), suggestions);
+        assertSame(suggestions, node.getSuggestedResponses());
+        assertSame(suggestions, node.getSuggestedResponses("fr"));
+        try {
+            suggestions.add("3");
+            fail();
+        } catch (UnsupportedOperationException ex) {
+        }
+
+        node.addEdge(new DialogTreeEdge(4, "THREE", "3"));
+        assertEquals(Arrays.asList("1", "2", "3"), node.getSuggestedResponses());
+    }
+
+    @Test
+    public void testLocalizedSuggestedResponses() {
+        System.out.println("testLocalizedSuggestedResponses");
+        DialogTreeNode node = new DialogTreeNode(1, Collections.singletonList("Continue?"));
+        Map<String, String> yes = new HashMap();
+        yes.put("fr", "Oui");
+        yes.put("fr_CA", "Ouais");
+        node.addEdge(new DialogTreeEdge(2, "YES", "Yes", yes));
+        node.addEdge(new DialogTreeEdge(3, "NO", "No"));
+        assertEquals(Arrays.asList("Oui", "No"), node.getSuggestedResponses("fr-FR"));
+        assertEquals(Arrays.asList("Ouais", "No"), node.getSuggestedResponses("fr-CA"));
+        assertEquals(Arrays.asList("Yes", "No"), node.getSuggestedResponses("de"));
+        assertSame(node.getSuggestedResponses("fr-FR"), node.getSuggestedResponses("fr-FR"));
+    }
+
+}
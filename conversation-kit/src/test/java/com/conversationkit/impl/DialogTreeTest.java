@@ -29,6 +29,7 @@ import com.conversationkit.builder.JsonGraphBuilder;
 import com.conversationkit.impl.action.ActionType;
 import com.conversationkit.impl.edge.DialogTreeEdge;
 import com.conversationkit.impl.node.DialogTreeNode;
+import com.conversationkit.impl.node.MessageTemplate;
 import com.conversationkit.model.IConversationEngine.MessageHandlingResult;
 import com.conversationkit.model.IConversationIntent;
 import com.conversationkit.model.ConversationNodeRepository;
@@ -130,6 +131,12 @@ public class DialogTreeTest {
 
     };
 
+    JsonEdgeBuilder<DialogTreeEdge> stateEffectEdgeBuilder = (String intentId, String label, JsonObject metadata, Integer target) -> {
+
+        return new DialogTreeEdge(target, intentId, label, JsonEdgeBuilder.sideEffectsFromJson(metadata));
+
+    };
+
     //In practice you would use a real template engine here, but we are making a simple one to minimize dependencies
     private class TemplateEngine {
 
@@ -231,6 +238,32 @@ public class DialogTreeTest {
         logger.info(convo.toString());
     }
 
+    @Test
+    public void testMessageTemplateDialogTree() throws IOException {
+
+        System.out.println("testMessageTemplateDialogTree");
+
+        Reader reader = new InputStreamReader(DialogTreeTest.class.getResourceAsStream("/templated_dialog_tree.json"));
+        ConversationNodeRepository<DialogTreeNode> index = JsonGraphBuilder.readJsonGraph(reader, new DialogTreeNodeBuilder(), edgeBuilder);
+
+        Map<String, Object> dialog = new HashMap();
+        dialog.put("name", "Daniel");
+        dialog.put("numFingers", "2");
+        dialog.put("number", "3");
+
+        TemplateEngine templateEngine = new TemplateEngine();
+        for (Integer id : new Integer[]{1, 3, 4}) {
+            DialogTreeNode node = index.getNodeById(id);
+            List<String> rendered = node.renderMessages(dialog, MessageTemplate.MissingSlot.FAIL);
+            assertEquals(node.getMessages().size(), rendered.size());
+            for (int i = 0; i < rendered.size(); i++) {
+                assertEquals(templateEngine.apply(node.getMessages().get(i), dialog), rendered.get(i));
+            }
+        }
+
+        assertEquals("2 is wrong. I was holding up 3. See a doctor.", index.getNodeById(4).renderMessages(dialog, MessageTemplate.MissingSlot.FAIL).get(0));
+    }
+
     @Test
     public void testBasicDialogTree() throws IOException {
 
@@ -347,4 +380,62 @@ public class DialogTreeTest {
 
     }
 
+    @Test
+    public void testStateEffectDialogTree() throws IOException {
+
+        System.out.println("testStateEffectDialogTree");
+
+        Reader reader = new InputStreamReader(DialogTreeTest.class.getResourceAsStream("/templated_dialog_tree.json"));
+        ConversationNodeRepository<DialogTreeNode> index = JsonGraphBuilder.readJsonGraph(reader, new DialogTreeNodeBuilder(), stateEffectEdgeBuilder);
+
+        Map intentMap = new LinkedHashMap();
+        intentMap.put("ONE", "(?<fingers>1)");
+        intentMap.put("THREE", "(?<fingers>3)");
+
+        Map slotMap = new HashMap();
+        List<RegexIntentSlot> slots = new ArrayList();
+        slots.add(new RegexIntentSlot("fingers",true));
+        slotMap.put("ONE", slots);
+        slotMap.put("THREE", slots);
+
+        RegexIntentDetector intentDetector = new RegexIntentDetector(intentMap, slotMap);
+
+        HashMap initialConversationState = new HashMap();
+        initialConversationState.put("nodeId", 1);
+
+        HashMap initialCustomState = new HashMap();
+        initialCustomState.put("numFingers", "0");
+
+        Map initialState = new HashMap();
+        initialState.put(DirectedConversationEngine.CONVERSATION_STATE_KEY, initialConversationState);
+        initialState.put("dialog", initialCustomState);
+
+        Reducer dialogReducer = (Action action, Map currentState) -> {
+            switch (action.getType()) {
+                case "SET_FINGERS":
+                    Map nextState = new HashMap();
+                    nextState.putAll(currentState);
+                    nextState.put("numFingers", ((PayloadAction<String>) action).getPayload().get());
+                    return nextState;
+                default:
+                    return currentState;
+            }
+        };
+
+        Map<String, Reducer> reducers = new HashMap();
+        reducers.put("dialog", dialogReducer);
+
+        DirectedConversationEngine<TestState, IConversationIntent> engine = new DirectedConversationEngine<>(
+                intentDetector,
+                index,
+                new TestState(initialState),
+                reducers);
+
+        MessageHandlingResult result = engine.handleIncomingMessage("3");
+
+        assertEquals(true, result.ok);
+        assertEquals(3, engine.getState().getCurrentNodeId().intValue());
+        assertEquals("3", engine.getState().getNumFingers());
+    }
+
 }
@@ -23,15 +23,18 @@
  */
 package com.conversationkit.impl;
 
+import com.conversationkit.impl.action.ActionType;
 import com.conversationkit.impl.edge.ConversationEdge;
 import com.conversationkit.impl.node.ConversationNode;
 import com.conversationkit.model.IConversationEngine.ErrorCode;
 import com.conversationkit.model.IConversationIntent;
+import com.conversationkit.nlp.LanguageRoutingIntentDetector;
 import com.conversationkit.nlp.RegexIntentDetector;
 import com.conversationkit.redux.Action;
 import com.conversationkit.redux.Reducer;
 import com.eclipsesource.json.Json;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -210,4 +213,69 @@ public class DirectedConversationEngineTest {
         assertEquals(false, engine.getState().isRight());
     }
 
+    @Test
+    public void testHandleMessageRankedIntents() {
+
+        Map<String, String> intentMap = new LinkedHashMap();
+        intentMap.put("upIntent", "up");
+        intentMap.put("rightIntent", "right");
+        RegexIntentDetector intentDetector = new RegexIntentDetector(intentMap);
+
+        DirectedConversationEngine<TestState, IConversationIntent> engine = new DirectedConversationEngine<>(intentDetector, index, new TestState(initialState));
+        engine.setMaxIntentCandidates(1);
+
+        DirectedConversationEngine.MessageHandlingResult result = engine.handleIncomingMessage("up and to the right");
+
+        assertEquals(false, result.ok);
+        assertEquals(ErrorCode.EDGE_MATCHING_FAILED, result.errorCode);
+        assertEquals(1, engine.getState().getCurrentNodeId().intValue());
+
+        //the second ranked intent has a matching edge
+        engine.setMaxIntentCandidates(2);
+        result = engine.handleIncomingMessage("up and to the right");
+
+        assertEquals(true, result.ok);
+        assertEquals(3, engine.getState().getCurrentNodeId().intValue());
+    }
+
+    @Test
+    public void testHandleMessageLanguage() {
+
+        Map<String, String> englishIntents = new HashMap();
+        englishIntents.put("rightIntent", "right");
+        Map<String, String> frenchIntents = new HashMap();
+        frenchIntents.put("rightIntent", "droite");
+        LanguageRoutingIntentDetector<IConversationIntent> intentDetector = new LanguageRoutingIntentDetector<>(new RegexIntentDetector(englishIntents));
+        intentDetector.register("fr", new RegexIntentDetector(frenchIntents));
+
+        DirectedConversationEngine<TestState, IConversationIntent> engine = new DirectedConversationEngine<>(intentDetector, index, new TestState(initialState));
+        engine.dispatch(new ConversationAction<>(ActionType.SET_LANGUAGE_CODE, "fr-FR"));
+        assertEquals("fr-FR", engine.getState().getLanguageCode());
+
+        DirectedConversationEngine.MessageHandlingResult result = engine.handleIncomingMessage("right");
+        assertEquals(false, result.ok);
+        assertEquals(ErrorCode.INTENT_UNDERSTANDING_FAILED, result.errorCode);
+
+        result = engine.handleIncomingMessage("a droite");
+        assertEquals(true, result.ok);
+        assertEquals(3, engine.getState().getCurrentNodeId().intValue());
+    }
+
+    @Test
+    public void testHandleMessageCompiledGraph() {
+
+        Map<String, String> intentMap = new HashMap();
+        intentMap.put("leftIntent", "left");
+        intentMap.put("rightIntent", "right");
+        RegexIntentDetector intentDetector = new RegexIntentDetector(intentMap);
+
+        CompiledConversationGraph graph = CompiledConversationGraph.compile(index.getNodes());
+        DirectedConversationEngine<TestState, IConversationIntent> engine = new DirectedConversationEngine<>(intentDetector, graph, new TestState(initialState));
+
+        DirectedConversationEngine.MessageHandlingResult result = engine.handleIncomingMessage("right");
+
+        assertEquals(true, result.ok);
+        assertEquals(3, engine.getState().getCurrentNodeId().intValue());
+    }
+
 }
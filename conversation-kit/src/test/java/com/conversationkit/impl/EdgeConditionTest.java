@@ -0,0 +1,139 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.builder.JsonEdgeBuilder;
+import com.conversationkit.impl.edge.ConversationEdge;
+import com.conversationkit.impl.edge.EdgeCondition;
+import com.conversationkit.model.IConversationIntent;
+import com.conversationkit.nlp.ScoredIntent;
+import com.eclipsesource.json.Json;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.function.BiFunction;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class EdgeConditionTest {
+
+    private static class TestState extends MapBackedConversationState<TestState> {
+
+        public TestState(Map source) {
+            super(source);
+        }
+
+        @Override
+        public String getUserId() {
+            return "TEST_USER";
+        }
+
+        @Override
+        public TestState apply(Map t) {
+            return new TestState(t);
+        }
+    }
+
+    private static IConversationIntent intent(String... slots) {
+        Map<String, Object> values = new HashMap();
+        for (int i = 0; i < slots.length; i += 2) {
+            values.put(slots[i], slots[i + 1]);
+        }
+        return new ScoredIntent("ANSWER", 0.8, values);
+    }
+
+    @Test
+    public void testComparisons() {
+        System.out.println("testComparisons");
+        EdgeCondition adult = EdgeCondition.parse("slot.age >= 18");
+        assertTrue(adult.test(intent("age", "18"), null));
+        assertFalse(adult.test(intent("age", "17"), null));
+        assertFalse(adult.test(intent("age", "old"), null));
+        assertFalse(adult.test(intent(), null));
+
+        assertTrue(EdgeCondition.parse("slot.name == 'Daniel' && intent.id != \"OTHER\"").test(intent("name", "Daniel"), null));
+        assertTrue(EdgeCondition.parse("intent.confidence > 0.5").test(intent(), null));
+        assertTrue(EdgeCondition.parse("slot.answer in [\"six\", 6]").test(intent("answer", "6.0"), null));
+        assertFalse(EdgeCondition.parse("slot.answer in [\"six\", 6]").test(intent("answer", "five"), null));
+    }
+
+    @Test
+    public void testLogic() {
+        System.out.println("testLogic");
+        Map dialog = new HashMap();
+        dialog.put("verified", true);
+        Map source = new HashMap();
+        source.put("dialog", dialog);
+        TestState state = new TestState(source);
+
+        EdgeCondition condition = EdgeCondition.parse("!(slot.age < 18) && (state.dialog.verified || slot.override)");
+        assertTrue(condition.test(intent("age", "30"), state));
+        assertFalse(condition.test(intent("age", "12"), state));
+        dialog.put("verified", false);
+        assertFalse(condition.test(intent("age", "30"), state));
+        assertTrue(condition.test(intent("age", "30", "override", "yes"), state));
+        assertFalse(condition.test(intent("age", "30", "override", ""), state));
+        assertFalse(EdgeCondition.parse("state.missing.key == true").test(intent(), state));
+        assertEquals(new LinkedHashSet(Arrays.asList("age", "override")), condition.getSlots());
+    }
+
+    @Test
+    public void testInvalidExpressions() {
+        System.out.println("testInvalidExpressions");
+        for (String expression : new String[]{"slot.", "slot.a >", "(slot.a", "user.name", "slot.a in [x]", "slot.a slot.b", "'open"}) {
+            try {
+                EdgeCondition.parse(expression);
+                fail(expression);
+            } catch (IllegalArgumentException ex) {
+            }
+        }
+    }
+
+    @Test
+    public void testJsonValidators() throws IOException {
+        System.out.println("testJsonValidators");
+        EdgeCondition matches = JsonEdgeBuilder.validatorFromJson(Json.parse("{\"validator\": {\"type\": \"string\", \"slot\": \"answer\", \"matches\": [\"six\",\"6\"]}}").asObject());
+        assertTrue(matches.test(intent("answer", "six"), null));
+        assertFalse(matches.test(intent("answer", "7"), null));
+        assertEquals("slot.answer in [\"six\", \"6\"]", matches.toString());
+
+        assertSame(EdgeCondition.ALWAYS, JsonEdgeBuilder.validatorFromJson(Json.parse("{\"validator\": {\"type\": \"any\"}}").asObject()));
+        assertSame(EdgeCondition.ALWAYS, JsonEdgeBuilder.validatorFromJson(null));
+        assertTrue(JsonEdgeBuilder.validatorFromJson(Json.parse("{\"validator\": \"slot.age >= 18\"}").asObject()).test(intent("age", "21"), null));
+        try {
+            JsonEdgeBuilder.validatorFromJson(Json.parse("{\"validator\": {\"type\": \"javascript\"}}").asObject());
+            fail();
+        } catch (IOException ex) {
+        }
+
+        ConversationEdge edge = new ConversationEdge(2, "ANSWER", matches, new BiFunction[0]);
+        assertTrue(edge.hasValidator());
+        assertSame(matches, edge.getCondition());
+        assertTrue(edge.validate(intent("answer", "6"), null));
+        assertFalse(new ConversationEdge(2, "ANSWER", EdgeCondition.ALWAYS, new BiFunction[0]).hasValidator());
+    }
+
+    @Test
+    public void testJsonValidatorsWithWrongTypes() {
+        System.out.println("testJsonValidatorsWithWrongTypes");
+        String[] invalid = {
+            "{\"validator\": {\"type\": 7}}",
+            "{\"validator\": {\"type\": \"string\", \"slot\": true, \"matches\": [\"6\"]}}",
+            "{\"validator\": {\"type\": \"string\", \"slot\": \"answer\", \"matches\": [\"six\", 6]}}",
+            "{\"validator\": {\"expression\": [\"slot.age >= 18\"]}}"
+        };
+        for (String json : invalid) {
+            try {
+                JsonEdgeBuilder.validatorFromJson(Json.parse(json).asObject());
+                fail(json);
+            } catch (IOException ex) {
+                assertTrue(ex.getMessage(), ex.getMessage().contains(Json.parse(json).asObject().get("validator").toString()));
+            }
+        }
+    }
+
+}
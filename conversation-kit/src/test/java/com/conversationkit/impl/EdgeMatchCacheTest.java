@@ -0,0 +1,180 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.builder.JsonEdgeBuilder;
+import com.conversationkit.impl.edge.ConversationEdge;
+import com.conversationkit.impl.edge.EdgeCondition;
+import com.conversationkit.impl.node.ConversationNode;
+import com.conversationkit.model.IConversationIntent;
+import com.conversationkit.nlp.RegexIntentDetector;
+import com.conversationkit.nlp.ScoredIntent;
+import com.eclipsesource.json.Json;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class EdgeMatchCacheTest {
+
+    private static class TestState extends MapBackedConversationState<TestState> {
+
+        public TestState(Map source) {
+            super(source, DirectedConversationEngine.CONVERSATION_STATE_KEY);
+        }
+
+        @Override
+        public String getUserId() {
+            return "TEST_USER";
+        }
+
+        @Override
+        public TestState apply(Map t) {
+            return new TestState(t);
+        }
+    }
+
+    private static IConversationIntent answer(String value) {
+        Map<String, Object> slots = new HashMap();
+        slots.put("answer", value);
+        return new ScoredIntent("ANSWER", 1.0, slots);
+    }
+
+    @Test
+    public void testCachedValidation() {
+        System.out.println("testCachedValidation");
+        AtomicInteger calls = new AtomicInteger();
+        BiFunction<IConversationIntent, MapBackedConversationState, Boolean> validator = (intent, state) -> {
+            calls.incrementAndGet();
+            return "6".equals(intent.getSlots().get("answer"));
+        };
+        ConversationEdge edge = new ConversationEdge(2, "ANSWER", validator, Arrays.asList("slot.answer"), new BiFunction[0]);
+        EdgeMatchCache cache = new EdgeMatchCache(100);
+
+        assertTrue(cache.validate(1, edge, answer("6"), null));
+        assertTrue(cache.validate(1, edge, answer("6"), null));
+        assertFalse(cache.validate(1, edge, answer("7"), null));
+        assertFalse(cache.validate(1, edge, answer("7"), null));
+        assertEquals(2, calls.get());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        //another node is another decision
+        assertTrue(cache.validate(2, edge, answer("6"), null));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testConditionInputs() {
+        System.out.println("testConditionInputs");
+        EdgeCondition condition = EdgeCondition.parse("slot.answer in ['six', 6] && !state.locked");
+        assertEquals(Arrays.asList("slot.answer", "state.locked"), condition.getInputs());
+        ConversationEdge edge = new ConversationEdge(2, "ANSWER", condition, new BiFunction[0]);
+        assertEquals(Arrays.asList("slot.answer", "state.locked"), edge.getValidatorInputs());
+        assertNull(new ConversationEdge(2, "ANSWER", (i, s) -> true, new BiFunction[0]).getValidatorInputs());
+
+        EdgeMatchCache cache = new EdgeMatchCache(100);
+        assertTrue(cache.validate(1, edge, answer("six"), null));
+        assertTrue(cache.validate(1, edge, answer("six"), null));
+        assertEquals(1, cache.getHitCount());
+        try {
+            EdgeCondition.input("42");
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testHyphenatedSlot() throws IOException {
+        System.out.println("testHyphenatedSlot");
+        EdgeCondition condition = JsonEdgeBuilder.validatorFromJson(Json.parse("{\"validator\": {\"type\": \"string\", \"slot\": \"first-name\", \"matches\": [\"Ann\"]}}").asObject());
+        assertEquals(Arrays.asList("slot.first-name"), condition.getInputs());
+        ConversationEdge edge = new ConversationEdge(2, "NAME", condition, new BiFunction[0]);
+        Map<String, Object> slots = new HashMap();
+        slots.put("first-name", "Ann");
+        IConversationIntent ann = new ScoredIntent("NAME", 1.0, slots);
+
+        EdgeMatchCache cache = new EdgeMatchCache(100);
+        assertTrue(cache.validate(1, edge, ann, null));
+        assertTrue(cache.validate(1, edge, ann, null));
+        assertEquals(1, cache.getHitCount());
+        assertTrue(EdgeCondition.parse("slot.first-name == 'Ann'").apply(ann, null));
+
+        for (String slot : new String[]{"\"\"", "\"-name\"", "\"first name\""}) {
+            try {
+                JsonEdgeBuilder.validatorFromJson(Json.parse("{\"validator\": {\"type\": \"string\", \"slot\": " + slot + ", \"matches\": [\"Ann\"]}}").asObject());
+                fail(slot);
+            } catch (IOException ex) {
+            }
+        }
+        try {
+            JsonEdgeBuilder.validatorFromJson(Json.parse("{\"validator\": {\"type\": \"string\", \"matches\": [\"Ann\"]}}").asObject());
+            fail();
+        } catch (IOException ex) {
+        }
+        try {
+            new ConversationEdge(2, "NAME", (i, s) -> true, Arrays.asList("slot."), new BiFunction[0]);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testBounded() {
+        System.out.println("testBounded");
+        AtomicInteger calls = new AtomicInteger();
+        ConversationEdge edge = new ConversationEdge(2, "ANSWER", (intent, state) -> {
+            calls.incrementAndGet();
+            return true;
+        }, Arrays.asList("slot.answer"), new BiFunction[0]);
+        EdgeMatchCache cache = new EdgeMatchCache(10);
+        for (int i = 0; i < 100; i++) {
+            cache.validate(1, edge, answer(Integer.toString(i)), null);
+        }
+        assertEquals(100, calls.get());
+        //the oldest answers have been dropped, the newest are still cached
+        cache.validate(1, edge, answer("0"), null);
+        cache.validate(1, edge, answer("99"), null);
+        assertEquals(101, calls.get());
+        cache.clear();
+        cache.validate(1, edge, answer("99"), null);
+        assertEquals(102, calls.get());
+    }
+
+    @Test
+    public void testSharedBetweenEngines() {
+        System.out.println("testSharedBetweenEngines");
+        ConversationNode top = new ConversationNode(1);
+        top.addEdge(new ConversationEdge(2, "leftIntent", EdgeCondition.parse("!state.custom.locked"), new BiFunction[0]));
+        MapBackedNodeRepository index = new MapBackedNodeRepository();
+        index.addNodeToIndex(1, top);
+        index.addNodeToIndex(2, new ConversationNode(2));
+
+        Map<String, String> intentMap = new HashMap();
+        intentMap.put("leftIntent", "left");
+        RegexIntentDetector intentDetector = new RegexIntentDetector(intentMap);
+        EdgeMatchCache cache = new EdgeMatchCache(100);
+        for (int user = 0; user < 3; user++) {
+            Map conversation = new HashMap();
+            conversation.put("nodeId", 1);
+            Map custom = new HashMap();
+            custom.put("locked", false);
+            Map initialState = new HashMap();
+            initialState.put(DirectedConversationEngine.CONVERSATION_STATE_KEY, conversation);
+            initialState.put("custom", custom);
+            DirectedConversationEngine<TestState, IConversationIntent> engine = new DirectedConversationEngine<>(intentDetector, index, new TestState(initialState));
+            engine.setEdgeMatchCache(cache);
+            assertTrue(engine.handleIncomingMessage("left").ok);
+            assertEquals(2, engine.getState().getCurrentNodeId().intValue());
+        }
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.impl.edge.ConversationEdge;
+import com.conversationkit.impl.node.ConversationNode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class GraphAnalysisTest {
+
+    private static CompiledConversationGraph graph() {
+        List<ConversationNode> nodes = new ArrayList();
+        for (int id = 1; id <= 6; id++) {
+            nodes.add(new ConversationNode(id));
+        }
+        //node 1: the second X edge is shadowed by the first
+        nodes.get(0).addEdge(new ConversationEdge(2, "X"));
+        nodes.get(0).addEdge(new ConversationEdge(3, "X"));
+        //node 2: the first B edge has a validator, so both can match
+        nodes.get(1).addEdge(new ConversationEdge(3, "B", (intent, state) -> false, new BiFunction[0]));
+        nodes.get(1).addEdge(new ConversationEdge(4, "B"));
+        //4 and 5 loop forever
+        nodes.get(3).addEdge(new ConversationEdge(5, "D"));
+        nodes.get(4).addEdge(new ConversationEdge(4, "D"));
+        //nothing leads to 6
+        nodes.get(5).addEdge(new ConversationEdge(3, "E"));
+        return CompiledConversationGraph.compile(nodes);
+    }
+
+    @Test
+    public void testAnalyze() {
+        System.out.println("analyze");
+        GraphAnalysis instance = GraphAnalysis.analyze(graph(), Arrays.asList(1));
+
+        assertEquals(Arrays.asList(6), instance.getUnreachableNodeIds());
+        assertEquals(Arrays.asList(3), instance.getTerminalNodeIds());
+        assertEquals(Arrays.asList(4, 5), instance.getDeadEndNodeIds());
+        assertEquals(Arrays.asList(1), instance.getAmbiguousNodeIds());
+        assertTrue(instance.isReachable(5));
+
+        assertEquals(1, instance.getDistanceToTerminal(1));
+        assertEquals(1, instance.getDistanceToTerminal(2));
+        assertEquals(0, instance.getDistanceToTerminal(3));
+        assertEquals(GraphAnalysis.UNREACHABLE, instance.getDistanceToTerminal(4));
+
+        assertEquals(5, instance.getComponentCount());
+        assertEquals(instance.getComponent(4), instance.getComponent(5));
+        assertNotEquals(instance.getComponent(1), instance.getComponent(2));
+        assertTrue(instance.getComponent(1) > instance.getComponent(2));
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        System.out.println("write");
+        GraphAnalysis expected = GraphAnalysis.analyze(graph(), Arrays.asList(1));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        expected.write(new DataOutputStream(bytes));
+        GraphAnalysis instance = GraphAnalysis.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(expected.getUnreachableNodeIds(), instance.getUnreachableNodeIds());
+        assertEquals(expected.getDeadEndNodeIds(), instance.getDeadEndNodeIds());
+        assertEquals(expected.getAmbiguousNodeIds(), instance.getAmbiguousNodeIds());
+        assertEquals(expected.getComponentCount(), instance.getComponentCount());
+        for (int id = 1; id <= 6; id++) {
+            assertEquals(expected.getDistanceToTerminal(id), instance.getDistanceToTerminal(id));
+            assertEquals(expected.getComponent(id), instance.getComponent(id));
+        }
+    }
+
+    @Test
+    public void testLongChain() {
+        System.out.println("analyze");
+        List<ConversationNode> nodes = new ArrayList();
+        for (int id = 0; id < 200000; id++) {
+            ConversationNode node = new ConversationNode(id);
+            if (id > 0) {
+                node.addEdge(new ConversationEdge(id - 1, "BACK"));
+            }
+            nodes.add(node);
+        }
+        GraphAnalysis instance = GraphAnalysis.analyze(CompiledConversationGraph.compile(nodes), Arrays.asList(199999));
+        assertEquals(199999, instance.getDistanceToTerminal(199999));
+        assertEquals(200000, instance.getComponentCount());
+        assertTrue(instance.getUnreachableNodeIds().isEmpty());
+    }
+
+}
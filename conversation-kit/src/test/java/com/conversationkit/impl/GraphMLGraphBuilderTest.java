@@ -0,0 +1,90 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.builder.ConversationNodeBuilder;
+import com.conversationkit.builder.GraphMLGraphBuilder;
+import com.conversationkit.builder.JsonEdgeBuilder;
+import com.conversationkit.impl.edge.ConversationEdge;
+import com.conversationkit.impl.node.ConversationNode;
+import com.conversationkit.model.ConversationNodeRepository;
+import com.conversationkit.model.IConversationEdge;
+import com.eclipsesource.json.JsonObject;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class GraphMLGraphBuilderTest {
+
+    private final List<String> edgeLabels = new ArrayList();
+
+    private final JsonEdgeBuilder<ConversationEdge> edgeBuilder = (String intentId, String label, JsonObject metadata, Integer target) -> {
+        edgeLabels.add(label);
+        return new ConversationEdge(target, intentId);
+    };
+
+    @Test
+    public void testReadYedExport() throws IOException {
+        System.out.println("readGraphML");
+        ConversationNodeRepository<ConversationNode> index = GraphMLGraphBuilder.readGraphML(GraphMLGraphBuilderTest.class.getResourceAsStream("/directed_conversation.graphml"), new ConversationNodeBuilder(), edgeBuilder);
+
+        assertEquals(Arrays.asList("NUMBER_ANSWER 4", "NUMBER_ANSWER 5"), describe(index.getNodeById(1)));
+        assertEquals(Arrays.asList(), describe(index.getNodeById(4)));
+        assertEquals(Arrays.asList("YES 1"), describe(index.getNodeById(5)));
+        assertEquals("NUMBER_ANSWER Intent", edgeLabels.get(0));
+        assertEquals("", index.getNodeById(1).getMetadata().getString("description", null));
+    }
+
+    @Test
+    public void testDataKeys() throws IOException {
+        System.out.println("readGraphML");
+        String graphml = "<?xml version=\"1.0\"?>"
+                + "<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">"
+                + "<key id=\"k0\" for=\"node\" attr.name=\"message\" attr.type=\"string\"/>"
+                + "<key id=\"k1\" for=\"node\" attr.name=\"weight\" attr.type=\"double\"><default>0.5</default></key>"
+                + "<key id=\"k2\" for=\"edge\" attr.name=\"relation\" attr.type=\"string\"/>"
+                + "<key id=\"k3\" for=\"all\" attr.name=\"final\" attr.type=\"boolean\"/>"
+                + "<graph edgedefault=\"directed\">"
+                + "<edge source=\"10\" target=\"20\"><data key=\"k2\">NEXT</data></edge>"
+                + "<node id=\"10\"><data key=\"k0\">Hello &amp; welcome</data><data key=\"k1\">2.0</data>"
+                + "<graph><node id=\"20\"><data key=\"k3\">true</data></node></graph>"
+                + "</node>"
+                + "</graph></graphml>";
+
+        ConversationNodeRepository<ConversationNode> index = GraphMLGraphBuilder.readGraphML(new ByteArrayInputStream(graphml.getBytes(StandardCharsets.UTF_8)), new ConversationNodeBuilder(), edgeBuilder);
+
+        JsonObject metadata = index.getNodeById(10).getMetadata();
+        assertEquals("Hello & welcome", metadata.getString("message", null));
+        assertEquals(2.0, metadata.getDouble("weight", 0), 0.0001);
+        assertEquals(Arrays.asList("NEXT 20"), describe(index.getNodeById(10)));
+
+        metadata = index.getNodeById(20).getMetadata();
+        assertTrue(metadata.getBoolean("final", false));
+        assertEquals(0.5, metadata.getDouble("weight", 0), 0.0001);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingNode() throws IOException {
+        System.out.println("readGraphML");
+        String graphml = "<graphml><key id=\"r\" for=\"edge\" attr.name=\"relation\"/><graph>"
+                + "<node id=\"1\"/><edge source=\"1\" target=\"2\"><data key=\"r\">LOST</data></edge>"
+                + "</graph></graphml>";
+        GraphMLGraphBuilder.readGraphML(new ByteArrayInputStream(graphml.getBytes(StandardCharsets.UTF_8)), new ConversationNodeBuilder(), edgeBuilder);
+    }
+
+    private static List<String> describe(ConversationNode node) {
+        List<String> edges = new ArrayList();
+        for (IConversationEdge edge : node.getEdges()) {
+            edges.add(edge.getIntentId() + " " + edge.getEndNodeId());
+        }
+        return edges;
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.impl.node.ConversationNode;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class IntMapNodeRepositoryTest {
+
+    @Test
+    public void testDenseIds() {
+        System.out.println("getNodeById");
+        IntMapNodeRepository<ConversationNode> instance = new IntMapNodeRepository();
+        assertNull(instance.getNodeById(1));
+        for (int id = 100; id > 0; id--) {
+            instance.addNodeToIndex(id, new ConversationNode(id));
+        }
+        assertEquals(100, instance.size());
+        for (int id = 1; id <= 100; id++) {
+            assertEquals(id, instance.getNodeById(id).getId());
+        }
+        assertNull(instance.getNodeById(0));
+        assertNull(instance.getNodeById(101));
+        assertNull(instance.getNodeById(Integer.MIN_VALUE));
+
+        ConversationNode replacement = new ConversationNode(50);
+        instance.addNodeToIndex(50, replacement);
+        assertEquals(100, instance.size());
+        assertSame(replacement, instance.getNodeById(50));
+        assertEquals(100, instance.getNodes().size());
+    }
+
+    @Test
+    public void testSparseIds() {
+        System.out.println("getNodeById");
+        IntMapNodeRepository<ConversationNode> instance = new IntMapNodeRepository();
+        for (int id = 1; id <= 10; id++) {
+            instance.addNodeToIndex(id, new ConversationNode(id));
+        }
+        //far away ids switch to hashing
+        for (int i = 1; i <= 1000; i++) {
+            int id = i * 7919 - 500000;
+            instance.addNodeToIndex(id, new ConversationNode(id));
+        }
+        instance.addNodeToIndex(Integer.MAX_VALUE, new ConversationNode(Integer.MAX_VALUE));
+        assertEquals(1011, instance.size());
+        for (int id = 1; id <= 10; id++) {
+            assertEquals(id, instance.getNodeById(id).getId());
+        }
+        for (int i = 1; i <= 1000; i++) {
+            int id = i * 7919 - 500000;
+            assertEquals(id, instance.getNodeById(id).getId());
+        }
+        assertEquals(Integer.MAX_VALUE, instance.getNodeById(Integer.MAX_VALUE).getId());
+        assertNull(instance.getNodeById(11));
+        assertEquals(1011, instance.getNodes().size());
+    }
+
+}
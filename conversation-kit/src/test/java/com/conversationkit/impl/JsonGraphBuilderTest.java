@@ -0,0 +1,83 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.builder.ConversationNodeBuilder;
+import com.conversationkit.builder.JsonEdgeBuilder;
+import com.conversationkit.builder.JsonGraphBuilder;
+import com.conversationkit.impl.edge.ConversationEdge;
+import com.conversationkit.impl.node.ConversationNode;
+import com.conversationkit.model.ConversationNodeRepository;
+import com.conversationkit.model.IConversationEdge;
+import com.eclipsesource.json.JsonObject;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class JsonGraphBuilderTest {
+
+    private final JsonEdgeBuilder<ConversationEdge> edgeBuilder = (String intentId, String label, JsonObject metadata, Integer target) -> {
+        return new ConversationEdge(target, intentId);
+    };
+
+    private static String graph(int nodeCount, int edgesPerNode) {
+        StringBuilder json = new StringBuilder("{\"graph\": {\"nodes\": [");
+        for (int id = 1; id <= nodeCount; id++) {
+            json.append(id > 1 ? "," : "").append("{\"id\": \"").append(id).append("\", \"type\": \"t\", \"label\": \"").append(id).append("\", \"metadata\": {}}");
+        }
+        json.append("], \"edges\": [");
+        //interleave the sources so each node's edges are spread over the file
+        for (int e = 0; e < edgesPerNode; e++) {
+            for (int id = 1; id <= nodeCount; id++) {
+                int target = (id * 31 + e * 7) % nodeCount + 1;
+                json.append(e > 0 || id > 1 ? "," : "").append("{\"source\": \"").append(id).append("\", \"target\": \"").append(target).append("\", \"relation\": \"R").append(e).append("\"}");
+            }
+        }
+        return json.append("]}}").toString();
+    }
+
+    @Test
+    public void testReadJsonGraphParallel() throws IOException {
+        System.out.println("readJsonGraph");
+        String json = graph(500, 6);
+        ConversationNodeRepository<ConversationNode> sequential = JsonGraphBuilder.readJsonGraph(new StringReader(json), new ConversationNodeBuilder(), edgeBuilder);
+        ConversationNodeRepository<ConversationNode> parallel = JsonGraphBuilder.readJsonGraph(new StringReader(json), new ConversationNodeBuilder(), edgeBuilder, new ForkJoinPool(4));
+
+        for (int id = 1; id <= 500; id++) {
+            assertEquals(describe(sequential.getNodeById(id)), describe(parallel.getNodeById(id)));
+        }
+        assertEquals(6, describe(parallel.getNodeById(250)).size());
+    }
+
+    @Test
+    public void testReadJsonGraphParallelError() {
+        System.out.println("readJsonGraph");
+        String json = graph(50, 1);
+        try {
+            JsonGraphBuilder.readJsonGraph(new StringReader(json), (Integer id, String type, JsonObject metadata) -> {
+                if (id == 42) {
+                    throw new IOException("bad node 42");
+                }
+                return new ConversationNode(id, metadata);
+            }, edgeBuilder, ForkJoinPool.commonPool());
+            fail("expected an IOException");
+        } catch (IOException ex) {
+            assertEquals("bad node 42", ex.getMessage());
+        }
+    }
+
+    private static List<String> describe(ConversationNode node) {
+        List<String> edges = new ArrayList();
+        for (IConversationEdge edge : node.getEdges()) {
+            edges.add(edge.getIntentId() + " " + edge.getEndNodeId());
+        }
+        return edges;
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.builder.BinaryGraphBuilder;
+import com.conversationkit.builder.DialogTreeNodeBuilder;
+import com.conversationkit.builder.JsonEdgeBuilder;
+import com.conversationkit.builder.JsonGraphBuilder;
+import com.conversationkit.impl.edge.DialogTreeEdge;
+import com.conversationkit.impl.node.DialogTreeNode;
+import com.conversationkit.model.ConversationNodeRepository;
+import com.eclipsesource.json.JsonObject;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class MappedNodeRepositoryTest {
+
+    private final JsonEdgeBuilder<DialogTreeEdge> edgeBuilder = (String intentId, String label, JsonObject metadata, Integer target) -> {
+        return new DialogTreeEdge(target, intentId, label);
+    };
+
+    @Test
+    public void testReadBinaryGraph() throws IOException {
+        System.out.println("readBinaryGraph");
+        Path file = Files.createTempFile("dialog_tree", ".ckg");
+        try {
+            try (OutputStream out = Files.newOutputStream(file)) {
+                BinaryGraphBuilder.compileJsonGraph(new InputStreamReader(MappedNodeRepositoryTest.class.getResourceAsStream("/dialog_tree.json")), out);
+            }
+            ConversationNodeRepository<DialogTreeNode> mapped = BinaryGraphBuilder.readBinaryGraph(file, new DialogTreeNodeBuilder(), edgeBuilder);
+            ConversationNodeRepository<DialogTreeNode> parsed = JsonGraphBuilder.readJsonGraph(new InputStreamReader(MappedNodeRepositoryTest.class.getResourceAsStream("/dialog_tree.json")), new DialogTreeNodeBuilder(), edgeBuilder);
+
+            for (int id = 0; id < 10; id++) {
+                DialogTreeNode expected = parsed.getNodeById(id);
+                DialogTreeNode actual = mapped.getNodeById(id);
+                if (expected == null) {
+                    assertNull(actual);
+                    continue;
+                }
+                assertEquals(expected.getId(), actual.getId());
+                assertEquals(expected.getMessages(), actual.getMessages());
+                assertEquals(describe(expected), describe(actual));
+                assertSame(actual, mapped.getNodeById(id));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        System.out.println("MappedNodeRepository");
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.putInt(0, 0x7b0a2020);
+        new MappedNodeRepository(buffer, new DialogTreeNodeBuilder(), edgeBuilder);
+    }
+
+    @Test
+    public void testRejectsCorruptFiles() throws IOException {
+        System.out.println("testRejectsCorruptFiles");
+        Path file = Files.createTempFile("dialog_tree", ".ckg");
+        try {
+            try (OutputStream out = Files.newOutputStream(file)) {
+                BinaryGraphBuilder.compileJsonGraph(new InputStreamReader(MappedNodeRepositoryTest.class.getResourceAsStream("/dialog_tree.json")), out);
+            }
+            byte[] valid = Files.readAllBytes(file);
+            ByteBuffer header = ByteBuffer.wrap(valid);
+            int nodeCount = header.getInt(8);
+            int edgeCount = header.getInt(12);
+            int edgesOffset = (MappedNodeRepository.HEADER_INTS + nodeCount * MappedNodeRepository.NODE_INTS + 1) * 4;
+            int stringsOffset = edgesOffset + edgeCount * MappedNodeRepository.EDGE_INTS * 4;
+
+            //metadata that is no longer JSON fails when its node is decoded
+            byte[] corrupt = valid.clone();
+            for (int i = stringsOffset; i < corrupt.length; i++) {
+                if (corrupt[i] == '{') {
+                    corrupt[i] = 'x';
+                    break;
+                }
+            }
+            Files.write(file, corrupt);
+            ConversationNodeRepository<DialogTreeNode> mapped = BinaryGraphBuilder.readBinaryGraph(file, new DialogTreeNodeBuilder(), edgeBuilder);
+            int failures = 0;
+            for (int id = 0; id < 10; id++) {
+                try {
+                    mapped.getNodeById(id);
+                } catch (UncheckedIOException ex) {
+                    failures++;
+                }
+            }
+            assertEquals(1, failures);
+
+            //an edge pointing past the last node
+            corrupt = valid.clone();
+            ByteBuffer.wrap(corrupt).putInt(edgesOffset + 12, nodeCount);
+            Files.write(file, corrupt);
+            try {
+                MappedNodeRepository.load(file, new DialogTreeNodeBuilder(), edgeBuilder).verify();
+                fail();
+            } catch (IOException ex) {
+            }
+
+            //counts that overflow the section offsets
+            corrupt = valid.clone();
+            ByteBuffer.wrap(corrupt).putInt(8, 0x40000000);
+            assertRejected(file, corrupt);
+            corrupt = valid.clone();
+            ByteBuffer.wrap(corrupt).putInt(12, 0x7fffffff);
+            assertRejected(file, corrupt);
+            corrupt = valid.clone();
+            ByteBuffer.wrap(corrupt).putInt(12, -4);
+            assertRejected(file, corrupt);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private void assertRejected(Path file, byte[] contents) throws IOException {
+        Files.write(file, contents);
+        try {
+            BinaryGraphBuilder.readBinaryGraph(file, new DialogTreeNodeBuilder(), edgeBuilder);
+            fail();
+        } catch (IOException ex) {
+        }
+    }
+
+    private static List<String> describe(DialogTreeNode node) {
+        List<String> edges = new ArrayList();
+        Iterator<DialogTreeEdge> it = node.getEdges().iterator();
+        while (it.hasNext()) {
+            DialogTreeEdge edge = it.next();
+            edges.add(edge.getIntentId() + " " + edge.getPrompt() + " " + edge.getEndNodeId());
+        }
+        return edges;
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.impl.node.DialogTreeNode;
+import com.conversationkit.impl.node.MessageTemplate;
+import com.conversationkit.impl.node.MessageTemplate.MissingSlot;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class MessageTemplateTest {
+
+    @Test
+    public void testRender() {
+        System.out.println("testRender");
+        MessageTemplate template = MessageTemplate.compile("{{numFingers}} is wrong. I was holding up {{ number }}.");
+        assertEquals(Arrays.asList("numFingers", "number"), template.getSlots());
+        Map<String, Object> values = new HashMap();
+        values.put("numFingers", "2");
+        values.put("number", 3);
+        assertEquals("2 is wrong. I was holding up 3.", template.render(values, MissingSlot.FAIL));
+        StringBuilder out = new StringBuilder("> ");
+        template.renderTo(out, values, MissingSlot.FAIL);
+        assertEquals("> 2 is wrong. I was holding up 3.", out.toString());
+    }
+
+    @Test
+    public void testMissingSlots() {
+        System.out.println("testMissingSlots");
+        MessageTemplate template = MessageTemplate.compile("Hello {{ name }}!");
+        Map<String, Object> values = new HashMap();
+        values.put("name", null);
+        assertEquals("Hello {{ name }}!", template.render(values, MissingSlot.KEEP_PLACEHOLDER));
+        assertEquals("Hello !", template.render(null, MissingSlot.REMOVE));
+        try {
+            template.render(values, MissingSlot.FAIL);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+        values.put("name", "Daniel");
+        assertEquals("Hello Daniel!", template.render(values, MissingSlot.FAIL));
+    }
+
+    @Test
+    public void testLiteralText() {
+        System.out.println("testLiteralText");
+        MessageTemplate template = MessageTemplate.compile("a {{}} b {{ c");
+        assertTrue(template.isConstant());
+        assertSame(template.getText(), template.render(new HashMap(), MissingSlot.FAIL));
+        assertEquals("x{{", MessageTemplate.compile("x{{{{y}}").render(new HashMap(), MissingSlot.REMOVE));
+    }
+
+    @Test
+    public void testDialogTreeNode() {
+        System.out.println("testDialogTreeNode");
+        DialogTreeNode node = new DialogTreeNode(1, Arrays.asList("Hello {{name}}", "How are you?"));
+        Map<String, Object> values = new HashMap();
+        values.put("name", "Daniel");
+        assertEquals(Arrays.asList("Hello Daniel", "How are you?"), node.renderMessages(values, MissingSlot.FAIL));
+        assertEquals(2, node.getMessageTemplates().size());
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.impl.node.ConversationNode;
+import com.conversationkit.model.NodeMetadata;
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class NodeMetadataTest {
+
+    private static final String JSON = "{\"message\":[\"Hello\",\"Caf\\u00e9 \\u2615\"],\"weight\":-1.5e3,\"count\":300,"
+            + "\"active\":true,\"hidden\":false,\"parent\":null,\"card\":{\"title\":\"T\",\"buttons\":[{}]}}";
+
+    @Test
+    public void testRoundTrip() {
+        System.out.println("testRoundTrip");
+        JsonObject source = Json.parse(JSON).asObject();
+        NodeMetadata metadata = NodeMetadata.of(source);
+        assertEquals(source, metadata.toJsonObject());
+        assertEquals(Arrays.asList("message", "weight", "count", "active", "hidden", "parent", "card"), metadata.names());
+    }
+
+    @Test
+    public void testGet() {
+        System.out.println("testGet");
+        NodeMetadata metadata = NodeMetadata.of(Json.parse(JSON).asObject());
+        assertEquals("T", metadata.get("card").asObject().getString("title", null));
+        assertEquals(300, metadata.get("count").asInt());
+        assertTrue(metadata.get("parent").isNull());
+        assertEquals("Caf\u00e9 \u2615", metadata.get("message").asArray().get(1).asString());
+        assertNull(metadata.get("missing"));
+        assertNull(metadata.get("title"));
+        assertEquals("none", metadata.getString("count", "none"));
+    }
+
+    @Test
+    public void testSharing() {
+        System.out.println("testSharing");
+        NodeMetadata first = NodeMetadata.of(Json.parse(JSON).asObject());
+        NodeMetadata second = NodeMetadata.of(Json.parse(JSON).asObject());
+        assertSame(first, second);
+        assertSame(NodeMetadata.EMPTY, NodeMetadata.of(new JsonObject()));
+        assertSame(NodeMetadata.EMPTY, NodeMetadata.of(null));
+        assertTrue(NodeMetadata.EMPTY.isEmpty());
+        assertFalse(first.isEmpty());
+    }
+
+    @Test
+    public void testNodeMetadataIsMutable() {
+        System.out.println("testNodeMetadataIsMutable");
+        ConversationNode node = new ConversationNode(1, Json.parse(JSON).asObject());
+        assertSame(node.getCompactMetadata(), NodeMetadata.of(Json.parse(JSON).asObject()));
+        assertSame(node.getMetadata(), node.getMetadata());
+        node.getMetadata().set("count", 1);
+        node.getMetadata().get("message").asArray().add("again");
+        assertEquals(1, node.getMetadata().getInt("count", 0));
+        assertEquals(1, node.getCompactMetadata().get("count").asInt());
+
+        //the compact form itself is shared and read only
+        try {
+            NodeMetadata.of(Json.parse(JSON).asObject()).asJsonObject().set("count", 1);
+            fail();
+        } catch (UnsupportedOperationException ex) {
+        }
+        assertEquals(300, NodeMetadata.of(Json.parse(JSON).asObject()).get("count").asInt());
+    }
+
+}
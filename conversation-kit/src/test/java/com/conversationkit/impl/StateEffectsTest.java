@@ -0,0 +1,93 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.builder.JsonEdgeBuilder;
+import com.conversationkit.impl.action.StateEffectReducer;
+import com.conversationkit.impl.action.StateEffectsAction;
+import com.conversationkit.model.IConversationIntent;
+import com.conversationkit.model.IConversationState;
+import com.conversationkit.nlp.ScoredIntent;
+import com.conversationkit.redux.Action;
+import com.eclipsesource.json.Json;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class StateEffectsTest {
+
+    private static BiFunction<IConversationIntent, IConversationState, Object>[] compile(String effect) throws IOException {
+        return JsonEdgeBuilder.sideEffectsFromJson(Json.parse("{\"effect\": " + effect + "}").asObject());
+    }
+
+    @Test
+    public void testSingleAction() throws IOException {
+        System.out.println("testSingleAction");
+        BiFunction<IConversationIntent, IConversationState, Object>[] effects = compile("["
+                + "{\"op\": \"set\", \"key\": \"numFingers\", \"slot\": \"fingers\"},"
+                + "{\"op\": \"set\", \"key\": \"level\", \"value\": \"beginner\"},"
+                + "{\"op\": \"increment\", \"key\": \"attempts\"},"
+                + "{\"op\": \"append\", \"key\": \"answers\", \"slot\": \"fingers\"},"
+                + "{\"op\": \"clear\", \"key\": \"hint\"}]");
+        assertEquals(1, effects.length);
+
+        Map<String, Object> slots = new HashMap();
+        slots.put("fingers", "2");
+        Object action = effects[0].apply(new ScoredIntent("TWO", 1.0, slots), null);
+        assertTrue(action instanceof StateEffectsAction);
+
+        Map<String, Object> state = new HashMap();
+        state.put("attempts", 1);
+        state.put("answers", Arrays.asList("3"));
+        state.put("hint", "count them");
+        Map next = new StateEffectReducer().reduce((Action) action, state);
+        assertEquals("2", next.get("numFingers"));
+        assertEquals("beginner", next.get("level"));
+        assertEquals(2, next.get("attempts"));
+        assertEquals(Arrays.asList("3", "2"), next.get("answers"));
+        assertFalse(next.containsKey("hint"));
+        //the previous state is not changed
+        assertEquals(1, state.get("attempts"));
+        assertEquals("count them", state.get("hint"));
+    }
+
+    @Test
+    public void testMissingSlotAndDelegation() throws IOException {
+        System.out.println("testMissingSlotAndDelegation");
+        Object action = compile("{\"op\": \"set\", \"slot\": \"fingers\"}")[0].apply(new ScoredIntent("TWO", 1.0), null);
+        Map<String, Object> state = new HashMap();
+        state.put("fingers", "3");
+        assertEquals(state, new StateEffectReducer().reduce((Action) action, state));
+
+        Map<String, Object> delegated = new HashMap();
+        Action other = PayloadAction.build("OTHER", Optional.empty());
+        assertSame(delegated, new StateEffectReducer((a, s) -> delegated).reduce(other, state));
+        assertSame(state, new StateEffectReducer().reduce(other, state));
+    }
+
+    @Test
+    public void testActionTypeEffect() throws IOException {
+        System.out.println("testActionTypeEffect");
+        BiFunction<IConversationIntent, IConversationState, Object>[] effects = compile("{\"slot\": \"fingers\", \"actionType\": \"SET_FINGERS\"}");
+        assertEquals(1, effects.length);
+        Map<String, Object> slots = new HashMap();
+        slots.put("fingers", "4");
+        PayloadAction<String> action = (PayloadAction<String>) effects[0].apply(new ScoredIntent("FOUR", 1.0, slots), null);
+        assertEquals("SET_FINGERS", action.getType());
+        assertEquals("4", action.getPayload().get());
+        assertEquals(0, JsonEdgeBuilder.sideEffectsFromJson(null).length);
+        try {
+            compile("{\"op\": \"multiply\", \"key\": \"x\"}");
+            fail();
+        } catch (IOException ex) {
+        }
+    }
+
+}
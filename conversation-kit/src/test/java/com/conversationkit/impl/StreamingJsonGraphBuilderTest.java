@@ -0,0 +1,94 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.builder.DialogTreeNodeBuilder;
+import com.conversationkit.builder.JsonEdgeBuilder;
+import com.conversationkit.builder.JsonGraphBuilder;
+import com.conversationkit.builder.StreamingJsonGraphBuilder;
+import com.conversationkit.impl.edge.DialogTreeEdge;
+import com.conversationkit.impl.node.DialogTreeNode;
+import com.conversationkit.model.ConversationNodeRepository;
+import com.eclipsesource.json.JsonObject;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class StreamingJsonGraphBuilderTest {
+
+    private final JsonEdgeBuilder<DialogTreeEdge> edgeBuilder = (String intentId, String label, JsonObject metadata, Integer target) -> {
+        return new DialogTreeEdge(target, intentId, label);
+    };
+
+    @Test
+    public void testReadJsonGraph() throws IOException {
+        System.out.println("readJsonGraph");
+        ConversationNodeRepository<DialogTreeNode> streamed = StreamingJsonGraphBuilder.readJsonGraph(new InputStreamReader(StreamingJsonGraphBuilderTest.class.getResourceAsStream("/dialog_tree.json")), new DialogTreeNodeBuilder(), edgeBuilder);
+        ConversationNodeRepository<DialogTreeNode> parsed = JsonGraphBuilder.readJsonGraph(new InputStreamReader(StreamingJsonGraphBuilderTest.class.getResourceAsStream("/dialog_tree.json")), new DialogTreeNodeBuilder(), edgeBuilder);
+
+        for (int id = 0; id < 10; id++) {
+            DialogTreeNode expected = parsed.getNodeById(id);
+            DialogTreeNode actual = streamed.getNodeById(id);
+            if (expected == null) {
+                assertNull(actual);
+                continue;
+            }
+            assertEquals(expected.getMessages(), actual.getMessages());
+            assertEquals(describe(expected), describe(actual));
+        }
+    }
+
+    @Test
+    public void testForwardReferences() throws IOException {
+        System.out.println("readJsonGraph");
+        String json = "{\"graph\": {\"label\": \"a \\\"quoted\\\" \\u0041\", \"edges\": ["
+                + "{\"source\": \"1\", \"target\": \"3\", \"relation\": \"FIRST\", \"label\": \"first\"},"
+                + "{\"source\": \"1\", \"target\": \"2\", \"relation\": \"SECOND\", \"label\": \"second\"},"
+                + "{\"source\": \"2\", \"target\": \"1\", \"relation\": \"BACK\", \"label\": \"back\", \"metadata\": {\"weight\": 1.5e2, \"tags\": [true, null]}}"
+                + "], \"nodes\": ["
+                + "{\"id\": \"1\", \"type\": \"t\", \"label\": \"1\", \"metadata\": {\"message\": \"one\"}},"
+                + "{\"id\": \"2\", \"type\": \"t\", \"label\": \"2\", \"metadata\": {\"message\": [\"two\", \"\\u00e9\"]}},"
+                + "{\"id\": \"3\", \"type\": \"t\", \"label\": \"3\", \"metadata\": {\"message\": \"three\"}}"
+                + "]}}";
+
+        ConversationNodeRepository<DialogTreeNode> index = StreamingJsonGraphBuilder.readJsonGraph(new StringReader(json), new DialogTreeNodeBuilder(), edgeBuilder);
+
+        //FIRST waited for node 3, SECOND must stay behind it
+        List<String> expected = new ArrayList();
+        expected.add("FIRST first 3");
+        expected.add("SECOND second 2");
+        assertEquals(expected, describe(index.getNodeById(1)));
+        assertEquals("\u00e9", index.getNodeById(2).getMessages().get(1));
+        assertEquals(1, describe(index.getNodeById(2)).size());
+        assertEquals(0, describe(index.getNodeById(3)).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingTarget() throws IOException {
+        System.out.println("readJsonGraph");
+        String json = "{\"graph\": {\"nodes\": [{\"id\": \"1\", \"type\": \"t\", \"label\": \"1\", \"metadata\": {\"message\": \"one\"}}],"
+                + "\"edges\": [{\"source\": \"1\", \"target\": \"9\", \"relation\": \"LOST\"}]}}";
+        StreamingJsonGraphBuilder.readJsonGraph(new StringReader(json), new DialogTreeNodeBuilder(), edgeBuilder);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformed() throws IOException {
+        System.out.println("readJsonGraph");
+        StreamingJsonGraphBuilder.readJsonGraph(new StringReader("{\"graph\": {\"nodes\": [{\"id\": \"1\""), new DialogTreeNodeBuilder(), edgeBuilder);
+    }
+
+    private static List<String> describe(DialogTreeNode node) {
+        List<String> edges = new ArrayList();
+        for (DialogTreeEdge edge : node.getEdges()) {
+            edges.add(edge.getIntentId() + " " + edge.getPrompt() + " " + edge.getEndNodeId());
+        }
+        return edges;
+    }
+
+}
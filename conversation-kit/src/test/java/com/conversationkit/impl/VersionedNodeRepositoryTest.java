@@ -0,0 +1,99 @@
+package com.conversationkit.impl;
+
+import com.conversationkit.impl.node.ConversationNode;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class VersionedNodeRepositoryTest {
+
+    private static MapBackedNodeRepository<ConversationNode> graph(int... ids) {
+        MapBackedNodeRepository<ConversationNode> graph = new MapBackedNodeRepository();
+        for (int id : ids) {
+            graph.addNodeToIndex(id, new ConversationNode(id));
+        }
+        return graph;
+    }
+
+    @Test
+    public void testSessionsArePinned() {
+        System.out.println("openSession");
+        MapBackedNodeRepository<ConversationNode> first = graph(1, 2);
+        VersionedNodeRepository<ConversationNode> instance = new VersionedNodeRepository(first);
+        VersionedNodeRepository<ConversationNode>.Session session = instance.openSession();
+
+        MapBackedNodeRepository<ConversationNode> second = graph(1, 20);
+        assertEquals(2, instance.publish(second));
+
+        assertSame(first.getNodeById(2), session.getNodeById(2));
+        assertNull(instance.getNodeById(2));
+        assertSame(second.getNodeById(20), instance.getNodeById(20));
+        assertEquals(1, session.getVersion());
+        assertEquals(2, instance.getLiveVersionCount());
+
+        VersionedNodeRepository<ConversationNode>.Session newer = instance.openSession();
+        assertEquals(2, newer.getVersion());
+
+        session.close();
+        session.close();
+        assertEquals(1, instance.getLiveVersionCount());
+        newer.close();
+        assertEquals(1, instance.getLiveVersionCount());
+    }
+
+    @Test
+    public void testUpgrade() {
+        System.out.println("upgrade");
+        VersionedNodeRepository<ConversationNode> instance = new VersionedNodeRepository(graph(1, 2, 3));
+        VersionedNodeRepository<ConversationNode>.Session session = instance.openSession();
+
+        Map<Integer, Integer> migration = new HashMap();
+        migration.put(2, 20);
+        instance.publish(graph(1, 20, 3), migration);
+        migration = new HashMap();
+        migration.put(20, 200);
+        instance.publish(graph(1, 200), migration);
+        assertEquals(2, instance.getLiveVersionCount());
+
+        assertEquals(Integer.valueOf(200), session.upgrade(2));
+        assertEquals(3, session.getVersion());
+        assertEquals(1, instance.getLiveVersionCount());
+        assertEquals(Integer.valueOf(1), session.upgrade(1));
+
+        VersionedNodeRepository<ConversationNode>.Session other = instance.openSession();
+        instance.publish(graph(1), Collections.emptyMap());
+        assertNull(other.upgrade(200));
+        assertNull(other.upgrade(null));
+    }
+
+    @Test
+    public void testLoadAsync() throws InterruptedException, ExecutionException {
+        System.out.println("loadAsync");
+        VersionedNodeRepository<ConversationNode> instance = new VersionedNodeRepository(graph(1));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(Integer.valueOf(2), instance.loadAsync(() -> graph(5), Collections.emptyMap(), executor).get());
+            assertNotNull(instance.getNodeById(5));
+            try {
+                instance.loadAsync(() -> {
+                    throw new IllegalStateException("broken graph");
+                }, Collections.emptyMap(), executor).get();
+                fail("expected the load to fail");
+            } catch (ExecutionException ex) {
+                assertEquals(2, instance.getCurrentVersion());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
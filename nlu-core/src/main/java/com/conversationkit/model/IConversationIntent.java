@@ -23,7 +23,9 @@
  */
 package com.conversationkit.model;
 
+import com.conversationkit.nlp.IntentSymbolTable;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A general representation of a user's intent from a statement or question in a conversation.
@@ -37,6 +39,16 @@ public interface IConversationIntent {
      * @return unique ID for the intent.
      */
     public String getIntentId();
+    /**
+     * @return the symbol of the intent id in the default
+     * {@link IntentSymbolTable}, or {@link IntentSymbolTable#UNKNOWN} if the
+     * id is null or no edge or detector has interned it. Implementations
+     * should look the symbol up once and keep it, since this is called for
+     * every outbound edge of the current node.
+     */
+    public default int getIntentSymbol() {
+        return IntentSymbolTable.getDefault().lookup(getIntentId());
+    }
     /**
      * Slots are parameters collected from the user's input while detecting intent. As an example, a
      * a slot might be a color. So in the user input, "Press the red button" the intent
@@ -46,4 +58,23 @@ public interface IConversationIntent {
     public Map<String,Object> getSlots();
     
     public boolean getAllRequiredSlotsFilled();
+
+    /**
+     * Names of the slots the intent needs before it is complete, so that
+     * other extractors can tell which of the empty slots matter.
+     * @return names of the required slots, or null if the implementation does
+     * not know them
+     */
+    public default Set<String> getRequiredSlots() {
+        return null;
+    }
+    
+    /**
+     * How confident the NLU system is that this is the user's intent. Used to
+     * rank candidate intents and to ignore weak matches.
+     * @return confidence between 0 and 1, 1 if the implementation does not score intents
+     */
+    public default double getConfidence() {
+        return 1.0;
+    }
 }
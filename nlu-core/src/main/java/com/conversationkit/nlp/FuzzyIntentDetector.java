@@ -0,0 +1,287 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A typo tolerant intent detector that matches the user input against a list
+ * of canonical phrases for each intent, for example <code>"yes"</code>,
+ * <code>"no"</code> or <code>"cancel"</code>.
+ * <p>
+ * Phrases are indexed with a symmetric deletion index (as in SymSpell): every
+ * string that can be produced by deleting up to <code>maxDistance</code>
+ * characters from a phrase points back to that phrase. A lookup generates the
+ * deletions of the input and only computes the real edit distance for the few
+ * phrases that share one, instead of comparing the input with every phrase.
+ * Distances are optimal string alignment distances, so a swap of two adjacent
+ * letters ("yse") costs 1.
+ * <p>
+ * Phrases and input are normalized with a default {@link TextNormalizer}. The
+ * whole input is tried first, then each word of the input on its own; words
+ * of <code>maxDistance</code> characters or fewer are skipped. The returned
+ * {@link ScoredIntent} has a score of <code>1 - distance / length</code>.
+ * <p>
+ * Short words need fewer typos to turn into another word, so the distance
+ * allowed depends on the length of the shorter of the input and the phrase:
+ * only exact matches below 3 characters, at most 1 edit below 6 characters,
+ * and <code>maxDistance</code> from there on. Matches scoring below
+ * {@link #setMinConfidence(double)} are dropped.
+ *
+ * @author pdtyreus
+ */
+public class FuzzyIntentDetector implements IntentDetector<IConversationIntent> {
+
+    public static final int DEFAULT_MAX_DISTANCE = 2;
+    public static final double DEFAULT_MIN_CONFIDENCE = 0.5;
+
+    private static final int[] NO_PHRASES = new int[0];
+    private static final TextNormalizer NORMALIZER = new TextNormalizer();
+    private static final Logger logger = Logger.getLogger(FuzzyIntentDetector.class.getName());
+
+    private final int maxDistance;
+    private final String[] phrases;
+    private final String[] phraseIntents;
+    private final Map<String, int[]> deletes;
+    private final int maxPhraseLength;
+    private volatile double minConfidence = DEFAULT_MIN_CONFIDENCE;
+
+    public FuzzyIntentDetector(Map<String, List<String>> intentPhrases) {
+        this(intentPhrases, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * @param intentPhrases map of intent ids to canonical phrases
+     * @param maxDistance the largest edit distance that is still a match
+     */
+    public FuzzyIntentDetector(Map<String, List<String>> intentPhrases, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative");
+        }
+        this.maxDistance = maxDistance;
+
+        List<String> phraseList = new ArrayList();
+        List<String> intentList = new ArrayList();
+        for (Map.Entry<String, List<String>> entry : intentPhrases.entrySet()) {
+            for (String phrase : entry.getValue()) {
+                String normalized = NORMALIZER.normalize(phrase).toString();
+                if (!normalized.isEmpty()) {
+                    phraseList.add(normalized);
+                    intentList.add(entry.getKey());
+                }
+            }
+        }
+        this.phrases = phraseList.toArray(new String[phraseList.size()]);
+        this.phraseIntents = intentList.toArray(new String[intentList.size()]);
+
+        Map<String, List<Integer>> index = new HashMap();
+        int longest = 0;
+        for (int p = 0; p < phrases.length; p++) {
+            longest = Math.max(longest, phrases[p].length());
+            for (String delete : deletions(phrases[p])) {
+                List<Integer> ids = index.get(delete);
+                if (ids == null) {
+                    ids = new ArrayList(1);
+                    index.put(delete, ids);
+                }
+                ids.add(p);
+            }
+        }
+        this.maxPhraseLength = longest;
+
+        this.deletes = new HashMap(index.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<Integer>> entry : index.entrySet()) {
+            int[] ids = new int[entry.getValue().size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = entry.getValue().get(i);
+            }
+            deletes.put(entry.getKey(), ids);
+        }
+        logger.log(Level.INFO, "Indexed {0} phrases with {1} deletions", new Object[]{phrases.length, deletes.size()});
+    }
+
+    /**
+     * Sets the lowest score that still counts as a match. Matches scoring 0
+     * or less are never returned. Defaults to {@link #DEFAULT_MIN_CONFIDENCE}.
+     *
+     * @param minConfidence score between 0 and 1
+     */
+    public void setMinConfidence(double minConfidence) {
+        this.minConfidence = minConfidence;
+    }
+
+    @Override
+    public Optional<IConversationIntent> detectIntent(String text, String languageCode, String sessionId) {
+        String normalized = NORMALIZER.normalize(text).toString();
+        if (normalized.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<IConversationIntent> match = lookup(normalized);
+        if (!match.isPresent() && normalized.indexOf(' ') > 0) {
+            IConversationIntent best = null;
+            for (String word : normalized.split(" ")) {
+                if (word.length() <= maxDistance) {
+                    continue;
+                }
+                Optional<IConversationIntent> wordMatch = lookup(word);
+                if (wordMatch.isPresent() && (best == null || wordMatch.get().getConfidence() > best.getConfidence())) {
+                    best = wordMatch.get();
+                }
+            }
+            match = Optional.ofNullable(best);
+        }
+
+        if (match.isPresent()) {
+            logger.log(Level.FINE, "Matched {0} for {1}", new Object[]{match.get(), text});
+        } else {
+            logger.log(Level.FINE, "No matching intent for {0}", text);
+        }
+        return match;
+    }
+
+    private Optional<IConversationIntent> lookup(String query) {
+        if (query.length() > maxPhraseLength + maxDistance) {
+            return Optional.empty();
+        }
+
+        int bestPhrase = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        Set<Integer> checked = new HashSet();
+        for (String delete : deletions(query)) {
+            for (int p : deletes.getOrDefault(delete, NO_PHRASES)) {
+                if (!checked.add(p)) {
+                    continue;
+                }
+                int limit = Math.min(allowedDistance(Math.min(query.length(), phrases[p].length())), bestDistance);
+                int distance = distance(query, phrases[p], limit);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestPhrase = p;
+                }
+            }
+            if (bestDistance == 0) {
+                break;
+            }
+        }
+
+        if (bestPhrase < 0) {
+            return Optional.empty();
+        }
+        int length = Math.max(query.length(), phrases[bestPhrase].length());
+        double score = 1.0 - (double) bestDistance / length;
+        if (score <= 0 || score < minConfidence) {
+            return Optional.empty();
+        }
+        return Optional.of(new ScoredIntent(phraseIntents[bestPhrase], score));
+    }
+
+    /**
+     * @param length length of the shorter of the two strings compared
+     * @return the largest edit distance allowed between them
+     */
+    private int allowedDistance(int length) {
+        if (length < 3) {
+            return 0;
+        }
+        return length < 6 ? Math.min(1, maxDistance) : maxDistance;
+    }
+
+    /**
+     * Generates the string itself and every string reachable by deleting up
+     * to <code>maxDistance</code> characters, original string first.
+     */
+    private Set<String> deletions(String word) {
+        Set<String> result = new LinkedHashSet();
+        result.add(word);
+        List<String> frontier = new ArrayList();
+        frontier.add(word);
+        for (int d = 0; d < maxDistance; d++) {
+            List<String> next = new ArrayList();
+            for (String s : frontier) {
+                for (int i = 0; i < s.length(); i++) {
+                    String delete = s.substring(0, i) + s.substring(i + 1);
+                    if (result.add(delete)) {
+                        next.add(delete);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    /**
+     * Optimal string alignment distance between <code>a</code> and
+     * <code>b</code>, or <code>Integer.MAX_VALUE</code> if it exceeds
+     * <code>limit</code>.
+     */
+    static int distance(String a, String b, int limit) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > limit) {
+            return Integer.MAX_VALUE;
+        }
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = (ca == cb) ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return Integer.MAX_VALUE;
+            }
+            int[] tmp = previous2;
+            previous2 = previous;
+            previous = current;
+            current = tmp;
+        }
+        return (previous[m] > limit) ? Integer.MAX_VALUE : previous[m];
+    }
+
+}
@@ -0,0 +1,387 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A dictionary of phrases, such as city, product or drug names, that can be
+ * found in user text in a single scan.
+ * <p>
+ * Each entry maps a phrase to the value to put in a slot, for example
+ * <code>"nyc"</code> and <code>"new york city"</code> to
+ * <code>"New York"</code>. Phrases and text are normalized with the same
+ * {@link TextNormalizer}. {@link #findAll(CharSequence)} walks the text once
+ * from left to right and at each word returns the longest phrase that starts
+ * and ends on a word boundary.
+ * <p>
+ * The trie is stored in one flat buffer: a table of nodes, a table of edges
+ * sorted by character for binary search, and the values as UTF-8. Because
+ * nothing is decoded up front, {@link #load(Path)} can memory map a file
+ * written with {@link #write(OutputStream)} and serve lookups straight from
+ * the page cache, so very large dictionaries do not live on the heap.
+ * <p>
+ * A gazetteer is immutable and safe to share between threads.
+ *
+ * @author pdtyreus
+ */
+public class Gazetteer {
+
+    /**
+     * A phrase found in the text. Offsets refer to the normalized text.
+     */
+    public static class Match {
+
+        private final int start;
+        private final int end;
+        private final String phrase;
+        private final String value;
+
+        public Match(int start, int end, String phrase, String value) {
+            this.start = start;
+            this.end = end;
+            this.phrase = phrase;
+            this.value = value;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String getPhrase() {
+            return phrase;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "Match {" + phrase + " -> " + value + " [" + start + "," + end + ")}";
+        }
+    }
+
+    private static final int MAGIC = 0x434b475a;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8 * 4;
+    private static final int NODE_BYTES = 3 * 4;
+    private static final int EDGE_BYTES = 2 * 4;
+    private static final int VALUE_BYTES = 2 * 4;
+
+    private static final int FOLD_CASE = 1;
+    private static final int STRIP_PUNCTUATION = 2;
+    private static final int FOLD_ACCENTS = 4;
+
+    private final ByteBuffer buffer;
+    private final TextNormalizer normalizer;
+    private final int entryCount;
+    private final int nodesOffset;
+    private final int edgesOffset;
+    private final int valuesOffset;
+    private final int stringsOffset;
+
+    private Gazetteer(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a gazetteer file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported gazetteer version " + buffer.getInt(4));
+        }
+        int flags = buffer.getInt(8);
+        this.normalizer = new TextNormalizer((flags & FOLD_CASE) != 0, (flags & STRIP_PUNCTUATION) != 0, (flags & FOLD_ACCENTS) != 0);
+        this.entryCount = buffer.getInt(12);
+        int nodeCount = buffer.getInt(16);
+        int edgeCount = buffer.getInt(20);
+        int valueCount = buffer.getInt(24);
+        int stringBytes = buffer.getInt(28);
+        this.nodesOffset = HEADER_BYTES;
+        this.edgesOffset = nodesOffset + nodeCount * NODE_BYTES;
+        this.valuesOffset = edgesOffset + edgeCount * EDGE_BYTES;
+        this.stringsOffset = valuesOffset + valueCount * VALUE_BYTES;
+        if (nodeCount < 1 || stringsOffset + stringBytes > buffer.capacity()) {
+            throw new IOException("Truncated gazetteer file");
+        }
+    }
+
+    /**
+     * Builds a gazetteer on the heap, normalizing phrases with a default
+     * {@link TextNormalizer}.
+     *
+     * @param entries values by phrase
+     * @return the gazetteer
+     */
+    public static Gazetteer compile(Map<String, String> entries) {
+        return compile(entries, new TextNormalizer());
+    }
+
+    /**
+     * Builds a gazetteer on the heap.
+     *
+     * @param entries values by phrase
+     * @param normalizer applied to phrases and, later, to the text searched
+     * @return the gazetteer
+     */
+    public static Gazetteer compile(Map<String, String> entries, TextNormalizer normalizer) {
+        TrieNode root = new TrieNode();
+        Map<String, Integer> valueIndexes = new HashMap();
+        List<String> values = new ArrayList();
+        int entryCount = 0;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            CharSequence phrase = normalizer.normalize(entry.getKey());
+            if (phrase.length() == 0) {
+                continue;
+            }
+            TrieNode node = root;
+            for (int i = 0; i < phrase.length(); i++) {
+                node = node.children.computeIfAbsent(phrase.charAt(i), (c) -> new TrieNode());
+            }
+            if (node.value < 0) {
+                entryCount++;
+            }
+            Integer index = valueIndexes.get(entry.getValue());
+            if (index == null) {
+                index = values.size();
+                valueIndexes.put(entry.getValue(), index);
+                values.add(entry.getValue());
+            }
+            node.value = index;
+        }
+
+        //number the nodes breadth first, then write the edges in node order so each node owns a contiguous run
+        List<TrieNode> nodes = new ArrayList();
+        Deque<TrieNode> queue = new ArrayDeque();
+        queue.add(root);
+        int edgeCount = 0;
+        while (!queue.isEmpty()) {
+            TrieNode node = queue.poll();
+            node.id = nodes.size();
+            nodes.add(node);
+            edgeCount += node.children.size();
+            queue.addAll(node.children.values());
+        }
+
+        List<byte[]> encoded = new ArrayList();
+        int stringBytes = 0;
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            stringBytes += bytes.length;
+        }
+
+        int flags = (normalizer.isFoldCase() ? FOLD_CASE : 0)
+                | (normalizer.isStripPunctuation() ? STRIP_PUNCTUATION : 0)
+                | (normalizer.isFoldAccents() ? FOLD_ACCENTS : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + nodes.size() * NODE_BYTES + edgeCount * EDGE_BYTES + values.size() * VALUE_BYTES + stringBytes);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(entryCount)
+                .putInt(nodes.size()).putInt(edgeCount).putInt(values.size()).putInt(stringBytes);
+
+        int firstEdge = 0;
+        for (TrieNode node : nodes) {
+            buffer.putInt(firstEdge).putInt(node.children.size()).putInt(node.value);
+            firstEdge += node.children.size();
+        }
+        for (TrieNode node : nodes) {
+            for (Map.Entry<Character, TrieNode> child : node.children.entrySet()) {
+                buffer.putInt(child.getKey()).putInt(child.getValue().id);
+            }
+        }
+        int offset = 0;
+        for (byte[] bytes : encoded) {
+            buffer.putInt(offset).putInt(bytes.length);
+            offset += bytes.length;
+        }
+        for (byte[] bytes : encoded) {
+            buffer.put(bytes);
+        }
+
+        try {
+            return new Gazetteer(buffer);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Memory maps a gazetteer written with {@link #write(OutputStream)}. The
+     * file must not be modified while the gazetteer is in use.
+     *
+     * @param file the gazetteer file
+     * @return the gazetteer
+     * @throws IOException if the file cannot be mapped or is not a gazetteer
+     */
+    public static Gazetteer load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Gazetteer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the gazetteer in the format read by {@link #load(Path)}.
+     *
+     * @param out the stream to write to, left open
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream out) throws IOException {
+        ByteBuffer data = buffer.duplicate();
+        data.clear();
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    /**
+     * @return the number of distinct phrases
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    public TextNormalizer getNormalizer() {
+        return normalizer;
+    }
+
+    /**
+     * Looks up a single phrase.
+     *
+     * @param phrase the phrase, normalized before lookup
+     * @return the value of the phrase or null
+     */
+    public String get(CharSequence phrase) {
+        CharSequence text = normalizer.normalize(phrase);
+        int node = 0;
+        for (int i = 0; i < text.length() && node >= 0; i++) {
+            node = child(node, text.charAt(i));
+        }
+        if (node < 0) {
+            return null;
+        }
+        int value = buffer.getInt(nodesOffset + node * NODE_BYTES + 8);
+        return value < 0 ? null : value(value);
+    }
+
+    /**
+     * Finds the longest phrase starting at each word of the text, scanning
+     * from left to right without overlaps.
+     *
+     * @param text the text to search
+     * @return the matches in the order they appear
+     */
+    public List<Match> findAll(CharSequence text) {
+        CharSequence normalized = normalizer.normalize(text);
+        List<Match> matches = new ArrayList();
+        final int n = normalized.length();
+        int start = 0;
+        while (start < n) {
+            int node = 0;
+            int bestEnd = -1;
+            int bestValue = -1;
+            for (int i = start; i < n; i++) {
+                node = child(node, normalized.charAt(i));
+                if (node < 0) {
+                    break;
+                }
+                int value = buffer.getInt(nodesOffset + node * NODE_BYTES + 8);
+                if (value >= 0 && (i + 1 == n || !Character.isLetterOrDigit(normalized.charAt(i + 1)))) {
+                    bestEnd = i + 1;
+                    bestValue = value;
+                }
+            }
+
+            int next;
+            if (bestEnd > 0) {
+                matches.add(new Match(start, bestEnd, normalized.subSequence(start, bestEnd).toString(), value(bestValue)));
+                next = bestEnd;
+            } else {
+                next = start + 1;
+                while (next < n && Character.isLetterOrDigit(normalized.charAt(next))) {
+                    next++;
+                }
+            }
+            //move to the start of the next word
+            while (next < n && !Character.isLetterOrDigit(normalized.charAt(next))) {
+                next++;
+            }
+            start = next;
+        }
+        return matches;
+    }
+
+    private int child(int node, char c) {
+        int base = nodesOffset + node * NODE_BYTES;
+        int low = buffer.getInt(base);
+        int high = low + buffer.getInt(base + 4) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int label = buffer.getInt(edgesOffset + mid * EDGE_BYTES);
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(edgesOffset + mid * EDGE_BYTES + 4);
+            }
+        }
+        return -1;
+    }
+
+    private String value(int index) {
+        int base = valuesOffset + index * VALUE_BYTES;
+        int offset = buffer.getInt(base);
+        byte[] bytes = new byte[buffer.getInt(base + 4)];
+        ByteBuffer data = buffer.duplicate();
+        data.position(stringsOffset + offset);
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class TrieNode {
+
+        final TreeMap<Character, TrieNode> children = new TreeMap();
+        int value = -1;
+        int id;
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Fills the slots of the intents found by another detector from
+ * {@link Gazetteer} dictionaries.
+ * <p>
+ * Each gazetteer is registered under a slot name. After the delegate has
+ * detected an intent, every slot that the delegate left empty and that has a
+ * gazetteer is set to the value of the first phrase of that gazetteer found in
+ * the text. Slots the delegate filled are not changed. If the delegate reported
+ * missing required slots, the intent counts as complete once every one of its
+ * {@link IConversationIntent#getRequiredSlots() required slots} has a value;
+ * if the delegate does not say which slots are required, once every slot has
+ * a value.
+ * <pre>
+ * Map&lt;String, Gazetteer&gt; gazetteers = new HashMap();
+ * gazetteers.put("city", Gazetteer.load(Paths.get("cities.gaz")));
+ * IntentDetector&lt;IConversationIntent&gt; detector = new GazetteerIntentDetector(regexDetector, gazetteers);
+ * </pre>
+ *
+ * @author pdtyreus
+ */
+public class GazetteerIntentDetector implements IntentDetector<IConversationIntent> {
+
+    private final IntentDetector<? extends IConversationIntent> delegate;
+    private final Map<String, Gazetteer> gazetteers;
+
+    /**
+     * @param delegate detects the intent
+     * @param gazetteers dictionaries by slot name
+     */
+    public GazetteerIntentDetector(IntentDetector<? extends IConversationIntent> delegate, Map<String, Gazetteer> gazetteers) {
+        this.delegate = delegate;
+        this.gazetteers = new LinkedHashMap(gazetteers);
+    }
+
+    @Override
+    public Optional<IConversationIntent> detectIntent(String text, String languageCode, String sessionId) {
+        List<IConversationIntent> intents = detectIntents(text, languageCode, sessionId, 1);
+        if (intents.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(intents.get(0));
+    }
+
+    @Override
+    public List<IConversationIntent> detectIntents(String text, String languageCode, String sessionId, int maxResults) {
+        List<? extends IConversationIntent> detected = delegate.detectIntents(text, languageCode, sessionId, maxResults);
+        List<IConversationIntent> intents = new ArrayList();
+        if (detected.isEmpty()) {
+            return intents;
+        }
+
+        //scan each gazetteer once for all the candidate intents
+        Map<String, String> found = scan(text);
+        for (IConversationIntent intent : detected) {
+            intents.add(fill(intent, found));
+        }
+        return intents;
+    }
+
+    @Override
+    public IncrementalIntentDetector<IConversationIntent> startIncremental(String languageCode, String sessionId) {
+        final IncrementalIntentDetector<? extends IConversationIntent> incremental = delegate.startIncremental(languageCode, sessionId);
+        return new IncrementalIntentDetector<IConversationIntent>() {
+            private String transcript = "";
+
+            @Override
+            public Optional<IConversationIntent> feed(String partialTranscript) {
+                transcript = partialTranscript;
+                return fillDetected(incremental.feed(partialTranscript));
+            }
+
+            @Override
+            public Optional<IConversationIntent> finish() {
+                return fillDetected(incremental.finish());
+            }
+
+            private Optional<IConversationIntent> fillDetected(Optional<? extends IConversationIntent> intent) {
+                if (!intent.isPresent()) {
+                    return Optional.empty();
+                }
+                return Optional.of(fill(intent.get(), scan(transcript)));
+            }
+        };
+    }
+
+    private Map<String, String> scan(String text) {
+        Map<String, String> found = new HashMap();
+        for (Map.Entry<String, Gazetteer> entry : gazetteers.entrySet()) {
+            List<Gazetteer.Match> matches = entry.getValue().findAll(text);
+            if (!matches.isEmpty()) {
+                found.put(entry.getKey(), matches.get(0).getValue());
+            }
+        }
+        return found;
+    }
+
+    private IConversationIntent fill(final IConversationIntent intent, Map<String, String> found) {
+        final Map<String, Object> slots = intent.getSlots() == null ? new HashMap() : new HashMap(intent.getSlots());
+        for (String slot : gazetteers.keySet()) {
+            if (slots.get(slot) == null && found.containsKey(slot)) {
+                slots.put(slot, found.get(slot));
+            }
+        }
+        final Set<String> required = intent.getRequiredSlots();
+        boolean filledAll = true;
+        if (required != null) {
+            for (String slot : required) {
+                if (slots.get(slot) == null) {
+                    filledAll = false;
+                }
+            }
+        } else {
+            for (Object value : slots.values()) {
+                if (value == null) {
+                    filledAll = false;
+                }
+            }
+        }
+        final boolean complete = intent.getAllRequiredSlotsFilled() || filledAll;
+
+        return new IConversationIntent() {
+
+            @Override
+            public String getIntentId() {
+                return intent.getIntentId();
+            }
+
+            @Override
+            public int getIntentSymbol() {
+                return intent.getIntentSymbol();
+            }
+
+            @Override
+            public Map<String, Object> getSlots() {
+                return slots;
+            }
+
+            @Override
+            public boolean getAllRequiredSlotsFilled() {
+                return complete;
+            }
+
+            @Override
+            public Set<String> getRequiredSlots() {
+                return required;
+            }
+
+            @Override
+            public double getConfidence() {
+                return intent.getConfidence();
+            }
+
+            @Override
+            public String toString() {
+                return intent.getIntentId() + " " + slots;
+            }
+
+        };
+    }
+
+}
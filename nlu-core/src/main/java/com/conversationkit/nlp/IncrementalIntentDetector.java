@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import java.util.Optional;
+
+/**
+ * Detects the intent of a single utterance while it is still being spoken.
+ * <p>
+ * A speech recognizer produces partial transcripts long before the final one.
+ * Each partial is passed to {@link #feed(java.lang.String)}, which returns the
+ * best intent so far, so the caller can start preparing a response early. A
+ * partial normally extends the previous one but may also revise its last
+ * words. {@link #finish()} ends the utterance and returns the final intent.
+ * <p>
+ * Instances are created with {@link IntentDetector#startIncremental(java.lang.String, java.lang.String)},
+ * hold the state of one utterance and are not thread safe.
+ *
+ * @author pdtyreus
+ * @param <I> type of intent
+ */
+public interface IncrementalIntentDetector<I> {
+
+    /**
+     * @param partialTranscript the whole transcript so far, not just the new
+     * words
+     * @return the best intent for the transcript so far
+     */
+    public Optional<I> feed(String partialTranscript);
+
+    /**
+     * @return the intent of the last transcript fed
+     */
+    public Optional<I> finish();
+}
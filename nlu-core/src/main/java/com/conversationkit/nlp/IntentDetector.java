@@ -23,6 +23,8 @@
  */
 package com.conversationkit.nlp;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -31,4 +33,51 @@ import java.util.Optional;
  */
 public interface IntentDetector<I> {
     public Optional<I> detectIntent(String text, String languageCode, String sessionId);
+
+    /**
+     * Returns up to <code>maxResults</code> candidate intents for the text, best
+     * first. Detectors that can rank several intents should override this so the
+     * engine can fall back to the next candidate when the best one has no
+     * matching edge. The default implementation returns the result of
+     * {@link #detectIntent(java.lang.String, java.lang.String, java.lang.String)}.
+     * @param text user input
+     * @param languageCode language of the input
+     * @param sessionId id of the conversation session
+     * @param maxResults maximum number of candidates to return
+     * @return ranked candidate intents, empty if no intent was detected
+     */
+    public default List<I> detectIntents(String text, String languageCode, String sessionId, int maxResults) {
+        Optional<I> intent = detectIntent(text, languageCode, sessionId);
+        if (intent.isPresent() && maxResults > 0) {
+            return Collections.singletonList(intent.get());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Starts detecting the intent of an utterance that arrives in pieces, such
+     * as the partial transcripts of a speech recognizer. Detectors that can
+     * reuse work between partials should override this. The default
+     * implementation runs {@link #detectIntent(java.lang.String, java.lang.String, java.lang.String)}
+     * on every partial.
+     * @param languageCode language of the input
+     * @param sessionId id of the conversation session
+     * @return a detector for one utterance
+     */
+    public default IncrementalIntentDetector<I> startIncremental(final String languageCode, final String sessionId) {
+        return new IncrementalIntentDetector<I>() {
+            private Optional<I> latest = Optional.empty();
+
+            @Override
+            public Optional<I> feed(String partialTranscript) {
+                latest = detectIntent(partialTranscript, languageCode, sessionId);
+                return latest;
+            }
+
+            @Override
+            public Optional<I> finish() {
+                return latest;
+            }
+        };
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns each intent id a small int, its symbol, so intents can be compared
+ * and stored as primitives instead of strings. Symbols are handed out in
+ * order starting at 0 and never change or get reused.
+ * <p>
+ * The graph and the intents must use the same table for their symbols to be
+ * comparable, so most code should use {@link #getDefault()}. The table is
+ * safe to use from several threads.
+ * <p>
+ * A table only grows. Replacing a graph at runtime, for example with a
+ * hot-swapped repository, keeps the symbols of intents the new graph no longer
+ * uses, so the default table holds every intent id the application has seen.
+ * Use a separate table for ids that come from untrusted or unbounded sources.
+ *
+ * @author pdtyreus
+ */
+public final class IntentSymbolTable {
+
+    /**
+     * Returned by {@link #lookup(java.lang.String)} for an intent id without a
+     * symbol.
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final IntentSymbolTable DEFAULT = new IntentSymbolTable();
+
+    private final Map<String, Integer> symbols = new ConcurrentHashMap();
+    private volatile String[] names = new String[16];
+    private int size;
+
+    /**
+     * @return the table shared by the whole application
+     */
+    public static IntentSymbolTable getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the symbol of the intent id, assigning a new one if needed.
+     *
+     * @param intentId the intent id
+     * @return the symbol
+     */
+    public int intern(String intentId) {
+        Integer symbol = symbols.get(intentId);
+        if (symbol != null) {
+            return symbol;
+        }
+        synchronized (this) {
+            symbol = symbols.get(intentId);
+            if (symbol != null) {
+                return symbol;
+            }
+            String[] current = names;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = intentId;
+            //publish the name before the symbol can be seen
+            names = current;
+            symbols.put(intentId, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Returns the symbol of the intent id without assigning one.
+     *
+     * @param intentId the intent id
+     * @return the symbol or {@link #UNKNOWN}
+     */
+    public int lookup(String intentId) {
+        if (intentId == null) {
+            return UNKNOWN;
+        }
+        Integer symbol = symbols.get(intentId);
+        return symbol == null ? UNKNOWN : symbol;
+    }
+
+    /**
+     * @param symbol a symbol returned by this table
+     * @return the intent id of the symbol
+     */
+    public String nameOf(int symbol) {
+        return names[symbol];
+    }
+
+    /**
+     * @return the number of symbols assigned
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+/**
+ * A {@link CharSequence} that limits how much work a regular expression may
+ * do on it. The regex engine reads the input through {@link #charAt(int)}, so
+ * counting those reads bounds the time spent backtracking. Once the budget is
+ * used up every further read throws a {@link BudgetExceededException}, which
+ * unwinds the matcher.
+ * <p>
+ * The sequence also records the highest index read, which tells how much of
+ * the input a match result depends on.
+ * <p>
+ * Instances are not thread safe and are meant to wrap the input of one
+ * detection call.
+ *
+ * @author pdtyreus
+ */
+public class InterruptibleCharSequence implements CharSequence {
+
+    /**
+     * Thrown from {@link #charAt(int)} when the step budget is exhausted.
+     */
+    public static class BudgetExceededException extends RuntimeException {
+
+        public BudgetExceededException(long maxSteps) {
+            super("Regular expression exceeded " + maxSteps + " steps");
+        }
+    }
+
+    private final CharSequence inner;
+    private final long maxSteps;
+    private long steps;
+    private int maxIndexRead = -1;
+
+    /**
+     * @param inner the text to match
+     * @param maxSteps the number of character reads allowed before matching
+     * is aborted
+     */
+    public InterruptibleCharSequence(CharSequence inner, long maxSteps) {
+        this.inner = inner;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Restores the full budget, for example before matching the next pattern.
+     */
+    public void reset() {
+        steps = 0;
+        maxIndexRead = -1;
+    }
+
+    /**
+     * @return the highest index passed to {@link #charAt(int)} since the last
+     * reset, or -1 if nothing was read
+     */
+    public int getMaxIndexRead() {
+        return maxIndexRead;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (++steps > maxSteps) {
+            throw new BudgetExceededException(maxSteps);
+        }
+        if (index > maxIndexRead) {
+            maxIndexRead = index;
+        }
+        return inner.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return inner.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return inner.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return inner.toString();
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A registry of {@link IntentDetector}s, one per language, that sends each
+ * message to the detector for the <code>languageCode</code> it arrives with.
+ * Each language only evaluates its own intent set, instead of one large set
+ * covering every locale.
+ * <p>
+ * Language codes are matched case insensitively and <code>_</code> is treated
+ * as <code>-</code>. A message in <code>fr-CA</code> goes to the detector
+ * registered for <code>fr-CA</code> if there is one, otherwise to the one for
+ * <code>fr</code>, otherwise to the default detector. If there is no default
+ * either, nothing is detected.
+ * <pre>
+ * LanguageRoutingIntentDetector&lt;IConversationIntent&gt; detector = new LanguageRoutingIntentDetector&lt;&gt;(englishDetector);
+ * detector.register("fr", frenchDetector);
+ * detector.register("es-MX", mexicanSpanishDetector);
+ * </pre>
+ *
+ * @author pdtyreus
+ * @param <I> type of intent returned by the registered detectors
+ */
+public class LanguageRoutingIntentDetector<I> implements IntentDetector<I> {
+
+    private static final Logger logger = Logger.getLogger(LanguageRoutingIntentDetector.class.getName());
+
+    private final Map<String, IntentDetector<? extends I>> detectors = new ConcurrentHashMap();
+    private final IntentDetector<? extends I> defaultDetector;
+
+    /**
+     * Creates a registry without a default detector.
+     */
+    public LanguageRoutingIntentDetector() {
+        this(null);
+    }
+
+    /**
+     * @param defaultDetector used for languages without a registered detector,
+     * may be null
+     */
+    public LanguageRoutingIntentDetector(IntentDetector<? extends I> defaultDetector) {
+        this.defaultDetector = defaultDetector;
+    }
+
+    /**
+     * Registers the detector for a language, replacing any detector
+     * registered before.
+     *
+     * @param languageCode a language such as <code>de</code> or a language and
+     * region such as <code>de-AT</code>
+     * @param detector the detector for that language
+     */
+    public void register(String languageCode, IntentDetector<? extends I> detector) {
+        detectors.put(canonical(languageCode), detector);
+    }
+
+    /**
+     * @param languageCode language code of the message
+     * @return the detector that handles the language, or null if there is none
+     */
+    public IntentDetector<? extends I> route(String languageCode) {
+        if (languageCode != null) {
+            String code = canonical(languageCode);
+            IntentDetector<? extends I> detector = detectors.get(code);
+            if (detector != null) {
+                return detector;
+            }
+            int dash = code.indexOf('-');
+            if (dash > 0) {
+                detector = detectors.get(code.substring(0, dash));
+                if (detector != null) {
+                    return detector;
+                }
+            }
+        }
+        return defaultDetector;
+    }
+
+    @Override
+    public Optional<I> detectIntent(String text, String languageCode, String sessionId) {
+        IntentDetector<? extends I> detector = route(languageCode);
+        if (detector == null) {
+            logger.log(Level.WARNING, "No intent detector for language {0}", languageCode);
+            return Optional.empty();
+        }
+        return (Optional<I>) detector.detectIntent(text, languageCode, sessionId);
+    }
+
+    @Override
+    public List<I> detectIntents(String text, String languageCode, String sessionId, int maxResults) {
+        IntentDetector<? extends I> detector = route(languageCode);
+        if (detector == null) {
+            logger.log(Level.WARNING, "No intent detector for language {0}", languageCode);
+            return Collections.emptyList();
+        }
+        return (List<I>) detector.detectIntents(text, languageCode, sessionId, maxResults);
+    }
+
+    @Override
+    public IncrementalIntentDetector<I> startIncremental(String languageCode, String sessionId) {
+        IntentDetector<? extends I> detector = route(languageCode);
+        if (detector == null) {
+            logger.log(Level.WARNING, "No intent detector for language {0}", languageCode);
+            return new IncrementalIntentDetector<I>() {
+                @Override
+                public Optional<I> feed(String partialTranscript) {
+                    return Optional.empty();
+                }
+
+                @Override
+                public Optional<I> finish() {
+                    return Optional.empty();
+                }
+            };
+        }
+        return (IncrementalIntentDetector<I>) detector.startIncremental(languageCode, sessionId);
+    }
+
+    private static String canonical(String languageCode) {
+        return languageCode.replace('_', '-').toLowerCase(Locale.ROOT);
+    }
+
+}
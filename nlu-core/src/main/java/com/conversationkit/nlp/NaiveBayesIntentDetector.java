@@ -0,0 +1,373 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An in-process multinomial naive Bayes intent classifier trained from labeled
+ * example utterances.
+ * <p>
+ * Text is split into lower-cased word tokens and every word n-gram up to
+ * <code>ngramSize</code> is hashed into one of <code>2^featureBits</code>
+ * buckets, so no vocabulary has to be stored. The model is a flat
+ * <code>float[]</code> of log likelihoods laid out feature-major, which keeps the
+ * weights for all intents of one feature next to each other in memory.
+ * Classification is a single pass over the text with no network calls.
+ * <p>
+ * A trained model can be saved with {@link #writeModel(java.io.OutputStream)}
+ * and loaded again with {@link #readModel(java.io.InputStream)}. Only weights
+ * that differ from the per-intent default for unseen features are written.
+ *
+ * @author pdtyreus
+ */
+public class NaiveBayesIntentDetector implements IntentDetector<IConversationIntent> {
+
+    public static final int DEFAULT_FEATURE_BITS = 14;
+    public static final int DEFAULT_NGRAM_SIZE = 2;
+
+    private static final int MAGIC = 0x434b4e42;
+    private static final int VERSION = 1;
+    private static final int MAX_FEATURE_BITS = 24;
+    //largest array the JVM reliably allocates
+    private static final int MAX_WEIGHTS = Integer.MAX_VALUE - 8;
+    private static final double SMOOTHING = 1.0;
+    private static final Logger logger = Logger.getLogger(NaiveBayesIntentDetector.class.getName());
+
+    private final String[] intentIds;
+    private final float[] logPriors;
+    private final float[] unseenWeights;
+    private final float[] weights;
+    private final int featureBits;
+    private final int ngramSize;
+    private volatile double minScore = 0.0;
+
+    /**
+     * Trains a classifier with the default feature space and n-gram size.
+     *
+     * @param examples map of intent ids to example utterances
+     */
+    public NaiveBayesIntentDetector(Map<String, List<String>> examples) {
+        this(examples, DEFAULT_FEATURE_BITS, DEFAULT_NGRAM_SIZE);
+    }
+
+    /**
+     * Trains a classifier.
+     *
+     * @param examples map of intent ids to example utterances
+     * @param featureBits the number of hashed features is
+     * <code>2^featureBits</code>
+     * @param ngramSize the longest word n-gram used as a feature
+     */
+    public NaiveBayesIntentDetector(Map<String, List<String>> examples, int featureBits, int ngramSize) {
+        if (featureBits < 1 || featureBits > MAX_FEATURE_BITS) {
+            throw new IllegalArgumentException("featureBits must be between 1 and " + MAX_FEATURE_BITS);
+        }
+        if (ngramSize < 1) {
+            throw new IllegalArgumentException("ngramSize must be at least 1");
+        }
+        this.featureBits = featureBits;
+        this.ngramSize = ngramSize;
+
+        final int numIntents = examples.size();
+        final int numFeatures = 1 << featureBits;
+        this.intentIds = new String[numIntents];
+        this.logPriors = new float[numIntents];
+        this.unseenWeights = new float[numIntents];
+        this.weights = new float[numFeatures * numIntents];
+
+        int totalExamples = 0;
+        for (List<String> utterances : examples.values()) {
+            totalExamples += utterances.size();
+        }
+
+        final int[] counts = new int[numFeatures];
+        int c = 0;
+        for (Map.Entry<String, List<String>> entry : examples.entrySet()) {
+            intentIds[c] = entry.getKey();
+            logPriors[c] = (float) Math.log((entry.getValue().size() + SMOOTHING) / (totalExamples + SMOOTHING * numIntents));
+
+            Arrays.fill(counts, 0);
+            final int[] total = new int[1];
+            for (String utterance : entry.getValue()) {
+                forEachFeature(utterance, (feature) -> {
+                    counts[feature]++;
+                    total[0]++;
+                });
+            }
+
+            double denominator = total[0] + SMOOTHING * numFeatures;
+            unseenWeights[c] = (float) Math.log(SMOOTHING / denominator);
+            for (int f = 0; f < numFeatures; f++) {
+                weights[f * numIntents + c] = (counts[f] == 0)
+                        ? unseenWeights[c]
+                        : (float) Math.log((counts[f] + SMOOTHING) / denominator);
+            }
+            c++;
+        }
+        logger.log(Level.INFO, "Trained naive Bayes model with {0} intents from {1} examples", new Object[]{numIntents, totalExamples});
+    }
+
+    private NaiveBayesIntentDetector(String[] intentIds, float[] logPriors, float[] unseenWeights, float[] weights, int featureBits, int ngramSize) {
+        this.intentIds = intentIds;
+        this.logPriors = logPriors;
+        this.unseenWeights = unseenWeights;
+        this.weights = weights;
+        this.featureBits = featureBits;
+        this.ngramSize = ngramSize;
+    }
+
+    /**
+     * Sets the minimum score an intent must reach to be returned. Defaults
+     * to 0.
+     *
+     * @param minScore probability between 0 and 1
+     */
+    public void setMinScore(double minScore) {
+        this.minScore = minScore;
+    }
+
+    @Override
+    public Optional<IConversationIntent> detectIntent(String text, String languageCode, String sessionId) {
+        List<IConversationIntent> ranked = detectIntents(text, languageCode, sessionId, 1);
+        if (ranked.isEmpty()) {
+            logger.log(Level.FINE, "No matching intent for {0}", text);
+            return Optional.empty();
+        }
+        logger.log(Level.FINE, "Matched intent {0}", ranked.get(0));
+        return Optional.of(ranked.get(0));
+    }
+
+    /**
+     * Classifies the text and returns up to <code>maxResults</code> of the most
+     * likely intents, best first. Confidences are posterior probabilities that
+     * sum to 1 across all intents of the model. Intents below the minimum
+     * score are left out.
+     *
+     * @param text user input
+     * @param languageCode ignored, the model is trained for one language
+     * @param sessionId ignored
+     * @param maxResults maximum number of intents to return
+     * @return ranked intents, empty if the text contains no words
+     */
+    @Override
+    public List<IConversationIntent> detectIntents(String text, String languageCode, String sessionId, int maxResults) {
+        final int numIntents = intentIds.length;
+        final double[] scores = new double[numIntents];
+        final int[] tokens = new int[1];
+        forEachFeature(text, (feature) -> {
+            int offset = feature * numIntents;
+            for (int c = 0; c < numIntents; c++) {
+                scores[c] += weights[offset + c];
+            }
+            tokens[0]++;
+        });
+        if (tokens[0] == 0 || numIntents == 0) {
+            return new ArrayList();
+        }
+
+        //normalize the log scores into probabilities
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < numIntents; c++) {
+            scores[c] += logPriors[c];
+            max = Math.max(max, scores[c]);
+        }
+        double sum = 0;
+        for (int c = 0; c < numIntents; c++) {
+            scores[c] = Math.exp(scores[c] - max);
+            sum += scores[c];
+        }
+
+        int limit = Math.min(maxResults, numIntents);
+        List<IConversationIntent> ranked = new ArrayList(limit);
+        for (int i = 0; i < limit; i++) {
+            int best = 0;
+            for (int c = 1; c < numIntents; c++) {
+                if (scores[c] > scores[best]) {
+                    best = c;
+                }
+            }
+            double confidence = scores[best] / sum;
+            if (confidence < minScore) {
+                break;
+            }
+            ranked.add(new ScoredIntent(intentIds[best], confidence));
+            scores[best] = -1;
+        }
+        return ranked;
+    }
+
+    /**
+     * Writes the model in a compact binary format that can be read with
+     * {@link #readModel(java.io.InputStream)}.
+     *
+     * @param out destination stream, not closed by this method
+     * @throws IOException if the model cannot be written
+     */
+    public void writeModel(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        final int numIntents = intentIds.length;
+        final int numFeatures = 1 << featureBits;
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeByte(featureBits);
+        data.writeByte(ngramSize);
+        data.writeInt(numIntents);
+        for (int c = 0; c < numIntents; c++) {
+            data.writeUTF(intentIds[c]);
+            data.writeFloat(logPriors[c]);
+            data.writeFloat(unseenWeights[c]);
+
+            int seen = 0;
+            for (int f = 0; f < numFeatures; f++) {
+                if (weights[f * numIntents + c] != unseenWeights[c]) {
+                    seen++;
+                }
+            }
+            data.writeInt(seen);
+            for (int f = 0; f < numFeatures; f++) {
+                float w = weights[f * numIntents + c];
+                if (w != unseenWeights[c]) {
+                    data.writeInt(f);
+                    data.writeFloat(w);
+                }
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a model written by {@link #writeModel(java.io.OutputStream)}.
+     *
+     * @param in source stream, not closed by this method
+     * @return a detector using the stored model
+     * @throws IOException if the stream is not a valid model
+     */
+    public static NaiveBayesIntentDetector readModel(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a naive Bayes intent model");
+        }
+        int version = data.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported model version " + version);
+        }
+        int featureBits = data.readByte();
+        if (featureBits < 1 || featureBits > MAX_FEATURE_BITS) {
+            throw new IOException("Invalid featureBits " + featureBits);
+        }
+        int ngramSize = data.readByte();
+        if (ngramSize < 1) {
+            throw new IOException("Invalid ngramSize " + ngramSize);
+        }
+        int numIntents = data.readInt();
+        int numFeatures = 1 << featureBits;
+        if (numIntents < 0 || (long) numFeatures * numIntents > MAX_WEIGHTS) {
+            throw new IOException("Invalid intent count " + numIntents + " for " + numFeatures + " features");
+        }
+
+        String[] intentIds = new String[numIntents];
+        float[] logPriors = new float[numIntents];
+        float[] unseenWeights = new float[numIntents];
+        float[] weights = new float[numFeatures * numIntents];
+        for (int c = 0; c < numIntents; c++) {
+            intentIds[c] = data.readUTF();
+            logPriors[c] = data.readFloat();
+            unseenWeights[c] = data.readFloat();
+            for (int f = 0; f < numFeatures; f++) {
+                weights[f * numIntents + c] = unseenWeights[c];
+            }
+            int seen = data.readInt();
+            if (seen < 0 || seen > numFeatures) {
+                throw new IOException("Invalid feature count " + seen);
+            }
+            for (int i = 0; i < seen; i++) {
+                int f = data.readInt();
+                if (f < 0 || f >= numFeatures) {
+                    throw new IOException("Invalid feature index " + f);
+                }
+                weights[f * numIntents + c] = data.readFloat();
+            }
+        }
+        return new NaiveBayesIntentDetector(intentIds, logPriors, unseenWeights, weights, featureBits, ngramSize);
+    }
+
+    /**
+     * Tokenizes the text and passes the hashed index of every word n-gram to
+     * the consumer. Tokens are hashed as they are read so no substrings are
+     * created.
+     */
+    private void forEachFeature(CharSequence text, IntConsumer consumer) {
+        final int mask = (1 << featureBits) - 1;
+        //hashes of the most recent tokens, newest first
+        final int[] recent = new int[ngramSize];
+        int tokenCount = 0;
+        int hash = 0;
+        boolean inToken = false;
+        for (int i = 0, len = text.length(); i <= len; i++) {
+            char ch = (i < len) ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                if (!inToken) {
+                    hash = 0x811c9dc5;
+                    inToken = true;
+                }
+                hash = (hash ^ Character.toLowerCase(ch)) * 0x01000193;
+            } else if (inToken) {
+                inToken = false;
+                System.arraycopy(recent, 0, recent, 1, ngramSize - 1);
+                recent[0] = hash;
+                tokenCount++;
+
+                int gram = 0;
+                for (int n = 0; n < ngramSize && n < tokenCount; n++) {
+                    gram = gram * 0x9e3779b1 + recent[n];
+                    consumer.accept(mix(gram + n) & mask);
+                }
+            }
+        }
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+}
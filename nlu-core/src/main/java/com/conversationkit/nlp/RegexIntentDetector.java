@@ -24,10 +24,17 @@
 package com.conversationkit.nlp;
 
 import com.conversationkit.model.IConversationIntent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -36,16 +43,35 @@ import java.util.regex.Pattern;
  * A primitive intent detector that just tries to match the input string to
  * RegEx patterns. There is also limited support for slot filling using named
  * RegEx groups.
+ * <p>
+ * Patterns are checked with {@link RegexPatternAnalyzer} when the detector is
+ * created. Patterns with nested quantifiers are logged, or rejected if
+ * <code>rejectUnsafePatterns</code> is set. At runtime each pattern may read at
+ * most <code>maxMatchSteps</code> characters of the input per message; a match
+ * that runs over the budget is abandoned and treated as a miss, so one hostile
+ * message cannot stall the calling thread.
+ * <p>
+ * If a {@link TextNormalizer} is supplied, messages are normalized before
+ * matching and slot values are taken from the normalized text. When the
+ * normalizer folds case the patterns are compiled case sensitively, which is
+ * cheaper than <code>CASE_INSENSITIVE</code> matching, after their literals
+ * are lower-cased with {@link RegexPatternAnalyzer#foldLiteralCase}.
  *
  * @author pdtyreus
  */
 public class RegexIntentDetector implements IntentDetector<IConversationIntent> {
 
-    public static final String YES = "\\bk\\b|\\bok\\b|\\byes\\b|\\byep\\b|\\byeah\\b|\\bsome\\b|\\a little\\b|\\ba bit\\b";
+    public static final String YES = "\\bk\\b|\\bok\\b|\\byes\\b|\\byep\\b|\\byeah\\b|\\bsome\\b|\\ba little\\b|\\ba bit\\b";
     public static final String NO = "\\bno\\b|\\bnope\\b|\\bnah\\b|\\bnone\\b|\\bnot really\\b";
 
+    public static final long DEFAULT_MAX_MATCH_STEPS = 1000000;
+
     private final Map<String, Pattern> intentRegexMap;
     private final Map<String, List<RegexIntentSlot>> intentSlotMap;
+    //symbols are assigned once here instead of for every detected intent
+    private final Map<String, Integer> intentSymbols = new HashMap();
+    private final long maxMatchSteps;
+    private final TextNormalizer normalizer;
     private static final Logger logger = Logger.getLogger(RegexIntentDetector.class.getName());
 
     public RegexIntentDetector(Map<String, String> intentRegexMap) {
@@ -53,68 +79,243 @@ public class RegexIntentDetector implements IntentDetector<IConversationIntent>
     }
 
     public RegexIntentDetector(Map<String, String> intentRegexMap, Map<String, List<RegexIntentSlot>> intentSlotMap) {
-        this.intentRegexMap = new HashMap();
+        this(intentRegexMap, intentSlotMap, false, DEFAULT_MAX_MATCH_STEPS);
+    }
+
+    /**
+     * @param intentRegexMap patterns by intent id, tried in iteration order
+     * @param intentSlotMap named groups to extract as slots, by intent id
+     * @param rejectUnsafePatterns throw instead of logging a warning when a
+     * pattern contains nested quantifiers
+     * @param maxMatchSteps characters each pattern may read per message before
+     * the match is abandoned, 0 for no limit
+     * @throws IllegalArgumentException if <code>rejectUnsafePatterns</code> is
+     * set and a pattern contains nested quantifiers
+     */
+    public RegexIntentDetector(Map<String, String> intentRegexMap, Map<String, List<RegexIntentSlot>> intentSlotMap, boolean rejectUnsafePatterns, long maxMatchSteps) {
+        this(intentRegexMap, intentSlotMap, rejectUnsafePatterns, maxMatchSteps, null);
+    }
+
+    /**
+     * @param intentRegexMap patterns by intent id, tried in iteration order
+     * @param intentSlotMap named groups to extract as slots, by intent id
+     * @param rejectUnsafePatterns throw instead of logging a warning when a
+     * pattern contains nested quantifiers
+     * @param maxMatchSteps characters each pattern may read per message before
+     * the match is abandoned, 0 for no limit
+     * @param normalizer applied to each message before matching, may be null
+     * @throws IllegalArgumentException if <code>rejectUnsafePatterns</code> is
+     * set and a pattern contains nested quantifiers
+     */
+    public RegexIntentDetector(Map<String, String> intentRegexMap, Map<String, List<RegexIntentSlot>> intentSlotMap, boolean rejectUnsafePatterns, long maxMatchSteps, TextNormalizer normalizer) {
+        boolean foldCase = normalizer != null && normalizer.isFoldCase();
+        int flags = foldCase ? 0 : Pattern.CASE_INSENSITIVE;
+        this.intentRegexMap = new LinkedHashMap();
         for (Map.Entry<String, String> entry : intentRegexMap.entrySet()) {
-            this.intentRegexMap.put(entry.getKey(), Pattern.compile(entry.getValue(), Pattern.CASE_INSENSITIVE));
+            List<String> problems = RegexPatternAnalyzer.findNestedQuantifiers(entry.getValue());
+            if (!problems.isEmpty()) {
+                String message = String.format("Pattern for intent %s may backtrack catastrophically: %s", entry.getKey(), problems);
+                if (rejectUnsafePatterns) {
+                    throw new IllegalArgumentException(message);
+                }
+                logger.warning(message);
+            }
+            String regex = foldCase ? RegexPatternAnalyzer.foldLiteralCase(entry.getValue()) : entry.getValue();
+            this.intentRegexMap.put(entry.getKey(), Pattern.compile(regex, flags));
+            this.intentSymbols.put(entry.getKey(), IntentSymbolTable.getDefault().intern(entry.getKey()));
         }
         this.intentSlotMap = intentSlotMap;
+        this.maxMatchSteps = maxMatchSteps;
+        this.normalizer = normalizer;
+    }
+
+    /**
+     * @return the ids of the intents this detector can return, in the order
+     * they are tried
+     */
+    public Set<String> getIntentIds() {
+        return Collections.unmodifiableSet(intentRegexMap.keySet());
     }
 
     @Override
     public Optional<IConversationIntent> detectIntent(String text, String languageCode, String sessionId) {
+        List<IConversationIntent> intents = detectIntents(text, languageCode, sessionId, 1);
+        if (intents.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(intents.get(0));
+    }
+
+    /**
+     * Returns the intents of all patterns that match the text, in the order the
+     * patterns were supplied.
+     */
+    @Override
+    public List<IConversationIntent> detectIntents(String text, String languageCode, String sessionId, int maxResults) {
 
+        List<IConversationIntent> intents = new ArrayList();
+        CharSequence subject = normalizer != null ? normalizer.normalize(text) : text;
+        InterruptibleCharSequence input = maxMatchSteps > 0 ? new InterruptibleCharSequence(subject, maxMatchSteps) : null;
         for (Map.Entry<String, Pattern> entry : intentRegexMap.entrySet()) {
-            final Matcher matcher = entry.getValue().matcher(text);
-            if (matcher.find()) {
-                logger.info(String.format("Matched intent %s with regex %s", entry.getKey(), entry.getValue()));
+            if (intents.size() >= maxResults) {
+                break;
+            }
+            final Matcher matcher;
+            if (input != null) {
+                input.reset();
+                matcher = entry.getValue().matcher(input);
+            } else {
+                matcher = entry.getValue().matcher(subject);
+            }
+            try {
+                if (matcher.find()) {
+                    logger.info(String.format("Matched intent %s with regex %s", entry.getKey(), entry.getValue()));
+                    intents.add(createIntent(entry.getKey(), matcher));
+                }
+            } catch (InterruptibleCharSequence.BudgetExceededException ex) {
+                logger.log(Level.WARNING, "Gave up matching intent {0}: {1}", new Object[]{entry.getKey(), ex.getMessage()});
+            }
 
-                final Map<String, Object> slots = new HashMap();
+        }
+        if (intents.isEmpty()) {
+            logger.info(String.format("No matching intent for %s", text));
+        }
+        return intents;
+    }
 
-                final List<RegexIntentSlot> intentSlots = intentSlotMap.get(entry.getKey());
+    /**
+     * Matches partial transcripts while carrying results over between them. A
+     * pattern's result depends only on the characters the matcher read; if the
+     * matcher never reached the end of the input and the new partial starts
+     * with those same characters, the result still holds and the pattern is
+     * not run again. Patterns that have not matched yet usually have to read
+     * to the end, so they are run on every partial.
+     */
+    @Override
+    public IncrementalIntentDetector<IConversationIntent> startIncremental(String languageCode, String sessionId) {
+        return new IncrementalRegexMatch();
+    }
 
-                if (intentSlots != null) {
-                    for (RegexIntentSlot intentSlot : intentSlots) {
-                        slots.put(intentSlot.getGroupName(), matcher.group(intentSlot.getGroupName()));
+    private class IncrementalRegexMatch implements IncrementalIntentDetector<IConversationIntent> {
+
+        private final String[] intentIds = intentRegexMap.keySet().toArray(new String[intentRegexMap.size()]);
+        private final Pattern[] patterns = intentRegexMap.values().toArray(new Pattern[intentRegexMap.size()]);
+        private final IConversationIntent[] results = new IConversationIntent[patterns.length];
+        //length of the prefix each result depends on, -1 if it has to be recomputed
+        private final int[] dependsOn = new int[patterns.length];
+        private String previous = "";
+        private Optional<IConversationIntent> latest = Optional.empty();
+
+        public IncrementalRegexMatch() {
+            Arrays.fill(dependsOn, -1);
+        }
+
+        @Override
+        public Optional<IConversationIntent> feed(String partialTranscript) {
+            String subject = normalizer != null ? normalizer.normalize(partialTranscript).toString() : partialTranscript;
+            int stable = 0;
+            int limit = Math.min(previous.length(), subject.length());
+            while (stable < limit && previous.charAt(stable) == subject.charAt(stable)) {
+                stable++;
+            }
+            previous = subject;
+
+            InterruptibleCharSequence input = new InterruptibleCharSequence(subject, maxMatchSteps > 0 ? maxMatchSteps : Long.MAX_VALUE);
+            latest = Optional.empty();
+            for (int i = 0; i < patterns.length; i++) {
+                if (dependsOn[i] < 0 || dependsOn[i] > stable) {
+                    input.reset();
+                    Matcher matcher = patterns[i].matcher(input);
+                    try {
+                        results[i] = matcher.find() ? createIntent(intentIds[i], matcher) : null;
+                        dependsOn[i] = matcher.hitEnd() ? -1 : input.getMaxIndexRead() + 1;
+                    } catch (InterruptibleCharSequence.BudgetExceededException ex) {
+                        logger.log(Level.WARNING, "Gave up matching intent {0}: {1}", new Object[]{intentIds[i], ex.getMessage()});
+                        results[i] = null;
+                        dependsOn[i] = -1;
                     }
                 }
+                if (!latest.isPresent() && results[i] != null) {
+                    latest = Optional.of(results[i]);
+                }
+            }
+            return latest;
+        }
+
+        @Override
+        public Optional<IConversationIntent> finish() {
+            return latest;
+        }
+    }
 
-                IConversationIntent intent = new IConversationIntent() {
+    private IConversationIntent createIntent(final String intentId, Matcher matcher) {
 
-                    @Override
-                    public String getIntentId() {
-                        return entry.getKey();
-                    }
+        final Map<String, Object> slots = new HashMap();
 
-                    @Override
-                    public Map<String, Object> getSlots() {
-                        return slots;
-                    }
+        final List<RegexIntentSlot> intentSlots = intentSlotMap.get(intentId);
+
+        if (intentSlots != null) {
+            for (RegexIntentSlot intentSlot : intentSlots) {
+                String value = null;
+                try {
+                    value = matcher.group(intentSlot.getGroupName());
+                } catch (IllegalArgumentException ex) {
+                    //no such group, the slot is left for another extractor such as a Gazetteer
+                }
+                slots.put(intentSlot.getGroupName(), value);
+            }
+        }
+
+        final int intentSymbol = intentSymbols.get(intentId);
+
+        return new IConversationIntent() {
+
+            @Override
+            public String getIntentId() {
+                return intentId;
+            }
 
-                    @Override
-                    public boolean getAllRequiredSlotsFilled() {
-                        boolean unfilled = false;
-                        if (intentSlots != null) {
-                            for (RegexIntentSlot intentSlot : intentSlots) {
-                                if (intentSlot.isRequired()) {
-                                    Object slot = slots.get(intentSlot.getGroupName());
-                                    if (slot == null) {
-                                        unfilled = true;
-                                    }
-                                }
+            @Override
+            public int getIntentSymbol() {
+                return intentSymbol;
+            }
+
+            @Override
+            public Map<String, Object> getSlots() {
+                return slots;
+            }
 
+            @Override
+            public boolean getAllRequiredSlotsFilled() {
+                boolean unfilled = false;
+                if (intentSlots != null) {
+                    for (RegexIntentSlot intentSlot : intentSlots) {
+                        if (intentSlot.isRequired()) {
+                            Object slot = slots.get(intentSlot.getGroupName());
+                            if (slot == null) {
+                                unfilled = true;
                             }
                         }
-                        return !unfilled;
-                    }
 
-                };
+                    }
+                }
+                return !unfilled;
+            }
 
-                return Optional.of(intent);
+            @Override
+            public Set<String> getRequiredSlots() {
+                Set<String> required = new HashSet();
+                if (intentSlots != null) {
+                    for (RegexIntentSlot intentSlot : intentSlots) {
+                        if (intentSlot.isRequired()) {
+                            required.add(intentSlot.getGroupName());
+                        }
+                    }
+                }
+                return required;
             }
 
-        }
-        logger.info(String.format("No matching intent for %s", text));
-        return Optional.empty();
+        };
     }
 
 }
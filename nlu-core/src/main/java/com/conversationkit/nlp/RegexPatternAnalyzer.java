@@ -0,0 +1,251 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Static checks for regular expressions that are prone to catastrophic
+ * backtracking.
+ * <p>
+ * The analyzer looks for a group repeated by an unbounded quantifier
+ * (<code>*</code>, <code>+</code> or <code>{n,}</code>) that itself contains an
+ * unbounded quantifier, as in <code>(a+)+</code> or <code>(\\w*\\s?)*</code>.
+ * On input that almost matches, the backtracking engine tries every way of
+ * splitting the text between the inner and outer loop, which takes exponential
+ * time. Atomic groups <code>(?&gt;...)</code> and possessive quantifiers such
+ * as <code>a++</code> never give back characters and are not reported.
+ * <p>
+ * The check is syntactic and conservative. It does not catch every slow
+ * pattern, so {@link RegexIntentDetector} also bounds the work done on each
+ * match at runtime.
+ *
+ * @author pdtyreus
+ */
+public final class RegexPatternAnalyzer {
+
+    private static class Group {
+
+        final int start;
+        final boolean atomic;
+        boolean unbounded;
+
+        Group(int start, boolean atomic) {
+            this.start = start;
+            this.atomic = atomic;
+        }
+    }
+
+    private RegexPatternAnalyzer() {
+    }
+
+    /**
+     * Finds the groups in a regular expression that repeat an unbounded
+     * quantifier with another unbounded quantifier.
+     *
+     * @param regex the regular expression
+     * @return a description of each nested quantifier found, empty if the
+     * pattern looks safe
+     */
+    public static List<String> findNestedQuantifiers(String regex) {
+        List<String> problems = new ArrayList();
+        Deque<Group> groups = new ArrayDeque();
+        //the outermost level of the pattern acts as a group that is never repeated
+        groups.push(new Group(0, false));
+
+        int i = 0;
+        final int length = regex.length();
+        while (i < length) {
+            char c = regex.charAt(i);
+            Group closed = null;
+            switch (c) {
+                case '\\':
+                    if (i + 1 < length && regex.charAt(i + 1) == 'Q') {
+                        int end = regex.indexOf("\\E", i + 2);
+                        i = end < 0 ? length : end + 2;
+                    } else {
+                        i += 2;
+                    }
+                    break;
+                case '[':
+                    i = skipCharacterClass(regex, i);
+                    break;
+                case '(':
+                    groups.push(new Group(i, regex.startsWith("(?>", i)));
+                    i++;
+                    continue;
+                case ')':
+                    if (groups.size() > 1) {
+                        closed = groups.pop();
+                    }
+                    i++;
+                    break;
+                default:
+                    i++;
+            }
+
+            //i now points just past an atom, check whether it is quantified
+            int quantifierEnd = quantifierEnd(regex, i);
+            boolean unbounded = quantifierEnd > i && isUnbounded(regex, i, quantifierEnd);
+            boolean possessive = quantifierEnd < length && quantifierEnd > i && regex.charAt(quantifierEnd) == '+';
+
+            if (closed != null) {
+                if (unbounded && !possessive && closed.unbounded && !closed.atomic) {
+                    problems.add(String.format("Nested quantifier in group %s at index %d",
+                            regex.substring(closed.start, i), closed.start));
+                }
+                if (!closed.atomic && (closed.unbounded || (unbounded && !possessive))) {
+                    groups.peek().unbounded = true;
+                }
+            } else if (unbounded && !possessive) {
+                groups.peek().unbounded = true;
+            }
+            if (quantifierEnd > i) {
+                i = quantifierEnd;
+                //lazy or possessive modifier
+                if (i < length && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+                    i++;
+                }
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Lower-cases the literal characters of a regular expression, the way a
+     * case-folding {@link TextNormalizer} lower-cases the text, so the pattern
+     * still matches without <code>CASE_INSENSITIVE</code>. Escapes such as
+     * <code>\\W</code> or <code>\\p{Lu}</code>, group names and inline
+     * flags are left as they are.
+     *
+     * @param regex the regular expression
+     * @return the pattern with lower-case literals
+     */
+    public static String foldLiteralCase(String regex) {
+        StringBuilder folded = new StringBuilder(regex.length());
+        final int length = regex.length();
+        int i = 0;
+        while (i < length) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                char escaped = regex.charAt(i + 1);
+                int end = i + 2;
+                if (escaped == 'Q') {
+                    int quoteEnd = regex.indexOf("\\E", end);
+                    quoteEnd = quoteEnd < 0 ? length : quoteEnd;
+                    folded.append(regex, i, end);
+                    fold(regex, end, quoteEnd, folded);
+                    i = quoteEnd;
+                    continue;
+                }
+                //named properties, back references and code points keep their argument
+                if (end < length && (regex.charAt(end) == '{' || regex.charAt(end) == '<') && "pPkxN".indexOf(escaped) >= 0) {
+                    int close = regex.indexOf(regex.charAt(end) == '{' ? '}' : '>', end);
+                    end = close < 0 ? length : close + 1;
+                }
+                folded.append(regex, i, end);
+                i = end;
+            } else if (c == '(' && regex.startsWith("(?", i)) {
+                //inline flags and group names up to the start of the group body
+                int end = i + 2;
+                if (regex.startsWith("(?<", i) && !regex.startsWith("(?<=", i) && !regex.startsWith("(?<!", i)) {
+                    int close = regex.indexOf('>', end);
+                    end = close < 0 ? length : close + 1;
+                } else {
+                    while (end < length && (Character.isLetter(regex.charAt(end)) || regex.charAt(end) == '-')) {
+                        end++;
+                    }
+                }
+                folded.append(regex, i, end);
+                i = end;
+            } else {
+                fold(regex, i, i + 1, folded);
+                i++;
+            }
+        }
+        return folded.toString();
+    }
+
+    private static void fold(String regex, int start, int end, StringBuilder folded) {
+        for (int i = start; i < end; i++) {
+            folded.append(Character.toLowerCase(Character.toUpperCase(regex.charAt(i))));
+        }
+    }
+
+    private static int skipCharacterClass(String regex, int start) {
+        int i = start + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        //a leading ] is a literal
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        int depth = 1;
+        while (i < regex.length() && depth > 0) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int quantifierEnd(String regex, int i) {
+        if (i >= regex.length()) {
+            return i;
+        }
+        char c = regex.charAt(i);
+        if (c == '*' || c == '+' || c == '?') {
+            return i + 1;
+        }
+        if (c == '{') {
+            int close = regex.indexOf('}', i);
+            if (close > i && regex.substring(i + 1, close).matches("\\d+(,\\d*)?")) {
+                return close + 1;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isUnbounded(String regex, int start, int end) {
+        char c = regex.charAt(start);
+        if (c == '*' || c == '+') {
+            return true;
+        }
+        //{n,} has no upper limit
+        return c == '{' && regex.charAt(end - 2) == ',';
+    }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A {@link RegexIntentDetector} whose patterns are read from a properties file
+ * and can be replaced while the application is running.
+ * <p>
+ * Each line of the file maps an intent id to a regular expression. Slots are
+ * listed under the key <code>intentId.slots</code> as a comma separated list
+ * of named groups; a group ending in <code>?</code> is optional. Intents are
+ * tried in the order they appear in the file.
+ * <pre>
+ * YES=\\byes\\b|\\byep\\b
+ * FOWL=(?&lt;number&gt;\\d)\\s(?&lt;type&gt;ducks|geese)
+ * FOWL.slots=number,type?
+ * </pre>
+ * On {@link #reload()} the file is parsed and compiled into a new
+ * <code>RegexIntentDetector</code> on the calling thread, then published with a
+ * single reference swap. Detections that already started finish on the old
+ * patterns. If the new file cannot be read, a pattern does not compile or is
+ * empty, or the file no longer contains any of the current intents, the
+ * current patterns stay in place. The last check catches a file that was read
+ * while it was still being written, which is usually still valid properties.
+ * To replace every intent on purpose, call {@link #forceReload()}.
+ * <p>
+ * {@link #startWatching()} reloads automatically whenever the file changes,
+ * once its size and modification time have stopped changing. Editors and
+ * deployment scripts should still write the new patterns to a temporary file
+ * in the same directory and rename it over the pattern file, so the watcher
+ * never sees a partly written file:
+ * <pre>
+ * Files.write(temp, content);
+ * Files.move(temp, patternFile, StandardCopyOption.ATOMIC_MOVE);
+ * </pre>
+ *
+ * @author pdtyreus
+ */
+public class ReloadableRegexIntentDetector implements IntentDetector<IConversationIntent>, Closeable {
+
+    public static final String SLOTS_SUFFIX = ".slots";
+
+    //how long the file must stay unchanged before the watcher reloads it
+    private static final long SETTLE_MILLIS = 200;
+    private static final int MAX_SETTLE_CHECKS = 50;
+
+    private static final Logger logger = Logger.getLogger(ReloadableRegexIntentDetector.class.getName());
+
+    private final Path patternFile;
+    private final AtomicReference<RegexIntentDetector> current = new AtomicReference();
+    private volatile WatchService watchService;
+
+    /**
+     * Creates the detector and loads the pattern file.
+     *
+     * @param patternFile properties file with the intent patterns
+     * @throws IOException if the file cannot be read or contains an invalid
+     * pattern
+     */
+    public ReloadableRegexIntentDetector(Path patternFile) throws IOException {
+        this.patternFile = patternFile.toAbsolutePath();
+        current.set(compile(this.patternFile));
+    }
+
+    @Override
+    public Optional<IConversationIntent> detectIntent(String text, String languageCode, String sessionId) {
+        return current.get().detectIntent(text, languageCode, sessionId);
+    }
+
+    @Override
+    public List<IConversationIntent> detectIntents(String text, String languageCode, String sessionId, int maxResults) {
+        return current.get().detectIntents(text, languageCode, sessionId, maxResults);
+    }
+
+    /**
+     * Reads and compiles the pattern file and, if that succeeds and the new
+     * patterns keep at least one of the current intents, swaps them in.
+     *
+     * @return true if the new patterns were published
+     */
+    public boolean reload() {
+        return reload(false);
+    }
+
+    /**
+     * Like {@link #reload()}, but publishes the new patterns even if they
+     * share no intent with the current ones.
+     *
+     * @return true if the new patterns were published
+     */
+    public boolean forceReload() {
+        return reload(true);
+    }
+
+    private synchronized boolean reload(boolean replaceAll) {
+        RegexIntentDetector next;
+        try {
+            next = compile(patternFile);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Keeping current intent patterns, unable to reload " + patternFile, ex);
+            return false;
+        }
+        if (!replaceAll && !sharesIntent(current.get(), next)) {
+            logger.log(Level.WARNING, "Keeping current intent patterns, {0} no longer contains any of them", patternFile);
+            return false;
+        }
+        current.set(next);
+        logger.log(Level.INFO, "Reloaded intent patterns from {0}", patternFile);
+        return true;
+    }
+
+    private static boolean sharesIntent(RegexIntentDetector previous, RegexIntentDetector next) {
+        for (String intentId : next.getIntentIds()) {
+            if (previous.getIntentIds().contains(intentId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts a daemon thread that calls {@link #reload()} whenever the pattern
+     * file is created or modified.
+     *
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        final WatchService watcher = FileSystems.getDefault().newWatchService();
+        patternFile.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = watcher;
+
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watcher.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        Object context = event.context();
+                        if (context instanceof Path && patternFile.getFileName().equals(context)) {
+                            changed = true;
+                        }
+                    }
+                    if (changed && waitUntilSettled()) {
+                        reload();
+                    }
+                    if (!key.reset()) {
+                        logger.log(Level.WARNING, "Stopped watching {0}", patternFile);
+                        return;
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                //closed
+            }
+        }, "intent-pattern-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits until the size and modification time of the pattern file stop
+     * changing, so a file that is still being written is not read.
+     *
+     * @return false if the file disappeared or never settled
+     */
+    private boolean waitUntilSettled() throws InterruptedException {
+        try {
+            long size = Files.size(patternFile);
+            long modified = Files.getLastModifiedTime(patternFile).toMillis();
+            for (int check = 0; check < MAX_SETTLE_CHECKS; check++) {
+                Thread.sleep(SETTLE_MILLIS);
+                long nextSize = Files.size(patternFile);
+                long nextModified = Files.getLastModifiedTime(patternFile).toMillis();
+                if (nextSize == size && nextModified == modified) {
+                    return true;
+                }
+                size = nextSize;
+                modified = nextModified;
+            }
+            logger.log(Level.WARNING, "Not reloading {0}, it kept changing", patternFile);
+            return false;
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Not reloading " + patternFile, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Stops watching the pattern file.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    private static RegexIntentDetector compile(Path file) throws IOException {
+        final Map<String, String> entries = new LinkedHashMap();
+        //Properties does not keep the order of the file, so record it as it loads
+        Properties properties = new Properties() {
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                entries.put((String) key, (String) value);
+                return super.put(key, value);
+            }
+        };
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        Map<String, String> intentRegexMap = new LinkedHashMap();
+        Map<String, List<RegexIntentSlot>> intentSlotMap = new HashMap();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            String key = entry.getKey();
+            if (key.endsWith(SLOTS_SUFFIX)) {
+                List<RegexIntentSlot> slots = new ArrayList();
+                for (String group : entry.getValue().split(",")) {
+                    group = group.trim();
+                    if (group.isEmpty()) {
+                        continue;
+                    }
+                    boolean optional = group.endsWith("?");
+                    slots.add(new RegexIntentSlot(optional ? group.substring(0, group.length() - 1) : group, !optional));
+                }
+                intentSlotMap.put(key.substring(0, key.length() - SLOTS_SUFFIX.length()), slots);
+            } else if (entry.getValue().trim().isEmpty()) {
+                //an empty pattern matches every message
+                throw new IOException("Empty pattern for " + key + " in " + file);
+            } else {
+                intentRegexMap.put(key, entry.getValue());
+            }
+        }
+        if (intentRegexMap.isEmpty()) {
+            throw new IOException("No intent patterns in " + file);
+        }
+
+        try {
+            return new RegexIntentDetector(intentRegexMap, intentSlotMap);
+        } catch (PatternSyntaxException ex) {
+            throw new IOException("Invalid pattern in " + file, ex);
+        }
+    }
+
+}
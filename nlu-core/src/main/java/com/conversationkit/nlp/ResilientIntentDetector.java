@@ -0,0 +1,419 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Wraps a remote {@link IntentDetector} with a per-call deadline and a
+ * failure-rate circuit breaker.
+ * <p>
+ * Each call to the delegate runs on an {@link ExecutorService} and is abandoned
+ * once the deadline passes. Exceptions and timeouts count as failures; an empty
+ * result does not, since "no intent" is a valid answer from an NLU service. When
+ * the failure rate over the last <code>windowSize</code> calls reaches the
+ * threshold the circuit opens and every call goes straight to the fallback
+ * detector. After <code>openMillis</code> a single probe call is let through
+ * (half-open). If the probe succeeds the circuit closes, otherwise it opens again.
+ * Each call remembers the state it started in, so a slow call that started
+ * before the circuit changed state cannot count as the probe or change the
+ * window.
+ * <p>
+ * By default calls run on a pool of at most {@link #DEFAULT_MAX_THREADS}
+ * daemon threads. A call the executor rejects counts as a failure.
+ * <p>
+ * Transitions are logged and counted in {@link #getMetrics()}, and can be
+ * observed with a {@link TransitionListener}.
+ *
+ * @author pdtyreus
+ * @param <I> type of intent returned by the delegate
+ */
+public class ResilientIntentDetector<I> implements IntentDetector<I> {
+
+    public static enum CircuitState {
+
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @FunctionalInterface
+    public interface TransitionListener {
+
+        public void onTransition(CircuitState from, CircuitState to);
+    }
+
+    /**
+     * Counters describing the calls made through the detector and the state
+     * transitions of the circuit breaker.
+     */
+    public static class Metrics {
+
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong shortCircuited = new AtomicLong();
+        private final AtomicLong fallbackCalls = new AtomicLong();
+        private final AtomicLong opened = new AtomicLong();
+        private final AtomicLong halfOpened = new AtomicLong();
+        private final AtomicLong closed = new AtomicLong();
+
+        public long getCalls() {
+            return calls.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public long getTimeouts() {
+            return timeouts.get();
+        }
+
+        public long getShortCircuited() {
+            return shortCircuited.get();
+        }
+
+        public long getFallbackCalls() {
+            return fallbackCalls.get();
+        }
+
+        public long getOpened() {
+            return opened.get();
+        }
+
+        public long getHalfOpened() {
+            return halfOpened.get();
+        }
+
+        public long getClosed() {
+            return closed.get();
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics {calls=" + calls + ", failures=" + failures + ", timeouts=" + timeouts
+                    + ", shortCircuited=" + shortCircuited + ", fallbackCalls=" + fallbackCalls
+                    + ", opened=" + opened + ", halfOpened=" + halfOpened + ", closed=" + closed + '}';
+        }
+    }
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+    public static final int DEFAULT_WINDOW_SIZE = 20;
+    public static final double DEFAULT_FAILURE_RATE = 0.5;
+    public static final long DEFAULT_OPEN_MILLIS = 30000;
+    public static final int DEFAULT_MAX_THREADS = 32;
+
+    private static final Logger logger = Logger.getLogger(ResilientIntentDetector.class.getName());
+
+    private final IntentDetector<? extends I> delegate;
+    private final IntentDetector<? extends I> fallback;
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final Metrics metrics = new Metrics();
+
+    //ring buffer of recent outcomes, guarded by this
+    private final boolean[] outcomes;
+    private int outcomeCount;
+    private int outcomeIndex;
+    private int failureCount;
+    private CircuitState state = CircuitState.CLOSED;
+    private long openedAt;
+    //incremented on every transition, so outcomes of older calls can be ignored
+    private long generation;
+    private boolean probeInFlight;
+    //transitions waiting to be reported, guarded by this
+    private final Queue<CircuitState[]> pendingTransitions = new ArrayDeque();
+    private volatile TransitionListener listener;
+
+    /**
+     * Creates a detector with the default deadline, window, threshold and open
+     * duration.
+     *
+     * @param delegate the remote detector to protect
+     * @param fallback detector used while the circuit is open or when the
+     * delegate fails, may be null
+     */
+    public ResilientIntentDetector(IntentDetector<? extends I> delegate, IntentDetector<? extends I> fallback) {
+        this(delegate, fallback, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a detector with the default window, threshold and open
+     * duration, running delegate calls on a pool of at most
+     * {@link #DEFAULT_MAX_THREADS} daemon threads.
+     *
+     * @param delegate the remote detector to protect
+     * @param fallback detector used while the circuit is open or when the
+     * delegate fails, may be null
+     * @param timeoutMillis per-call deadline for the delegate
+     */
+    public ResilientIntentDetector(IntentDetector<? extends I> delegate, IntentDetector<? extends I> fallback, long timeoutMillis) {
+        this(delegate, fallback, defaultExecutor(), timeoutMillis, DEFAULT_WINDOW_SIZE, DEFAULT_FAILURE_RATE, DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * @param delegate the remote detector to protect
+     * @param fallback detector used while the circuit is open or when the
+     * delegate fails, may be null
+     * @param executor executor that runs the delegate calls
+     * @param timeoutMillis per-call deadline for the delegate
+     * @param windowSize number of recent calls used to compute the failure rate
+     * @param failureRateThreshold failure rate between 0 and 1 that opens the
+     * circuit once the window is full
+     * @param openMillis how long the circuit stays open before a probe is
+     * allowed
+     */
+    public ResilientIntentDetector(IntentDetector<? extends I> delegate, IntentDetector<? extends I> fallback, ExecutorService executor, long timeoutMillis, int windowSize, double failureRateThreshold, long openMillis) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be at least 1");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+        }
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.outcomes = new boolean[windowSize];
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    private static ExecutorService defaultExecutor() {
+        return new ThreadPoolExecutor(0, DEFAULT_MAX_THREADS, 60L, TimeUnit.SECONDS, new SynchronousQueue(), (r) -> {
+            Thread t = new Thread(r, "intent-detector");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @param listener notified of every circuit transition, on the thread of
+     * the call that caused it and without holding the circuit lock; may be null
+     */
+    public void setTransitionListener(TransitionListener listener) {
+        this.listener = listener;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public synchronized CircuitState getCircuitState() {
+        return state;
+    }
+
+    @Override
+    public Optional<I> detectIntent(String text, String languageCode, String sessionId) {
+        return call((detector) -> (Optional<I>) detector.detectIntent(text, languageCode, sessionId), Optional.empty());
+    }
+
+    @Override
+    public List<I> detectIntents(String text, String languageCode, String sessionId, int maxResults) {
+        return call((detector) -> (List<I>) detector.detectIntents(text, languageCode, sessionId, maxResults), Collections.emptyList());
+    }
+
+    private <R> R call(Function<IntentDetector<? extends I>, R> request, R noResult) {
+        long permit = acquirePermission();
+        fireTransitions();
+        if (permit < 0) {
+            metrics.shortCircuited.incrementAndGet();
+            logger.log(Level.FINE, "Circuit is {0}, skipping delegate detector.", getCircuitState());
+            return callFallback(request, noResult);
+        }
+
+        metrics.calls.incrementAndGet();
+        Future<R> future;
+        try {
+            future = executor.submit(() -> request.apply(delegate));
+        } catch (RejectedExecutionException ex) {
+            logger.log(Level.WARNING, "Intent detection rejected by the executor.");
+            metrics.failures.incrementAndGet();
+            recordOutcome(permit, false);
+            fireTransitions();
+            return callFallback(request, noResult);
+        }
+        try {
+            R result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            recordOutcome(permit, true);
+            fireTransitions();
+            return result;
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            metrics.timeouts.incrementAndGet();
+            logger.log(Level.WARNING, "Intent detection timed out after {0}ms.", timeoutMillis);
+        } catch (ExecutionException ex) {
+            logger.log(Level.WARNING, "Intent detection failed.", ex.getCause());
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Interrupted while waiting for intent detection.");
+        }
+        metrics.failures.incrementAndGet();
+        recordOutcome(permit, false);
+        fireTransitions();
+        return callFallback(request, noResult);
+    }
+
+    private <R> R callFallback(Function<IntentDetector<? extends I>, R> request, R noResult) {
+        if (fallback == null) {
+            return noResult;
+        }
+        metrics.fallbackCalls.incrementAndGet();
+        return request.apply(fallback);
+    }
+
+    /**
+     * @return the generation the call starts in, or -1 if it may not call the
+     * delegate
+     */
+    private synchronized long acquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return generation;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return -1;
+                }
+                transition(CircuitState.HALF_OPEN);
+                probeInFlight = true;
+                return generation;
+            default:
+                //only one probe at a time while half open
+                if (probeInFlight) {
+                    return -1;
+                }
+                probeInFlight = true;
+                return generation;
+        }
+    }
+
+    private synchronized void recordOutcome(long permit, boolean success) {
+        if (permit != generation) {
+            //a call that started before the last transition
+            return;
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            //the only call of a half open generation is its probe
+            probeInFlight = false;
+            if (success) {
+                resetWindow();
+                transition(CircuitState.CLOSED);
+            } else {
+                open();
+            }
+            return;
+        }
+
+        if (outcomeCount == outcomes.length) {
+            if (!outcomes[outcomeIndex]) {
+                failureCount--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeIndex] = success;
+        if (!success) {
+            failureCount++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+
+        if (outcomeCount == outcomes.length && failureCount >= failureRateThreshold * outcomes.length) {
+            open();
+        }
+    }
+
+    private void resetWindow() {
+        outcomeCount = 0;
+        outcomeIndex = 0;
+        failureCount = 0;
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        resetWindow();
+        transition(CircuitState.OPEN);
+    }
+
+    private void transition(CircuitState next) {
+        CircuitState previous = state;
+        state = next;
+        generation++;
+        switch (next) {
+            case OPEN:
+                metrics.opened.incrementAndGet();
+                break;
+            case HALF_OPEN:
+                metrics.halfOpened.incrementAndGet();
+                break;
+            default:
+                metrics.closed.incrementAndGet();
+        }
+        logger.log(Level.INFO, "Intent detector circuit changed from {0} to {1}.", new Object[]{previous, next});
+        if (listener != null) {
+            pendingTransitions.add(new CircuitState[]{previous, next});
+        }
+    }
+
+    private synchronized CircuitState[] nextTransition() {
+        return pendingTransitions.poll();
+    }
+
+    /**
+     * Reports queued transitions to the listener. Called without holding the
+     * lock, so a slow listener does not block other calls.
+     */
+    private void fireTransitions() {
+        CircuitState[] transition;
+        while ((transition = nextTransition()) != null) {
+            TransitionListener l = listener;
+            if (l == null) {
+                continue;
+            }
+            try {
+                l.onTransition(transition[0], transition[1]);
+            } catch (RuntimeException ex) {
+                logger.log(Level.WARNING, "Circuit transition listener failed.", ex);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An intent produced by a local classifier together with a score between 0
+ * and 1 describing how confident the classifier is in the match.
+ *
+ * @author pdtyreus
+ */
+public class ScoredIntent implements IConversationIntent {
+
+    private final String intentId;
+    private final double score;
+    private final Map<String, Object> slots;
+    private final int intentSymbol;
+
+    public ScoredIntent(String intentId, double score) {
+        this(intentId, score, Collections.emptyMap());
+    }
+
+    public ScoredIntent(String intentId, double score, Map<String, Object> slots) {
+        this.intentId = intentId;
+        this.score = score;
+        this.slots = slots;
+        this.intentSymbol = intentId == null ? IntentSymbolTable.UNKNOWN : IntentSymbolTable.getDefault().intern(intentId);
+    }
+
+    @Override
+    public String getIntentId() {
+        return intentId;
+    }
+
+    @Override
+    public int getIntentSymbol() {
+        return intentSymbol;
+    }
+
+    @Override
+    public Map<String, Object> getSlots() {
+        return slots;
+    }
+
+    @Override
+    public boolean getAllRequiredSlotsFilled() {
+        return true;
+    }
+
+    @Override
+    public double getConfidence() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "ScoredIntent {" + intentId + ", " + score + '}';
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Puts user text into a canonical form before intent detection, so detectors
+ * and caches do not each deal with case, punctuation and spacing on their own.
+ * <p>
+ * The normalizer always collapses runs of whitespace into a single space and
+ * trims the ends. Optionally it
+ * <ul>
+ * <li>folds case, so "YES" and "yes" are the same text,</li>
+ * <li>strips punctuation, turning it into word breaks, except apostrophes
+ * which are dropped so that "don't" becomes "dont",</li>
+ * <li>folds accents, so "caf&eacute;" becomes "cafe". Precomposed Latin letters are
+ * mapped to their base letter and combining marks are removed.</li>
+ * </ul>
+ * {@link #normalize(CharSequence)} writes into a buffer owned by the calling
+ * thread and returns a view of it, so normalizing a message allocates nothing
+ * once the buffer has grown to fit. The returned sequence is only valid until
+ * the next call to <code>normalize</code> on the same normalizer and thread;
+ * call <code>toString()</code> to keep it.
+ *
+ * @author pdtyreus
+ */
+public class TextNormalizer {
+
+    private static final int FOLD_START = 0x00C0;
+    private static final int FOLD_END = 0x0250;
+    //base letter for each precomposed letter in Latin-1 Supplement and Latin Extended-A/B, 0 if none
+    private static final char[] ACCENT_FOLDS = new char[FOLD_END - FOLD_START];
+
+    static {
+        for (int cp = FOLD_START; cp < FOLD_END; cp++) {
+            String decomposed = Normalizer.normalize(String.valueOf((char) cp), Normalizer.Form.NFD);
+            if (decomposed.length() > 1 && decomposed.charAt(0) != cp) {
+                ACCENT_FOLDS[cp - FOLD_START] = decomposed.charAt(0);
+            }
+        }
+        //letters with a stroke have no canonical decomposition
+        ACCENT_FOLDS['\u00D8' - FOLD_START] = 'O';
+        ACCENT_FOLDS['\u00F8' - FOLD_START] = 'o';
+        ACCENT_FOLDS['\u0110' - FOLD_START] = 'D';
+        ACCENT_FOLDS['\u0111' - FOLD_START] = 'd';
+        ACCENT_FOLDS['\u0141' - FOLD_START] = 'L';
+        ACCENT_FOLDS['\u0142' - FOLD_START] = 'l';
+    }
+
+    private static final class NormalizedText implements CharSequence {
+
+        private char[] chars = new char[64];
+        private int length;
+
+        private void append(int codePoint) {
+            if (length + 2 > chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+            length += Character.toChars(codePoint, chars, length);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index >= length) {
+                throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+            }
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+            }
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+
+    private final boolean foldCase;
+    private final boolean stripPunctuation;
+    private final boolean foldAccents;
+    private final ThreadLocal<NormalizedText> buffers = ThreadLocal.withInitial(NormalizedText::new);
+
+    /**
+     * Creates a normalizer that folds case and strips punctuation but keeps
+     * accents.
+     */
+    public TextNormalizer() {
+        this(true, true, false);
+    }
+
+    public TextNormalizer(boolean foldCase, boolean stripPunctuation, boolean foldAccents) {
+        this.foldCase = foldCase;
+        this.stripPunctuation = stripPunctuation;
+        this.foldAccents = foldAccents;
+    }
+
+    public boolean isFoldCase() {
+        return foldCase;
+    }
+
+    public boolean isStripPunctuation() {
+        return stripPunctuation;
+    }
+
+    public boolean isFoldAccents() {
+        return foldAccents;
+    }
+
+    /**
+     * Normalizes the text into the buffer of the calling thread.
+     *
+     * @param text the raw text
+     * @return the normalized text, valid until the next call on this thread
+     */
+    public CharSequence normalize(CharSequence text) {
+        NormalizedText out = buffers.get();
+        out.length = 0;
+        boolean pendingSpace = false;
+
+        int i = 0;
+        while (i < text.length()) {
+            int cp = Character.codePointAt(text, i);
+            i += Character.charCount(cp);
+
+            boolean mark = isMark(cp);
+            if (foldAccents) {
+                if (mark) {
+                    continue;
+                }
+                cp = foldAccent(cp);
+            }
+            if (Character.isWhitespace(cp) || Character.isSpaceChar(cp)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (stripPunctuation && !mark && !Character.isLetterOrDigit(cp)) {
+                if (cp != '\'' && cp != '\u2019') {
+                    pendingSpace = true;
+                }
+                continue;
+            }
+            if (foldCase) {
+                cp = Character.toLowerCase(Character.toUpperCase(cp));
+            }
+            if (pendingSpace && out.length > 0) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+            out.append(cp);
+        }
+        return out;
+    }
+
+    private static boolean isMark(int cp) {
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK || type == Character.ENCLOSING_MARK;
+    }
+
+    private static int foldAccent(int cp) {
+        if (cp >= FOLD_START && cp < FOLD_END) {
+            char base = ACCENT_FOLDS[cp - FOLD_START];
+            if (base != 0) {
+                return base;
+            }
+        }
+        return cp;
+    }
+
+}
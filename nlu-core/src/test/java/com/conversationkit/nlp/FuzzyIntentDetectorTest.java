@@ -0,0 +1,76 @@
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class FuzzyIntentDetectorTest {
+
+    private static FuzzyIntentDetector createDetector() {
+        Map<String, List<String>> phrases = new HashMap();
+        phrases.put("YES", Arrays.asList("yes", "yeah", "yep"));
+        phrases.put("NO", Arrays.asList("no", "nope"));
+        phrases.put("CANCEL", Arrays.asList("cancel", "cancel my order"));
+        return new FuzzyIntentDetector(phrases);
+    }
+
+    @Test
+    public void testDetectIntent() {
+        System.out.println("detectIntent");
+        FuzzyIntentDetector instance = createDetector();
+
+        Optional<IConversationIntent> result = instance.detectIntent("Yes!", "en_US", "0");
+        assertEquals("YES", result.get().getIntentId());
+        assertEquals(1.0, result.get().getConfidence(), 0.0);
+
+        result = instance.detectIntent("yse", "en_US", "0");
+        assertEquals("YES", result.get().getIntentId());
+        assertEquals(2.0 / 3.0, result.get().getConfidence(), 0.0001);
+
+        result = instance.detectIntent("nop", "en_US", "0");
+        assertEquals("NO", result.get().getIntentId());
+
+        result = instance.detectIntent("cancle", "en_US", "0");
+        assertEquals("CANCEL", result.get().getIntentId());
+
+        result = instance.detectIntent("please cancle my ordr", "en_US", "0");
+        assertEquals("CANCEL", result.get().getIntentId());
+
+        assertFalse(instance.detectIntent("purple elephant", "en_US", "0").isPresent());
+    }
+
+    @Test
+    public void testShortWords() {
+        System.out.println("shortWords");
+        FuzzyIntentDetector instance = createDetector();
+
+        assertFalse(instance.detectIntent("I want a pizza", "en_US", "0").isPresent());
+        assertFalse(instance.detectIntent("a", "en_US", "0").isPresent());
+        assertFalse(instance.detectIntent("so", "en_US", "0").isPresent());
+        assertFalse(instance.detectIntent("is it on", "en_US", "0").isPresent());
+        assertEquals("NO", instance.detectIntent("no", "en_US", "0").get().getIntentId());
+
+        instance.setMinConfidence(0.7);
+        assertFalse(instance.detectIntent("yse", "en_US", "0").isPresent());
+        assertEquals("CANCEL", instance.detectIntent("cancle", "en_US", "0").get().getIntentId());
+    }
+
+    @Test
+    public void testDistance() {
+        System.out.println("distance");
+        assertEquals(0, FuzzyIntentDetector.distance("cancel", "cancel", 2));
+        assertEquals(1, FuzzyIntentDetector.distance("cancle", "cancel", 2));
+        assertEquals(2, FuzzyIntentDetector.distance("cncl", "cancel", 2));
+        assertEquals(Integer.MAX_VALUE, FuzzyIntentDetector.distance("cnc", "cancel", 2));
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class GazetteerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, String> cities() {
+        Map<String, String> entries = new HashMap();
+        entries.put("York", "York");
+        entries.put("New York", "New York");
+        entries.put("New York City", "New York");
+        entries.put("NYC", "New York");
+        entries.put("St. Louis", "Saint Louis");
+        entries.put("Newark", "Newark");
+        return entries;
+    }
+
+    @Test
+    public void testFindAll() {
+        System.out.println("findAll");
+        Gazetteer instance = Gazetteer.compile(cities());
+        assertEquals(6, instance.size());
+
+        List<Gazetteer.Match> matches = instance.findAll("Flying from New York City to St. Louis, not Newarkish or york.");
+        assertEquals(3, matches.size());
+        assertEquals("new york city", matches.get(0).getPhrase());
+        assertEquals("New York", matches.get(0).getValue());
+        assertEquals("st louis", matches.get(1).getPhrase());
+        assertEquals("Saint Louis", matches.get(1).getValue());
+        assertEquals("York", matches.get(2).getValue());
+
+        assertEquals("New York", instance.get("nyc"));
+        assertNull(instance.get("new"));
+        assertTrue(instance.findAll("nowhere").isEmpty());
+    }
+
+    @Test
+    public void testWriteLoad() throws IOException {
+        System.out.println("write/load");
+        Path file = folder.newFile("cities.gaz").toPath();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            Gazetteer.compile(cities()).write(out);
+        }
+
+        Gazetteer instance = Gazetteer.load(file);
+        assertEquals(6, instance.size());
+        List<Gazetteer.Match> matches = instance.findAll("a trip to new york");
+        assertEquals(1, matches.size());
+        assertEquals("New York", matches.get(0).getValue());
+        assertEquals(10, matches.get(0).getStart());
+        assertEquals(18, matches.get(0).getEnd());
+    }
+
+    @Test
+    public void testFillSlots() {
+        System.out.println("detectIntent");
+        Map<String, String> intentMap = new HashMap();
+        intentMap.put("BOOK", "book a (?<size>single|double)?\\s?room");
+        Map<String, List<RegexIntentSlot>> slotMap = new HashMap();
+        List<RegexIntentSlot> slots = new ArrayList();
+        slots.add(new RegexIntentSlot("size", true));
+        slots.add(new RegexIntentSlot("city", true));
+        slotMap.put("BOOK", slots);
+
+        Map<String, Gazetteer> gazetteers = new HashMap();
+        gazetteers.put("city", Gazetteer.compile(cities()));
+        GazetteerIntentDetector instance = new GazetteerIntentDetector(new RegexIntentDetector(intentMap, slotMap), gazetteers);
+
+        Optional<IConversationIntent> result = instance.detectIntent("Book a double room in NYC", "en_US", "0");
+        assertTrue(result.isPresent());
+        assertEquals("BOOK", result.get().getIntentId());
+        assertEquals("double", result.get().getSlots().get("size"));
+        assertEquals("New York", result.get().getSlots().get("city"));
+        assertTrue(result.get().getAllRequiredSlotsFilled());
+
+        result = instance.detectIntent("Book a room in NYC", "en_US", "0");
+        assertEquals("New York", result.get().getSlots().get("city"));
+        assertFalse(result.get().getAllRequiredSlotsFilled());
+
+        assertFalse(instance.detectIntent("hello", "en_US", "0").isPresent());
+    }
+
+    @Test
+    public void testOptionalSlotLeftEmpty() {
+        System.out.println("testOptionalSlotLeftEmpty");
+        Map<String, String> intentMap = new HashMap();
+        intentMap.put("BOOK", "book a (?<size>single|double)?\\s?room");
+        Map<String, List<RegexIntentSlot>> slotMap = new HashMap();
+        List<RegexIntentSlot> slots = new ArrayList();
+        slots.add(new RegexIntentSlot("size", false));
+        slots.add(new RegexIntentSlot("city", true));
+        slotMap.put("BOOK", slots);
+
+        Map<String, Gazetteer> gazetteers = new HashMap();
+        gazetteers.put("city", Gazetteer.compile(cities()));
+        GazetteerIntentDetector instance = new GazetteerIntentDetector(new RegexIntentDetector(intentMap, slotMap), gazetteers);
+
+        //the optional size is still null but every required slot is filled
+        Optional<IConversationIntent> result = instance.detectIntent("Book a room in NYC", "en_US", "0");
+        assertTrue(result.get().getSlots().containsKey("size"));
+        assertNull(result.get().getSlots().get("size"));
+        assertEquals("New York", result.get().getSlots().get("city"));
+        assertTrue(result.get().getAllRequiredSlotsFilled());
+
+        result = instance.detectIntent("Book a room", "en_US", "0");
+        assertFalse(result.get().getAllRequiredSlotsFilled());
+    }
+
+    @Test
+    public void testStartIncremental() {
+        System.out.println("startIncremental");
+        Map<String, String> intentMap = new HashMap();
+        intentMap.put("BOOK", "book a (?<size>single|double)?\\s?room");
+        Map<String, List<RegexIntentSlot>> slotMap = new HashMap();
+        List<RegexIntentSlot> slots = new ArrayList();
+        slots.add(new RegexIntentSlot("size", true));
+        slots.add(new RegexIntentSlot("city", true));
+        slotMap.put("BOOK", slots);
+        final RegexIntentDetector regex = new RegexIntentDetector(intentMap, slotMap);
+        final AtomicInteger started = new AtomicInteger();
+        IntentDetector<IConversationIntent> delegate = new IntentDetector<IConversationIntent>() {
+            @Override
+            public Optional<IConversationIntent> detectIntent(String text, String languageCode, String sessionId) {
+                return regex.detectIntent(text, languageCode, sessionId);
+            }
+
+            @Override
+            public IncrementalIntentDetector<IConversationIntent> startIncremental(String languageCode, String sessionId) {
+                started.incrementAndGet();
+                return regex.startIncremental(languageCode, sessionId);
+            }
+        };
+
+        Map<String, Gazetteer> gazetteers = new HashMap();
+        gazetteers.put("city", Gazetteer.compile(cities()));
+        GazetteerIntentDetector instance = new GazetteerIntentDetector(delegate, gazetteers);
+
+        IncrementalIntentDetector<IConversationIntent> incremental = instance.startIncremental("en_US", "0");
+        assertEquals(1, started.get());
+        assertFalse(incremental.feed("Book a").isPresent());
+        Optional<IConversationIntent> result = incremental.feed("Book a double room");
+        assertTrue(result.isPresent());
+        assertNull(result.get().getSlots().get("city"));
+        result = incremental.feed("Book a double room in NYC");
+        assertEquals("New York", result.get().getSlots().get("city"));
+        assertTrue(result.get().getAllRequiredSlotsFilled());
+
+        result = incremental.finish();
+        assertEquals("BOOK", result.get().getIntentId());
+        assertEquals("double", result.get().getSlots().get("size"));
+        assertEquals("New York", result.get().getSlots().get("city"));
+    }
+
+}
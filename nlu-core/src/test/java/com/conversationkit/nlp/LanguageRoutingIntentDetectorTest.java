@@ -0,0 +1,84 @@
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class LanguageRoutingIntentDetectorTest {
+
+    private static RegexIntentDetector detector(String intentId, String regex) {
+        Map<String, String> intentMap = new HashMap();
+        intentMap.put(intentId, regex);
+        return new RegexIntentDetector(intentMap);
+    }
+
+    @Test
+    public void testRoute() {
+        System.out.println("route");
+        RegexIntentDetector english = detector("YES", "yes");
+        RegexIntentDetector french = detector("YES", "oui");
+        RegexIntentDetector canadianFrench = detector("YES", "ouais");
+        LanguageRoutingIntentDetector<IConversationIntent> instance = new LanguageRoutingIntentDetector<>(english);
+        instance.register("fr", french);
+        instance.register("fr_CA", canadianFrench);
+
+        assertSame(canadianFrench, instance.route("fr-CA"));
+        assertSame(french, instance.route("FR-fr"));
+        assertSame(french, instance.route("fr"));
+        assertSame(english, instance.route("de-DE"));
+        assertSame(english, instance.route(null));
+    }
+
+    @Test
+    public void testDetectIntent() {
+        System.out.println("detectIntent");
+        LanguageRoutingIntentDetector<IConversationIntent> instance = new LanguageRoutingIntentDetector<>();
+        instance.register("fr", detector("YES", "oui"));
+
+        assertTrue(instance.detectIntent("oui", "fr-FR", "0").isPresent());
+        assertFalse(instance.detectIntent("yes", "fr-FR", "0").isPresent());
+        //no detector for the language and no default
+        assertFalse(instance.detectIntent("oui", "en-US", "0").isPresent());
+        assertTrue(instance.detectIntents("oui", "en-US", "0", 3).isEmpty());
+    }
+    @Test
+    public void testStartIncremental() {
+        System.out.println("startIncremental");
+        final RegexIntentDetector french = detector("YES", "oui");
+        final AtomicInteger started = new AtomicInteger();
+        LanguageRoutingIntentDetector<IConversationIntent> instance = new LanguageRoutingIntentDetector<>();
+        instance.register("fr", new IntentDetector<IConversationIntent>() {
+            @Override
+            public Optional<IConversationIntent> detectIntent(String text, String languageCode, String sessionId) {
+                return french.detectIntent(text, languageCode, sessionId);
+            }
+
+            @Override
+            public IncrementalIntentDetector<IConversationIntent> startIncremental(String languageCode, String sessionId) {
+                started.incrementAndGet();
+                return french.startIncremental(languageCode, sessionId);
+            }
+        });
+
+        IncrementalIntentDetector<IConversationIntent> incremental = instance.startIncremental("fr-FR", "0");
+        assertEquals(1, started.get());
+        assertFalse(incremental.feed("ou").isPresent());
+        assertTrue(incremental.feed("oui").isPresent());
+        assertEquals("YES", incremental.finish().get().getIntentId());
+
+        //no detector for the language and no default
+        incremental = instance.startIncremental("en-US", "0");
+        assertFalse(incremental.feed("oui").isPresent());
+        assertFalse(incremental.finish().isPresent());
+        assertEquals(1, started.get());
+    }
+
+}
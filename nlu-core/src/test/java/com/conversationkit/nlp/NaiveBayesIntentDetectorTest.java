@@ -0,0 +1,128 @@
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class NaiveBayesIntentDetectorTest {
+
+    private static Map<String, List<String>> examples() {
+        Map<String, List<String>> examples = new HashMap();
+        examples.put("ORDER_BURGER", Arrays.asList(
+                "I would like a cheeseburger",
+                "let me have a regular burger",
+                "one hamburger please",
+                "can I get a burger"));
+        examples.put("ORDER_DRINK", Arrays.asList(
+                "I would like a coke",
+                "a large soda please",
+                "can I get something to drink",
+                "one lemonade"));
+        examples.put("CANCEL", Arrays.asList(
+                "cancel my order",
+                "never mind",
+                "forget it",
+                "stop the order"));
+        return examples;
+    }
+
+    @Test
+    public void testDetectIntent() {
+        System.out.println("detectIntent");
+        NaiveBayesIntentDetector instance = new NaiveBayesIntentDetector(examples());
+
+        Optional<IConversationIntent> result = instance.detectIntent("Can I have a cheeseburger?", "en_US", "0");
+        assertTrue(result.isPresent());
+        assertEquals("ORDER_BURGER", result.get().getIntentId());
+
+        result = instance.detectIntent("a soda", "en_US", "0");
+        assertEquals("ORDER_DRINK", result.get().getIntentId());
+
+        result = instance.detectIntent("please cancel the order", "en_US", "0");
+        assertEquals("CANCEL", result.get().getIntentId());
+
+        assertFalse(instance.detectIntent("?!", "en_US", "0").isPresent());
+
+        instance.setMinScore(0.999);
+        assertFalse(instance.detectIntent("I would like", "en_US", "0").isPresent());
+    }
+
+    @Test
+    public void testDetectIntents() {
+        System.out.println("detectIntents");
+        NaiveBayesIntentDetector instance = new NaiveBayesIntentDetector(examples());
+
+        List<IConversationIntent> ranked = instance.detectIntents("I would like a burger and a coke", "en_US", "0", 3);
+        assertEquals(3, ranked.size());
+        assertEquals("CANCEL", ranked.get(2).getIntentId());
+        double sum = 0;
+        for (int i = 0; i < ranked.size(); i++) {
+            if (i > 0) {
+                assertTrue(ranked.get(i - 1).getConfidence() >= ranked.get(i).getConfidence());
+            }
+            sum += ranked.get(i).getConfidence();
+        }
+        assertEquals(1.0, sum, 0.0001);
+    }
+
+    @Test
+    public void testModelRoundTrip() throws IOException {
+        System.out.println("writeModel/readModel");
+        NaiveBayesIntentDetector instance = new NaiveBayesIntentDetector(examples(), 10, 2);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        instance.writeModel(out);
+        NaiveBayesIntentDetector copy = NaiveBayesIntentDetector.readModel(new ByteArrayInputStream(out.toByteArray()));
+
+        for (String text : Arrays.asList("one hamburger", "forget my soda", "large lemonade please")) {
+            List<IConversationIntent> expected = instance.detectIntents(text, "en_US", "0", 3);
+            List<IConversationIntent> actual = copy.detectIntents(text, "en_US", "0", 3);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getIntentId(), actual.get(i).getIntentId());
+                assertEquals(expected.get(i).getConfidence(), actual.get(i).getConfidence(), 0.000001);
+            }
+        }
+    }
+
+    @Test
+    public void testReadCorruptModel() throws IOException {
+        System.out.println("readModel corrupt");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new NaiveBayesIntentDetector(examples(), 10, 2).writeModel(out);
+        byte[] model = out.toByteArray();
+
+        //featureBits at offset 6, ngramSize at 7, intent count at 8
+        byte[] badBits = model.clone();
+        badBits[6] = 31;
+        byte[] negativeBits = model.clone();
+        negativeBits[6] = -1;
+        byte[] badNgrams = model.clone();
+        badNgrams[7] = 0;
+        byte[] tooManyIntents = model.clone();
+        ByteBuffer.wrap(tooManyIntents).putInt(8, 0x00400000);
+        byte[] negativeIntents = model.clone();
+        ByteBuffer.wrap(negativeIntents).putInt(8, -1);
+
+        for (byte[] corrupt : Arrays.asList(badBits, negativeBits, badNgrams, tooManyIntents, negativeIntents)) {
+            try {
+                NaiveBayesIntentDetector.readModel(new ByteArrayInputStream(corrupt));
+                fail();
+            } catch (IOException ex) {
+            }
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package com.conversationkit.nlp;
 import com.conversationkit.model.IConversationIntent;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -75,4 +76,152 @@ public class RegexIntentDetectorTest {
         
     }
 
+    @Test
+    public void testYesPhrases() {
+        System.out.println("YES");
+        Map<String,String> intentMap = new HashMap();
+        intentMap.put("YES", RegexIntentDetector.YES);
+        RegexIntentDetector instance = new RegexIntentDetector(intentMap);
+        
+        assertTrue(instance.detectIntent("just a little", "en_US", "0").isPresent());
+        assertTrue(instance.detectIntent("a bit", "en_US", "0").isPresent());
+        assertFalse(instance.detectIntent("alittle", "en_US", "0").isPresent());
+    }
+
+    @Test
+    public void testFindNestedQuantifiers() {
+        System.out.println("findNestedQuantifiers");
+        assertEquals(1, RegexPatternAnalyzer.findNestedQuantifiers("(a+)+").size());
+        assertEquals(1, RegexPatternAnalyzer.findNestedQuantifiers("^(\\w+\\s?)*$").size());
+        assertEquals(1, RegexPatternAnalyzer.findNestedQuantifiers("((ab)*c)+").size());
+        assertEquals(1, RegexPatternAnalyzer.findNestedQuantifiers("(x{2,})*").size());
+        
+        assertTrue(RegexPatternAnalyzer.findNestedQuantifiers(RegexIntentDetector.YES).isEmpty());
+        assertTrue(RegexPatternAnalyzer.findNestedQuantifiers(RegexIntentDetector.NO).isEmpty());
+        assertTrue(RegexPatternAnalyzer.findNestedQuantifiers("(?<number>\\d)\\s(?<type>ducks|geese)(\\s(?<where>on the lake|in the air))?").isEmpty());
+        assertTrue(RegexPatternAnalyzer.findNestedQuantifiers("(a+){2}").isEmpty());
+        assertTrue(RegexPatternAnalyzer.findNestedQuantifiers("(?>a+)+").isEmpty());
+        assertTrue(RegexPatternAnalyzer.findNestedQuantifiers("(a++)+").isEmpty());
+        assertTrue(RegexPatternAnalyzer.findNestedQuantifiers("([a+*]\\(x)+").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectUnsafePattern() {
+        System.out.println("rejectUnsafePatterns");
+        Map<String,String> intentMap = new HashMap();
+        intentMap.put("BAD", "(a+)+b");
+        new RegexIntentDetector(intentMap, new HashMap(), true, RegexIntentDetector.DEFAULT_MAX_MATCH_STEPS);
+    }
+
+    @Test
+    public void testMatchBudget() {
+        System.out.println("maxMatchSteps");
+        Map<String,String> intentMap = new LinkedHashMap();
+        intentMap.put("BAD", "^(a+)+b");
+        intentMap.put("GOOD", "a{5}");
+        RegexIntentDetector instance = new RegexIntentDetector(intentMap, new HashMap(), false, 100000);
+        
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            text.append('a');
+        }
+        long start = System.currentTimeMillis();
+        Optional<IConversationIntent> result = instance.detectIntent(text.toString(), "en_US", "0");
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertTrue(result.isPresent());
+        assertEquals("GOOD", result.get().getIntentId());
+    }
+
+    @Test
+    public void testDetectIntentNormalized() {
+        System.out.println("detectIntent");
+        Map<String,String> intentMap = new HashMap();
+        intentMap.put("FOWL", "(?<number>\\d) (?<type>ducks|geese)");
+        Map<String,List<RegexIntentSlot>> slotMap = new HashMap();
+        List<RegexIntentSlot> slots = new ArrayList();
+        slots.add(new RegexIntentSlot("type",true));
+        slotMap.put("FOWL", slots);
+        
+        RegexIntentDetector instance = new RegexIntentDetector(intentMap, slotMap, true, RegexIntentDetector.DEFAULT_MAX_MATCH_STEPS, new TextNormalizer());
+        Optional<IConversationIntent> result = instance.detectIntent("I see 3...   GEESE!", "en_US", "0");
+        assertTrue(result.isPresent());
+        assertEquals("geese", result.get().getSlots().get("type"));
+    }
+
+    @Test
+    public void testUpperCasePatternNormalized() {
+        System.out.println("detectIntent upper case pattern");
+        Map<String,String> intentMap = new HashMap();
+        intentMap.put("FOWL", "(?<Number>\\d)\\s(?<Type>DUCKS|Geese)\\b\\W*\\QNOW\\E");
+        Map<String,List<RegexIntentSlot>> slotMap = new HashMap();
+        List<RegexIntentSlot> slots = new ArrayList();
+        slots.add(new RegexIntentSlot("Type",true));
+        slotMap.put("FOWL", slots);
+
+        assertEquals("(?<Number>\\d)\\s(?<Type>ducks|geese)\\b\\W*\\Qnow\\E", RegexPatternAnalyzer.foldLiteralCase(intentMap.get("FOWL")));
+        assertEquals("\\p{Lu}[a-z](?i:x)", RegexPatternAnalyzer.foldLiteralCase("\\p{Lu}[A-Z](?i:X)"));
+
+        RegexIntentDetector instance = new RegexIntentDetector(intentMap, slotMap, true, RegexIntentDetector.DEFAULT_MAX_MATCH_STEPS, new TextNormalizer());
+        Optional<IConversationIntent> result = instance.detectIntent("I see 3 Geese now", "en_US", "0");
+        assertTrue(result.isPresent());
+        assertEquals("geese", result.get().getSlots().get("Type"));
+    }
+
+    @Test
+    public void testStartIncremental() {
+        System.out.println("startIncremental");
+        Map<String,String> intentMap = new LinkedHashMap();
+        intentMap.put("DUCK", "\\bduck\\b");
+        intentMap.put("GOOSE", "goose");
+        RegexIntentDetector instance = new RegexIntentDetector(intentMap);
+        
+        IncrementalIntentDetector<IConversationIntent> incremental = instance.startIncremental("en_US", "0");
+        assertFalse(incremental.feed("I see a").isPresent());
+        assertEquals("DUCK", incremental.feed("I see a duck").get().getIntentId());
+        IConversationIntent first = incremental.feed("I see a duck and").get();
+        //the match no longer depends on the end of the transcript and is kept
+        assertSame(first, incremental.feed("I see a duck and a").get());
+        
+        //the recognizer revised the last word
+        assertFalse(incremental.feed("I see a ducks").isPresent());
+        assertEquals("GOOSE", incremental.feed("I see a goose").get().getIntentId());
+        assertEquals("GOOSE", incremental.finish().get().getIntentId());
+    }
+
+    @Test
+    public void testIntentSymbol() {
+        System.out.println("getIntentSymbol");
+        Map<String, String> intentMap = new HashMap();
+        intentMap.put("SYMBOL_TEST_GREETING", "\\bhello\\b");
+        RegexIntentDetector instance = new RegexIntentDetector(intentMap);
+
+        int symbol = IntentSymbolTable.getDefault().lookup("SYMBOL_TEST_GREETING");
+        assertNotEquals(IntentSymbolTable.UNKNOWN, symbol);
+        IConversationIntent intent = instance.detectIntent("hello there", "en-US", "0").get();
+        assertEquals(symbol, intent.getIntentSymbol());
+
+        //scored intents intern their id once when they are created
+        ScoredIntent scored = new ScoredIntent("SYMBOL_TEST_SCORED", 1.0);
+        assertEquals(IntentSymbolTable.getDefault().lookup("SYMBOL_TEST_SCORED"), scored.getIntentSymbol());
+        assertNotEquals(IntentSymbolTable.UNKNOWN, scored.getIntentSymbol());
+        assertEquals(IntentSymbolTable.UNKNOWN, new ScoredIntent(null, 1.0).getIntentSymbol());
+        IConversationIntent unnamed = new IConversationIntent() {
+            @Override
+            public String getIntentId() {
+                return null;
+            }
+
+            @Override
+            public Map<String, Object> getSlots() {
+                return null;
+            }
+
+            @Override
+            public boolean getAllRequiredSlotsFilled() {
+                return true;
+            }
+        };
+        assertEquals(IntentSymbolTable.UNKNOWN, unnamed.getIntentSymbol());
+    }
+
 }
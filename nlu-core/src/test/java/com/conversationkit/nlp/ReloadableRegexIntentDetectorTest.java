@@ -0,0 +1,89 @@
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class ReloadableRegexIntentDetectorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReload() throws IOException {
+        System.out.println("reload");
+        Path file = folder.newFile("intents.properties").toPath();
+        write(file, "DUCK=duck\nFOWL=(?<number>\\\\d)\\\\s(?<type>ducks|geese)\nFOWL.slots=number,type?\n");
+
+        ReloadableRegexIntentDetector instance = new ReloadableRegexIntentDetector(file);
+        assertEquals("DUCK", instance.detectIntent("a duck", "en_US", "0").get().getIntentId());
+        Optional<IConversationIntent> result = instance.detectIntent("3 geese", "en_US", "0");
+        assertEquals("FOWL", result.get().getIntentId());
+        assertEquals("3", result.get().getSlots().get("number"));
+        assertTrue(result.get().getAllRequiredSlotsFilled());
+        assertFalse(instance.detectIntent("a goose", "en_US", "0").isPresent());
+
+        //a file without any of the current intents needs a forced reload
+        write(file, "GOOSE=goose\n");
+        assertFalse(instance.reload());
+        assertEquals("DUCK", instance.detectIntent("a duck", "en_US", "0").get().getIntentId());
+        assertTrue(instance.forceReload());
+        assertEquals("GOOSE", instance.detectIntent("a goose", "en_US", "0").get().getIntentId());
+        assertFalse(instance.detectIntent("a duck", "en_US", "0").isPresent());
+
+        //an invalid pattern keeps the current set
+        write(file, "BROKEN=(duck\n");
+        assertFalse(instance.reload());
+        assertEquals("GOOSE", instance.detectIntent("a goose", "en_US", "0").get().getIntentId());
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        System.out.println("truncatedFile");
+        Path file = folder.newFile("truncated.properties").toPath();
+        write(file, "DUCK=duck\nGOOSE=goose\n");
+        ReloadableRegexIntentDetector instance = new ReloadableRegexIntentDetector(file);
+
+        for (String truncated : new String[]{"", "DU", "DUCK=", "# intents\n"}) {
+            write(file, truncated);
+            assertFalse(truncated, instance.reload());
+            assertEquals("DUCK", instance.detectIntent("a duck", "en_US", "0").get().getIntentId());
+            assertEquals("GOOSE", instance.detectIntent("a goose", "en_US", "0").get().getIntentId());
+            assertFalse(instance.detectIntent("a swan", "en_US", "0").isPresent());
+        }
+    }
+
+    @Test
+    public void testWatch() throws IOException, InterruptedException {
+        System.out.println("startWatching");
+        Path file = folder.newFile("watched.properties").toPath();
+        write(file, "DUCK=duck\n");
+
+        try (ReloadableRegexIntentDetector instance = new ReloadableRegexIntentDetector(file)) {
+            instance.startWatching();
+            write(file, "DUCK=duck\nGOOSE=goose\n");
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!instance.detectIntent("a goose", "en_US", "0").isPresent() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals("GOOSE", instance.detectIntent("a goose", "en_US", "0").get().getIntentId());
+        }
+    }
+
+}
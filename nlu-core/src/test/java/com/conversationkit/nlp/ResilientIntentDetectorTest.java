@@ -0,0 +1,181 @@
+package com.conversationkit.nlp;
+
+import com.conversationkit.model.IConversationIntent;
+import com.conversationkit.nlp.ResilientIntentDetector.CircuitState;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class ResilientIntentDetectorTest {
+
+    /**
+     * Fake remote detector that sleeps before answering.
+     */
+    private static class SlowIntentDetector implements IntentDetector<IConversationIntent> {
+
+        private final IntentDetector<IConversationIntent> delegate;
+        volatile long latencyMillis;
+
+        public SlowIntentDetector(IntentDetector<IConversationIntent> delegate, long latencyMillis) {
+            this.delegate = delegate;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Optional<IConversationIntent> detectIntent(String text, String languageCode, String sessionId) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            return delegate.detectIntent(text, languageCode, sessionId);
+        }
+    }
+
+    /**
+     * Fake remote detector that answers "slow" late, fails "fail" at once and
+     * fails "probe" late.
+     */
+    private static class ScriptedIntentDetector implements IntentDetector<IConversationIntent> {
+
+        @Override
+        public Optional<IConversationIntent> detectIntent(String text, String languageCode, String sessionId) {
+            try {
+                if (text.equals("slow")) {
+                    Thread.sleep(300);
+                    return Optional.of(new ScoredIntent("REMOTE", 1.0));
+                } else if (text.equals("probe")) {
+                    Thread.sleep(500);
+                }
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            throw new IllegalStateException("unavailable");
+        }
+    }
+
+    private static RegexIntentDetector detector(String intentId, String regex) {
+        Map<String, String> intentMap = new HashMap();
+        intentMap.put(intentId, regex);
+        return new RegexIntentDetector(intentMap);
+    }
+
+    @Test
+    public void testDeadlineUsesFallback() {
+        System.out.println("detectIntent deadline");
+        SlowIntentDetector remote = new SlowIntentDetector(detector("REMOTE", "duck"), 500);
+        ResilientIntentDetector<IConversationIntent> instance = new ResilientIntentDetector<>(remote, detector("LOCAL", "duck"), 50);
+
+        Optional<IConversationIntent> result = instance.detectIntent("duck", "en_US", "0");
+        assertTrue(result.isPresent());
+        assertEquals("LOCAL", result.get().getIntentId());
+        assertEquals(1, instance.getMetrics().getTimeouts());
+        assertEquals(1, instance.getMetrics().getFallbackCalls());
+
+        remote.latencyMillis = 0;
+        result = instance.detectIntent("duck", "en_US", "0");
+        assertEquals("REMOTE", result.get().getIntentId());
+    }
+
+    @Test
+    public void testCircuitOpensAndRecovers() throws InterruptedException {
+        System.out.println("detectIntent circuit breaker");
+        SlowIntentDetector remote = new SlowIntentDetector(detector("REMOTE", "duck"), 200);
+        ResilientIntentDetector<IConversationIntent> instance = new ResilientIntentDetector<>(
+                remote, detector("LOCAL", "duck"), Executors.newCachedThreadPool(), 20, 4, 0.5, 100);
+
+        List<String> transitions = new ArrayList();
+        instance.setTransitionListener((from, to) -> transitions.add(from + "->" + to));
+
+        for (int i = 0; i < 4; i++) {
+            instance.detectIntent("duck", "en_US", "0");
+        }
+        assertEquals(CircuitState.OPEN, instance.getCircuitState());
+        assertEquals(1, instance.getMetrics().getOpened());
+
+        //open circuit goes straight to the fallback without waiting for the deadline
+        remote.latencyMillis = 0;
+        Optional<IConversationIntent> result = instance.detectIntent("duck", "en_US", "0");
+        assertEquals("LOCAL", result.get().getIntentId());
+        assertEquals(1, instance.getMetrics().getShortCircuited());
+
+        Thread.sleep(150);
+        result = instance.detectIntent("duck", "en_US", "0");
+        assertEquals("REMOTE", result.get().getIntentId());
+        assertEquals(CircuitState.CLOSED, instance.getCircuitState());
+        assertEquals(1, instance.getMetrics().getHalfOpened());
+        assertEquals(1, instance.getMetrics().getClosed());
+        assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->CLOSED]", transitions.toString());
+    }
+
+    @Test
+    public void testOnlyProbeClosesCircuit() throws Exception {
+        System.out.println("detectIntent stale call while half open");
+        ResilientIntentDetector<IConversationIntent> instance = new ResilientIntentDetector<>(
+                new ScriptedIntentDetector(), null, Executors.newCachedThreadPool(), 2000, 1, 1.0, 50);
+        List<String> transitions = new ArrayList();
+        instance.setTransitionListener((from, to) -> transitions.add(from + "->" + to));
+
+        //started while closed, succeeds while the probe is in flight
+        Thread slow = new Thread(() -> instance.detectIntent("slow", "en_US", "0"));
+        slow.start();
+        Thread.sleep(20);
+        instance.detectIntent("fail", "en_US", "0");
+        assertEquals(CircuitState.OPEN, instance.getCircuitState());
+        Thread.sleep(100);
+        Thread probe = new Thread(() -> instance.detectIntent("probe", "en_US", "0"));
+        probe.start();
+        slow.join();
+        assertEquals(CircuitState.HALF_OPEN, instance.getCircuitState());
+        probe.join();
+        assertEquals(CircuitState.OPEN, instance.getCircuitState());
+        assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->OPEN]", transitions.toString());
+    }
+
+    @Test
+    public void testRejectedCallIsFailure() {
+        System.out.println("detectIntent rejected");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        ResilientIntentDetector<IConversationIntent> instance = new ResilientIntentDetector<>(
+                detector("REMOTE", "duck"), detector("LOCAL", "duck"), executor, 100, 1, 1.0, 1000);
+
+        Optional<IConversationIntent> result = instance.detectIntent("duck", "en_US", "0");
+        assertEquals("LOCAL", result.get().getIntentId());
+        assertEquals(1, instance.getMetrics().getFailures());
+        assertEquals(CircuitState.OPEN, instance.getCircuitState());
+    }
+
+    @Test
+    public void testListenerRunsOutsideLock() throws Exception {
+        System.out.println("transition listener outside the lock");
+        ResilientIntentDetector<IConversationIntent> instance = new ResilientIntentDetector<>(
+                new ScriptedIntentDetector(), null, Executors.newCachedThreadPool(), 2000, 1, 1.0, 50);
+        AtomicReference<CircuitState> seen = new AtomicReference();
+        instance.setTransitionListener((from, to) -> {
+            //another thread can read the circuit while the listener runs
+            Thread reader = new Thread(() -> seen.set(instance.getCircuitState()));
+            reader.start();
+            try {
+                reader.join(1000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        instance.detectIntent("fail", "en_US", "0");
+        assertEquals(CircuitState.OPEN, seen.get());
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.conversationkit.nlp;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author pdtyreus
+ */
+public class TextNormalizerTest {
+
+    @Test
+    public void testNormalize() {
+        System.out.println("normalize");
+        TextNormalizer instance = new TextNormalizer();
+        assertEquals("yes please", instance.normalize("  YES,   please!! ").toString());
+        assertEquals("i dont see 2 ducks", instance.normalize("I don't see\t2 ducks...").toString());
+        assertEquals("caf\u00E9", instance.normalize("Caf\u00C9?").toString());
+        assertEquals("", instance.normalize("?!").toString());
+    }
+
+    @Test
+    public void testFoldAccents() {
+        System.out.println("foldAccents");
+        TextNormalizer instance = new TextNormalizer(true, true, true);
+        assertEquals("creme brulee", instance.normalize("Cr\u00E8me Br\u00FBl\u00E9e").toString());
+        //decomposed input folds the same way
+        assertEquals("creme", instance.normalize("Cre\u0300me").toString());
+        assertEquals("lodz", instance.normalize("\u0141\u00F3d\u017A").toString());
+    }
+
+    @Test
+    public void testKeepCaseAndPunctuation() {
+        System.out.println("normalize");
+        TextNormalizer instance = new TextNormalizer(false, false, false);
+        assertEquals("Yes, please!", instance.normalize(" Yes,\n please! ").toString());
+    }
+
+    @Test
+    public void testBufferReuse() {
+        System.out.println("normalize");
+        TextNormalizer instance = new TextNormalizer();
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longText.append("Duck ");
+        }
+        CharSequence first = instance.normalize(longText);
+        assertEquals(499, first.length());
+        CharSequence second = instance.normalize("Goose");
+        assertSame(first, second);
+        assertEquals("goose", second.toString());
+        assertEquals("oo", second.subSequence(1, 3).toString());
+    }
+
+}
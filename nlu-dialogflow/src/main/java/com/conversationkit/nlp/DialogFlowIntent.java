@@ -38,6 +38,7 @@ import java.util.Map;
 public class DialogFlowIntent implements IConversationIntent {
 
     private final QueryResult queryResult;
+    private final int intentSymbol;
 
     public QueryResult getQueryResult() {
         return queryResult;
@@ -45,6 +46,8 @@ public class DialogFlowIntent implements IConversationIntent {
 
     public DialogFlowIntent(QueryResult result) {
         this.queryResult = result;
+        String intentId = getIntentId();
+        this.intentSymbol = intentId == null ? IntentSymbolTable.UNKNOWN : IntentSymbolTable.getDefault().intern(intentId);
     }
 
     @Override
@@ -53,6 +56,11 @@ public class DialogFlowIntent implements IConversationIntent {
         return this.queryResult.getIntent().getDisplayName();
     }
 
+    @Override
+    public int getIntentSymbol() {
+        return intentSymbol;
+    }
+
     @Override
     public Map<String, Object> getSlots() {
         Struct params = this.queryResult.getParameters();
@@ -69,4 +77,9 @@ public class DialogFlowIntent implements IConversationIntent {
         return this.queryResult.getAllRequiredParamsPresent();
     }
 
+    @Override
+    public double getConfidence() {
+        return this.queryResult.getIntentDetectionConfidence();
+    }
+
 }
@@ -0,0 +1,251 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Synclab Consulting LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.conversationkit.nlp;
+
+import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.gax.rpc.ClientStream;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.dialogflow.v2beta1.AudioEncoding;
+import com.google.cloud.dialogflow.v2beta1.InputAudioConfig;
+import com.google.cloud.dialogflow.v2beta1.QueryInput;
+import com.google.cloud.dialogflow.v2beta1.QueryResult;
+import com.google.cloud.dialogflow.v2beta1.SessionName;
+import com.google.cloud.dialogflow.v2beta1.SessionsClient;
+import com.google.cloud.dialogflow.v2beta1.SessionsSettings;
+import com.google.cloud.dialogflow.v2beta1.StreamingDetectIntentRequest;
+import com.google.cloud.dialogflow.v2beta1.StreamingDetectIntentResponse;
+import com.google.cloud.dialogflow.v2beta1.StreamingRecognitionResult;
+import com.google.protobuf.ByteString;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Detects intents from live audio with the DialogFlow
+ * <code>StreamingDetectIntent</code> API.
+ * <p>
+ * DialogFlow transcribes the audio as it arrives and reports interim
+ * transcripts before the final intent is known. Pass a listener to
+ * {@link #start} to act on them, for example by feeding a local
+ * {@link IncrementalIntentDetector} to guess the intent early:
+ * <pre>
+ * IncrementalIntentDetector&lt;IConversationIntent&gt; early = regexDetector.startIncremental("en-US", sessionId);
+ * try (AudioStream stream = detector.start("en-US", sessionId, early::feed)) {
+ *     while ((read = audio.read(buffer)) &gt; 0) {
+ *         stream.sendAudio(buffer, 0, read);
+ *     }
+ *     Optional&lt;DialogFlowIntent&gt; intent = stream.finish();
+ * }
+ * </pre>
+ *
+ * @author pdtyreus
+ */
+public class DialogFlowStreamingIntentDetector {
+
+    private static final Logger logger = Logger.getLogger(DialogFlowStreamingIntentDetector.class.getName());
+
+    /**
+     * How long {@link AudioStream#finish()} waits for the intent by default.
+     */
+    public static final long DEFAULT_FINISH_TIMEOUT_MILLIS = 10000;
+
+    private final String projectId;
+    private final SessionsSettings sessionsSettings;
+    private final AudioEncoding audioEncoding;
+    private final int sampleRateHertz;
+    private volatile long finishTimeoutMillis = DEFAULT_FINISH_TIMEOUT_MILLIS;
+
+    /**
+     * @param credentials DialogFlow credentials
+     * @param projectId the DialogFlow agent project
+     * @param audioEncoding encoding of the audio that will be sent
+     * @param sampleRateHertz sample rate of the audio that will be sent
+     * @throws IOException if the client settings cannot be created
+     */
+    public DialogFlowStreamingIntentDetector(GoogleCredentials credentials, String projectId, AudioEncoding audioEncoding, int sampleRateHertz) throws IOException {
+        this.projectId = projectId;
+        this.audioEncoding = audioEncoding;
+        this.sampleRateHertz = sampleRateHertz;
+        this.sessionsSettings = SessionsSettings.newBuilder()
+                .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
+                .build();
+    }
+
+    /**
+     * Sets how long {@link AudioStream#finish()} waits for DialogFlow to
+     * return the intent before giving up. Applies to streams opened after the
+     * call.
+     *
+     * @param timeout the deadline
+     * @param unit unit of the deadline
+     */
+    public void setFinishTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.finishTimeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * Opens a stream for one utterance.
+     *
+     * @param languageCode language of the speech
+     * @param sessionId id of the conversation session
+     * @param transcriptListener called with each interim and final
+     * transcript, on a gRPC thread; may be null
+     * @return the open stream
+     * @throws IOException if the client cannot be created
+     */
+    public AudioStream start(String languageCode, String sessionId, Consumer<String> transcriptListener) throws IOException {
+        SessionsClient sessionsClient = SessionsClient.create(sessionsSettings);
+        try {
+            AudioStream stream = new AudioStream(sessionsClient, transcriptListener, finishTimeoutMillis);
+
+            SessionName session = SessionName.of(projectId, sessionId);
+            logger.log(Level.FINE, "[DialogFlow] streaming session path {0} ", session.toString());
+            InputAudioConfig audioConfig = InputAudioConfig.newBuilder()
+                    .setAudioEncoding(audioEncoding)
+                    .setSampleRateHertz(sampleRateHertz)
+                    .setLanguageCode(languageCode)
+                    .build();
+            //the first request carries the configuration, the rest carry audio
+            stream.requests.send(StreamingDetectIntentRequest.newBuilder()
+                    .setSession(session.toString())
+                    .setQueryInput(QueryInput.newBuilder().setAudioConfig(audioConfig))
+                    .setSingleUtterance(true)
+                    .build());
+            return stream;
+        } catch (RuntimeException ex) {
+            //the caller never gets a stream to close
+            sessionsClient.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * The audio stream of one utterance.
+     */
+    public static class AudioStream implements Closeable {
+
+        private final SessionsClient sessionsClient;
+        private final ClientStream<StreamingDetectIntentRequest> requests;
+        private final CompletableFuture<QueryResult> result = new CompletableFuture();
+        private final long finishTimeoutMillis;
+        private volatile QueryResult queryResult;
+
+        private AudioStream(SessionsClient sessionsClient, final Consumer<String> transcriptListener, long finishTimeoutMillis) {
+            this.sessionsClient = sessionsClient;
+            this.finishTimeoutMillis = finishTimeoutMillis;
+            this.requests = sessionsClient.streamingDetectIntentCallable().splitCall(new ResponseObserver<StreamingDetectIntentResponse>() {
+                @Override
+                public void onStart(StreamController controller) {
+                }
+
+                @Override
+                public void onResponse(StreamingDetectIntentResponse response) {
+                    if (response.hasRecognitionResult()) {
+                        StreamingRecognitionResult recognition = response.getRecognitionResult();
+                        if (recognition.getMessageType() == StreamingRecognitionResult.MessageType.TRANSCRIPT && transcriptListener != null) {
+                            transcriptListener.accept(recognition.getTranscript());
+                        }
+                    }
+                    if (response.hasQueryResult()) {
+                        queryResult = response.getQueryResult();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    result.completeExceptionally(t);
+                }
+
+                @Override
+                public void onComplete() {
+                    result.complete(queryResult);
+                }
+            });
+        }
+
+        /**
+         * Sends the next chunk of audio.
+         *
+         * @param audio buffer holding the audio
+         * @param offset start of the chunk in the buffer
+         * @param length length of the chunk
+         */
+        public void sendAudio(byte[] audio, int offset, int length) {
+            requests.send(StreamingDetectIntentRequest.newBuilder()
+                    .setInputAudio(ByteString.copyFrom(audio, offset, length))
+                    .build());
+        }
+
+        /**
+         * Ends the audio and waits for DialogFlow to return the intent.
+         *
+         * @return the detected intent, empty if DialogFlow matched its fallback
+         * intent, the request failed or no result arrived before the finish
+         * timeout
+         * @see DialogFlowStreamingIntentDetector#setFinishTimeout
+         */
+        public Optional<DialogFlowIntent> finish() {
+            requests.closeSend();
+            try {
+                QueryResult finalResult = result.get(finishTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (finalResult == null || finalResult.getIntent().getIsFallback()) {
+                    logger.log(Level.FINE, "[DialogFlow] did not detect an intent ");
+                    return Optional.empty();
+                }
+                logger.log(Level.FINE, "[DialogFlow] detected intent {0} ", finalResult.getIntent().getDisplayName());
+                return Optional.of(new DialogFlowIntent(finalResult));
+            } catch (ExecutionException ex) {
+                logger.log(Level.WARNING, "Unable to communicate with DialogFlow", ex.getCause());
+                return Optional.empty();
+            } catch (TimeoutException ex) {
+                logger.log(Level.WARNING, "[DialogFlow] no result after {0} ms", finishTimeoutMillis);
+                return Optional.empty();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!result.isDone()) {
+                requests.closeSendWithError(new IOException("Stream closed before finish"));
+            }
+            sessionsClient.close();
+        }
+    }
+
+}
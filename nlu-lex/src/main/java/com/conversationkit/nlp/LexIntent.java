@@ -36,6 +36,7 @@ import java.util.Map;
 public class LexIntent implements IConversationIntent {
 
     private final PostTextResult queryResult;
+    private final int intentSymbol;
 
     public PostTextResult getPostTextResult() {
         return queryResult;
@@ -43,6 +44,8 @@ public class LexIntent implements IConversationIntent {
 
     public LexIntent(PostTextResult result) {
         this.queryResult = result;
+        String intentId = getIntentId();
+        this.intentSymbol = intentId == null ? IntentSymbolTable.UNKNOWN : IntentSymbolTable.getDefault().intern(intentId);
     }
 
     @Override
@@ -50,6 +53,11 @@ public class LexIntent implements IConversationIntent {
         return this.queryResult.getIntentName();
     }
 
+    @Override
+    public int getIntentSymbol() {
+        return intentSymbol;
+    }
+
     @Override
     public Map<String, Object> getSlots() {
         Map<String, String> params = this.queryResult.getSlots();